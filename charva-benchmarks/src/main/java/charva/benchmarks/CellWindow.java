@@ -0,0 +1,142 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package charva.benchmarks;
+
+import charva.awt.Graphics;
+import charva.awt.Point;
+import charva.awt.TerminalGraphics;
+import charva.awt.TerminalWindow;
+import charva.awt.Window;
+import charva.toolkit.virtual.VirtualToolkit;
+
+
+/**
+ * {@link TerminalWindow}, which draws into a grid of cells, so that 
+ * the cost of the graphics layer and of the components' painting can be
+ * measured without the event queue and the toolkit.
+ */
+final class CellWindow extends TerminalWindow {
+
+    /** The screen of all benchmarks, there is one toolkit per JVM */
+    private static VirtualToolkit   toolkit;
+
+    private final int       width;
+    private final int       height;
+
+    /** The cells, each is <code>(attrib << 16) | chr</code> */
+    private final int[]     cells;
+
+
+    CellWindow(Window charvaWindow) {
+        super(charvaWindow);
+
+        width = charvaWindow.getWidth();
+        height = charvaWindow.getHeight();
+        cells = new int[width * height];
+    }
+
+    /**
+     * Returns the toolkit, creating it if needed.
+     */
+    static synchronized VirtualToolkit getToolkit() {
+        if (toolkit == null) {
+            toolkit = new VirtualToolkit(80, 24);
+        }
+
+        return toolkit;
+    }
+
+    /**
+     * Returns a new graphics context, clipped to the window.
+     */
+    Graphics createGraphics() {
+        return getGraphics();
+    }
+
+    /**
+     * Returns the value of a cell, so that the drawing can't be 
+     * eliminated as dead code.
+     */
+    int getCell(int x, int y) {
+        return cells[y * width + x];
+    }
+
+    protected Graphics getGraphics() {
+        Graphics g = new TerminalGraphics(this);
+        g.setClip(0, 0, width, height);
+        return g;
+    }
+
+    protected void drawChar(int x, int y, int chr, int attrib) {
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            cells[y * width + x] = (attrib << 16) | chr;
+        }
+    }
+
+    protected void drawString(int x, int y, String str, int attrib) {
+        for (int i = 0; i < str.length(); i++) {
+            drawChar(x + i, y, str.charAt(i), attrib);
+        }
+    }
+
+    protected void drawLine(int x, int y, int length, int chr,
+            int attrib, boolean isHorizontal) {
+
+        for (int i = 0; i < length; i++) {
+            if (isHorizontal) {
+                drawChar(x + i, y, chr, attrib);
+            } else {
+                drawChar(x, y + i, chr, attrib);
+            }
+        }
+    }
+
+    protected void fillBox(int x, int y, int width, int height, int attrib) {
+        for (int j = 0; j < height; j++) {
+            drawLine(x, y + j, width, ' ', attrib, true);
+        }
+    }
+
+    protected void setCursor(int x, int y) {
+    }
+
+    protected Point getCursor() {
+        return new Point(0, 0);
+    }
+
+    protected Point getCursor(Point p) {
+        p.x = 0;
+        p.y = 0;
+        return p;
+    }
+
+    protected boolean isCursorVisible() {
+        return false;
+    }
+
+    protected void setCursorVisible(boolean isVisible) {
+    }
+
+    protected void sync() {
+    }
+
+    protected void close() {
+    }
+
+    protected void show() {
+    }
+}
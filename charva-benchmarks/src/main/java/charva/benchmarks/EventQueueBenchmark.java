@@ -0,0 +1,105 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package charva.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import charva.awt.EventQueue;
+import charva.awt.event.AWTEvent;
+import charva.awt.event.InvocationEvent;
+
+
+/**
+ * Throughput of <code>EventQueue.postEvent</code> and of taking
+ * the events off the queue, by a single thread and with several 
+ * producer threads competing with the dispatching thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class EventQueueBenchmark {
+
+    /**
+     * The producers stop posting when so many events are queued, so that
+     * the queue doesn't grow without bound when the consumer falls behind
+     */
+    private static final int    MAX_QUEUED = 65536;
+
+    private final EventQueue    queue = EventQueue.getInstance();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Runnable      task = new Runnable() {
+        public void run() {
+        }
+    };
+
+
+    public EventQueueBenchmark() {
+        CellWindow.getToolkit();
+    }
+
+    /**
+     * Posts an event and takes it off the queue on the same thread.
+     */
+    @Benchmark
+    @Group("uncontended")
+    public AWTEvent postAndTake() throws InterruptedException {
+        queue.postEvent(new InvocationEvent(this, task));
+        return queue.waitForNextEvent();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public boolean post() {
+        if (queued.get() >= MAX_QUEUED) {
+            return false;
+        }
+
+        queued.incrementAndGet();
+        queue.postEvent(new InvocationEvent(this, task));
+        return true;
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public AWTEvent take() throws InterruptedException {
+        // never block, the producers may have stopped already
+        if (queue.isEmpty()) {
+            return null;
+        }
+
+        queued.decrementAndGet();
+        return queue.waitForNextEvent();
+    }
+}
@@ -0,0 +1,114 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package charva.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import charva.awt.ColorPair;
+import charva.awt.Graphics;
+import charvax.swing.JFrame;
+
+
+/**
+ * Throughput of the primitives of <code>TerminalGraphics</code>,
+ * including the clipping and the translation to the window.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GraphicsBenchmark {
+
+    /** The length of the drawn strings */
+    @Param({"8", "80"})
+    public int          length;
+
+    private CellWindow  window;
+    private Graphics    graphics;
+    private String      text;
+    private int         row;
+
+
+    @Setup
+    public void setUp() {
+        CellWindow.getToolkit();
+
+        JFrame frame = new JFrame();
+        frame.setBounds(0, 0, 80, 24);
+        window = new CellWindow(frame);
+
+        graphics = window.createGraphics();
+        graphics.setColor(ColorPair.valueOf(0x17));
+
+        StringBuffer buf = new StringBuffer(length);
+        for (int i = 0; i < length; i++) {
+            buf.append((char) ('a' + i % 26));
+        }
+
+        text = buf.toString();
+    }
+
+    private int nextRow() {
+        row = (row + 1) % 24;
+        return row;
+    }
+
+    @Benchmark
+    public int drawString() {
+        int y = nextRow();
+        graphics.drawString(text, 0, y);
+        return window.getCell(0, y);
+    }
+
+    /**
+     * Draws the string half outside the clipping area.
+     */
+    @Benchmark
+    public int drawStringClipped() {
+        int y = nextRow();
+        graphics.drawString(text, 80 - length / 2, y);
+        return window.getCell(79, y);
+    }
+
+    /**
+     * Fills as many cells as <code>drawString</code> writes.
+     */
+    @Benchmark
+    public int fillRect() {
+        int y = nextRow();
+        graphics.fillRect(0, y, length, 1);
+        return window.getCell(0, y);
+    }
+
+    @Benchmark
+    public int fillScreen() {
+        graphics.fillRect(0, 0, 80, 24);
+        return window.getCell(79, 23);
+    }
+}
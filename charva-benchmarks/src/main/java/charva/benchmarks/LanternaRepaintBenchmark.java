@@ -0,0 +1,155 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charva.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.googlecode.lanterna.terminal.Terminal;
+import charva.awt.BorderLayout;
+import charva.toolkit.lanterna.LanternaToolkit;
+import charvax.swing.AbstractListModel;
+import charvax.swing.JFrame;
+import charvax.swing.JList;
+import charvax.swing.JPanel;
+import charvax.swing.JScrollPane;
+import charvax.swing.JTable;
+import charvax.swing.table.AbstractTableModel;
+
+
+/**
+ * Cost of a full-screen repaint through the {@link LanternaToolkit}: the
+ * paint event is dispatched, the window is painted into the lanterna 
+ * screen, with the text characters of the toolkit's cache, and, if 
+ * <code>refresh</code> is set, the screen is refreshed to a terminal, 
+ * which discards the output. Run it with the GC profiler to see the 
+ * allocation of a repaint, <code>gc.alloc.rate.norm</code>:
+ * <pre>
+ *     java -jar charva-benchmarks.jar LanternaRepaintBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LanternaRepaintBenchmark {
+
+    /** Whether the lanterna screen is refreshed after each repaint */
+    @Param({"false", "true"})
+    public boolean          refresh;
+
+    private BenchmarkToolkit toolkit;
+    private JFrame          frame;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        toolkit = new BenchmarkToolkit(new NullTerminal(80, 24), refresh);
+
+        JTable table = new JTable(new AbstractTableModel() {
+            public int getRowCount() {
+                return 1000;
+            }
+
+            public int getColumnCount() {
+                return 4;
+            }
+
+            public Object getValueAt(int row, int column) {
+                return "r" + row + "c" + column;
+            }
+        });
+
+        JList list = new JList(new AbstractListModel() {
+            public int getSize() {
+                return 1000;
+            }
+
+            public Object getElementAt(int index) {
+                return "\u044d\u043b\u0435\u043c\u0435\u043d\u0442 " + index;
+            }
+        });
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        panel.add(new JScrollPane(list), BorderLayout.EAST);
+
+        frame = new JFrame();
+        frame.setBounds(0, 0, 80, 24);
+        frame.getContentPane().add(panel);
+        frame.show();
+        toolkit.runUntilIdle();
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.hide();
+        toolkit.runUntilIdle();
+    }
+
+    @Benchmark
+    public long repaint() {
+        frame.repaint();
+        toolkit.runUntilIdle();
+        return toolkit.getPaintedCount();
+    }
+
+
+    /**
+     * {@link LanternaToolkit} without an event-dispatching thread, its 
+     * events are dispatched on the benchmark thread.
+     */
+    private static final class BenchmarkToolkit extends LanternaToolkit {
+
+        private final boolean   refresh;
+
+
+        BenchmarkToolkit(Terminal terminal, boolean refresh) 
+                throws IOException {
+
+            super(terminal);
+            this.refresh = refresh;
+            setMaxFrameRate(0);
+        }
+
+        void runUntilIdle() {
+            while (!getSystemEventQueue().isEmpty()) {
+                processIdleEvent();
+            }
+        }
+
+        protected void sync() {
+            if (refresh) {
+                super.sync();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package charva.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import charva.awt.Container;
+import charvax.swing.JFrame;
+import charvax.swing.JLabel;
+import charvax.swing.JPanel;
+
+
+/**
+ * Cost of <code>Container.validateTree</code> after a change deep in 
+ * a tree of nested panels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LayoutBenchmark {
+
+    /** The number of nested panels */
+    @Param({"4", "16", "64"})
+    public int          depth;
+
+    /** The number of labels in each panel */
+    @Param({"1", "8"})
+    public int          width;
+
+    private JFrame      frame;
+    private JLabel      leaf;
+
+
+    @Setup
+    public void setUp() {
+        CellWindow.getToolkit();
+
+        frame = new JFrame();
+        frame.setBounds(0, 0, 80, 24);
+
+        Container parent = frame.getContentPane();
+        for (int d = 0; d < depth; d++) {
+            JPanel panel = new JPanel();
+            for (int i = 0; i < width; i++) {
+                leaf = new JLabel("label " + d + "." + i);
+                panel.add(leaf);
+            }
+
+            parent.add(panel);
+            parent = panel;
+        }
+
+        frame.validate();
+    }
+
+    /**
+     * Invalidates the deepest label, which invalidates all its ancestors,
+     * and validates the frame again.
+     */
+    @Benchmark
+    public JFrame validateAfterLeafChange() {
+        leaf.invalidate();
+        frame.validate();
+        return frame;
+    }
+
+    /**
+     * Invalidates the frame only, the panels below it are still valid
+     * and are not laid out again.
+     */
+    @Benchmark
+    public JFrame validateAfterRootChange() {
+        frame.invalidate();
+        frame.validate();
+        return frame;
+    }
+}
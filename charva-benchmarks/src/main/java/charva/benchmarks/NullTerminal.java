@@ -0,0 +1,93 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charva.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.terminal.AbstractTerminal;
+
+
+/**
+ * Lanterna terminal of a fixed size, which discards the output and has
+ * no input, so that the cost of the lanterna screen can be measured 
+ * without the cost of a real terminal.
+ */
+final class NullTerminal extends AbstractTerminal {
+
+    private final TerminalSize  size;
+
+
+    NullTerminal(int columns, int rows) {
+        size = new TerminalSize(columns, rows);
+    }
+
+    public KeyStroke pollInput() {
+        return null;
+    }
+
+    public KeyStroke readInput() {
+        return null;
+    }
+
+    public void enterPrivateMode() {
+    }
+
+    public void exitPrivateMode() {
+    }
+
+    public void clearScreen() {
+    }
+
+    public void setCursorPosition(int x, int y) {
+    }
+
+    public void setCursorVisible(boolean visible) {
+    }
+
+    public void putCharacter(char c) {
+    }
+
+    public void enableSGR(SGR sgr) {
+    }
+
+    public void disableSGR(SGR sgr) {
+    }
+
+    public void resetColorAndSGR() {
+    }
+
+    public void setForegroundColor(TextColor color) {
+    }
+
+    public void setBackgroundColor(TextColor color) {
+    }
+
+    public TerminalSize getTerminalSize() {
+        return size;
+    }
+
+    public byte[] enquireTerminal(int timeout, TimeUnit timeoutUnit) {
+        return new byte[0];
+    }
+
+    public void flush() {
+    }
+}
@@ -0,0 +1,155 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package charva.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import charva.awt.BorderLayout;
+import charva.awt.Component;
+import charva.awt.Graphics;
+import charva.awt.Point;
+import charva.awt.Rectangle;
+import charva.toolkit.virtual.VirtualToolkit;
+import charvax.swing.AbstractListModel;
+import charvax.swing.JFrame;
+import charvax.swing.JList;
+import charvax.swing.JPanel;
+import charvax.swing.JScrollPane;
+import charvax.swing.JTable;
+import charvax.swing.table.AbstractTableModel;
+
+
+/**
+ * Cost of repainting a <code>JTable</code> and a <code>JList</code>, 
+ * scrolled to the middle of their models, for various model sizes.
+ * The window is painted with the clipping area of the viewport, the 
+ * same way as the toolkit does it for a damaged area.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PaintBenchmark {
+
+    /** The number of rows of the models */
+    @Param({"1000", "100000", "10000000"})
+    public int              rows;
+
+    private VirtualToolkit  toolkit;
+    private JFrame          frame;
+    private CellWindow      window;
+    private Rectangle       tableClip;
+    private Rectangle       listClip;
+
+
+    @Setup
+    public void setUp() {
+        toolkit = CellWindow.getToolkit();
+
+        JTable table = new JTable(new AbstractTableModel() {
+            public int getRowCount() {
+                return rows;
+            }
+
+            public int getColumnCount() {
+                return 4;
+            }
+
+            public Object getValueAt(int row, int column) {
+                return "r" + row + "c" + column;
+            }
+        });
+
+        JList list = new JList(new AbstractListModel() {
+            public int getSize() {
+                return rows;
+            }
+
+            public Object getElementAt(int index) {
+                return "item " + index;
+            }
+        });
+
+        JScrollPane tablePane = new JScrollPane(table);
+        JScrollPane listPane = new JScrollPane(list);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(tablePane, BorderLayout.CENTER);
+        panel.add(listPane, BorderLayout.EAST);
+
+        frame = new JFrame();
+        frame.setBounds(0, 0, 80, 24);
+        frame.getContentPane().add(panel);
+        frame.show();
+        toolkit.runUntilIdle();
+
+        tablePane.getViewport().setViewPosition(new Point(0, rows / 2));
+        listPane.getViewport().setViewPosition(new Point(0, rows / 2));
+        toolkit.runUntilIdle();
+
+        window = new CellWindow(frame);
+        tableClip = getBoundsInWindow(tablePane.getViewport());
+        listClip = getBoundsInWindow(listPane.getViewport());
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.hide();
+        toolkit.runUntilIdle();
+    }
+
+    private static Rectangle getBoundsInWindow(Component component) {
+        Rectangle bounds = component.getBounds();
+        for (Component c = component.getParent(); c.getParent() != null;
+                c = c.getParent()) {
+
+            bounds.translate(c.getX(), c.getY());
+        }
+
+        return bounds;
+    }
+
+    private int paint(Rectangle clip) {
+        Graphics g = window.createGraphics();
+        g.clipRect(clip.x, clip.y, clip.width, clip.height);
+        frame.paint(g);
+        return window.getCell(clip.x, clip.y);
+    }
+
+    @Benchmark
+    public int paintTable() {
+        return paint(tableClip);
+    }
+
+    @Benchmark
+    public int paintList() {
+        return paint(listClip);
+    }
+}
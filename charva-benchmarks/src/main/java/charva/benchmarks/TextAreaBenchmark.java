@@ -0,0 +1,114 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package charva.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import charvax.swing.JTextArea;
+import charvax.swing.text.Document;
+
+
+/**
+ * Cost of the line queries of <code>JTextArea</code>, and of keeping its
+ * index of rows up to date while typing, for various document sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TextAreaBenchmark {
+
+    /** The number of lines of the document */
+    @Param({"1000", "100000", "1000000"})
+    public int          lines;
+
+    /** Whether the lines are wrapped at the width of the text area */
+    @Param({"false", "true"})
+    public boolean      lineWrap;
+
+    private JTextArea   textArea;
+    private Document    document;
+    private int[]       offsets;
+    private int         next;
+
+
+    @Setup
+    public void setUp() {
+        CellWindow.getToolkit();
+
+        Random random = new Random(42);
+        StringBuffer text = new StringBuffer();
+        for (int i = 0; i < lines; i++) {
+            int words = random.nextInt(20);
+            for (int j = 0; j < words; j++) {
+                text.append("word").append(j).append(' ');
+            }
+
+            text.append('\n');
+        }
+
+        textArea = new JTextArea(text.toString(), 24, 80);
+        textArea.setLineWrap(lineWrap);
+        textArea.getLineCount();     // build the index
+        document = textArea.getDocument();
+
+        offsets = new int[1024];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = random.nextInt(document.getLength());
+        }
+    }
+
+    private int nextOffset() {
+        next = (next + 1) & (offsets.length - 1);
+        return offsets[next];
+    }
+
+    @Benchmark
+    public int getLineOfOffset() {
+        return textArea.getLineOfOffset(nextOffset());
+    }
+
+    @Benchmark
+    public int getLineStartOffset() {
+        return textArea.getLineStartOffset(
+                nextOffset() % textArea.getLineCount());
+    }
+
+    /**
+     * Types a character in the middle of the document and deletes it.
+     */
+    @Benchmark
+    public int typeAndDelete() {
+        int offset = nextOffset();
+        document.insertString(offset, "x");
+        document.remove(offset, 1);
+        return textArea.getLineCount();
+    }
+}
@@ -0,0 +1,90 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charva.demo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import charva.awt.ColorScheme;
+import charva.awt.Toolkit;
+import charva.awt.event.ActionEvent;
+import charva.awt.event.ActionListener;
+import charva.showcase.Tutorial;
+import charva.toolkit.lanterna.LanternaToolkit;
+import charva.toolkit.lanterna.TelnetServer;
+
+/**
+ * Serves the charva-lanterna demo application to telnet clients, each
+ * connection gets its own session.
+ */
+public final class TelnetDemoApp {
+
+    private static final int DEFAULT_PORT = 2323;
+    private static final int DISPATCH_THREADS = 4;
+
+    private TelnetDemoApp() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int port = (args.length > 0 ? Integer.parseInt(args[0]) 
+                : DEFAULT_PORT);
+
+        // the sessions start with the current colors
+        final ColorScheme normalColors = loadColors("/blue-colors.properties");
+        if (normalColors != null) {
+            Toolkit.setNormalColors(normalColors);
+        }
+
+        final TelnetServer server = new TelnetServer(port, DISPATCH_THREADS,
+                new TelnetServer.SessionHandler() {
+                    public void sessionStarted(final LanternaToolkit toolkit) {
+                        final Tutorial tutorial = new Tutorial();
+                        tutorial.setExitActionListener(new ActionListener() {
+                            public void actionPerformed(final ActionEvent ae) {
+                                toolkit.stopEventThread();
+                            }
+                        });
+                        tutorial.show();
+                    }
+                });
+
+        server.start();
+        System.out.println("Listening on port " + server.getPort()
+                + ", connect with: telnet localhost " + server.getPort());
+    }
+
+    private static ColorScheme loadColors(final String colorsFileName) 
+            throws IOException {
+
+        final InputStream colorsStream = 
+            TelnetDemoApp.class.getResourceAsStream(colorsFileName);
+        if (colorsStream == null) {
+            return null;
+        }
+
+        try {
+            final Properties properties = new Properties();
+            properties.load(colorsStream);
+            return new ColorScheme(properties);
+
+        } finally {
+            colorsStream.close();
+        }
+    }
+}
@@ -0,0 +1,588 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charva.toolkit.lanterna;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import charva.awt.Dimension;
+import charva.awt.Platform;
+import charva.awt.TerminalWindow;
+import charva.awt.Toolkit;
+import charva.awt.Window;
+import charva.awt.event.InvocationEvent;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.terminal.ResizeListener;
+import com.googlecode.lanterna.terminal.Terminal;
+
+/**
+ * ANSI {@link Toolkit} implementation.
+ * <p>
+ * Unlike {@link LanternaToolkit}, it doesn't use lanterna's screen for
+ * drawing. Instead, it keeps its own back and front buffers of packed
+ * character/attribute cells. On {@link #sync()} the buffers are compared
+ * row by row and only the changed spans are emitted as ANSI escape
+ * sequences, which are assembled into one reusable byte buffer and written
+ * to the terminal's output with a single write.
+ * <p>
+ * The attribute sequences are pre-encoded for all the attributes, and
+ * the encoded bytes of each non-ASCII character (including the virtual
+ * signs) are cached, so that the charset encoder is not involved once
+ * a character has been seen.
+ * <p>
+ * The lanterna terminal is still used for reading input, terminal size and
+ * for entering/exiting private mode.
+ */
+public class AnsiToolkit extends Toolkit {
+
+    /** Maximum number of unchanged cells to rewrite instead of moving cursor */
+    private static final int    MAX_GAP = 4;
+
+    /** Maps charva color codes to ANSI color codes */
+    private static final int[]  ANSI_COLORS = {0, 4, 2, 6, 1, 5, 3, 7};
+
+    private static final byte   ESC = 0x1b;
+
+    /** The SGR sequences setting the attributes, indexed by attributes */
+    private static final byte[][] SGR = new byte[256][];
+
+    static {
+        final ByteBuffer buf = ByteBuffer.allocate(16);
+        for (int attrib = 0; attrib < SGR.length; attrib++) {
+            buf.clear();
+            putAttributes(buf, attrib);
+            buf.flip();
+
+            SGR[attrib] = new byte[buf.remaining()];
+            buf.get(SGR[attrib]);
+        }
+    }
+
+    private final Terminal              terminal;
+    private final OutputStream          output;
+
+    /** The channel of the output, if it's a file (or a tty) */
+    private final FileChannel           outputChannel;
+
+    private final CharsetEncoder        encoder;
+    private final EventWorker           eventWorker;
+
+    /**
+     * The encoded non-ASCII characters, in pages of 256 characters, 
+     * indexed by the high byte of the character
+     */
+    private final byte[][][]            glyphPages = new byte[256][][];
+
+    private int         width;
+    private int         height;
+
+    /** Cells drawn by the windows, each is <code>(attrib << 16) | chr</code> */
+    private int[]       backBuffer;
+
+    /** Cells which are currently shown on the terminal */
+    private int[]       frontBuffer;
+
+    private ByteBuffer  frameBuffer;
+
+    private boolean     isCursorVisible;
+    private int         cursorX;
+    private int         cursorY;
+
+    /** Cursor state, which is currently shown on the terminal */
+    private boolean     wasCursorVisible = true;
+    private int         lastCursorX = -1;
+    private int         lastCursorY = -1;
+
+    /**
+     * Creates ANSI toolkit.
+     *
+     * @param terminal  the terminal to read input from
+     * @param output    the terminal's output stream, frames are written
+     *                  directly to it; if it's a 
+     *                  <code>FileOutputStream</code>, such as
+     *                  <code>new FileOutputStream(FileDescriptor.out)</code>,
+     *                  the frames are written to its channel from a direct
+     *                  buffer
+     * @param charset   the terminal's character set
+     */
+    public AnsiToolkit(final Terminal terminal, final OutputStream output,
+            final Charset charset) throws IOException {
+
+        this.terminal = terminal;
+        this.output = output;
+        this.outputChannel = (output instanceof FileOutputStream
+                ? ((FileOutputStream) output).getChannel() : null);
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        // the box drawing characters are needed for almost every frame
+        for (char sign = VirtualSigns.FIRST; sign <= VirtualSigns.LAST;
+                sign++) {
+
+            getGlyph(sign);
+        }
+
+        eventWorker = new EventWorker();
+
+        final TerminalSize size = terminal.getTerminalSize();
+        resize(size.getColumns(), size.getRows());
+
+        terminal.addResizeListener(new ResizeListener() {
+            public void onResized(Terminal terminal, TerminalSize newSize) {
+                // the buffers are resized on the event dispatch thread,
+                // between the frames, so that the windows are repainted
+                // into the new ones
+                invokeLater(new Runnable() {
+                    public void run() {
+                        resizeScreen();
+                    }
+                });
+            }
+        });
+
+        setDefaultToolkit(this);
+    }
+
+    private void resizeScreen() {
+        try {
+            final TerminalSize size = terminal.getTerminalSize();
+            resize(size.getColumns(), size.getRows());
+            terminal.clearScreen();
+            terminal.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        // repaint the main window in stack,
+        // this will torn out to repaint other windows
+        Window[] winList = getWindows();
+        if (winList.length > 0) {
+            winList[0].repaint();
+        }
+    }
+
+    private void resize(int width, int height) {
+        final int size = width * height;
+
+        this.width = width;
+        this.height = height;
+
+        backBuffer = new int[size];
+        Arrays.fill(backBuffer, cell(' ', getDefaultColor().getColorCode()));
+
+        // force full redraw
+        frontBuffer = new int[size];
+        Arrays.fill(frontBuffer, -1);
+
+        // worst case: cursor move, attributes and multi-byte character
+        // for every cell
+        final int capacity = size * 24 + 64;
+        frameBuffer = (outputChannel != null 
+                ? ByteBuffer.allocateDirect(capacity) 
+                : ByteBuffer.allocate(capacity));
+    }
+
+    private static int cell(int chr, int attrib) {
+        return ((attrib & 0xff) << 16) | (chr & 0xffff);
+    }
+
+    protected void drawChar(int x, int y, int chr, int attrib) {
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            backBuffer[y * width + x] = cell(chr, attrib);
+        }
+    }
+
+    protected void drawString(int x, int y, String str, int attrib) {
+        if (y < 0 || y >= height) {
+            return;
+        }
+
+        final int start = Math.max(0, -x);
+        final int end = Math.min(str.length(), width - x);
+        final int offset = y * width + x;
+        attrib = (attrib & 0xff) << 16;
+
+        for (int i = start; i < end; i++) {
+            backBuffer[offset + i] = attrib | str.charAt(i);
+        }
+    }
+
+    protected void drawLine(int x, int y, int length, int chr,
+            int attrib, boolean isHorizontal) {
+
+        final int cell = cell(chr, attrib);
+
+        if (isHorizontal) {
+            if (y < 0 || y >= height) {
+                return;
+            }
+
+            final int start = Math.max(0, x);
+            final int end = Math.min(width, x + length);
+            if (start < end) {
+                Arrays.fill(backBuffer, y * width + start, y * width + end,
+                        cell);
+            }
+        } else {
+            if (x < 0 || x >= width) {
+                return;
+            }
+
+            final int start = Math.max(0, y);
+            final int end = Math.min(height, y + length);
+            for (int j = start; j < end; j++) {
+                backBuffer[j * width + x] = cell;
+            }
+        }
+    }
+
+    protected void fillBox(int x, int y, int width, int height, int attrib) {
+        final int cell = cell(' ', attrib);
+
+        final int x1 = Math.max(0, x);
+        final int x2 = Math.min(this.width, x + width);
+        final int y1 = Math.max(0, y);
+        final int y2 = Math.min(this.height, y + height);
+        if (x1 >= x2) {
+            return;
+        }
+
+        for (int j = y1; j < y2; j++) {
+            Arrays.fill(backBuffer, j * this.width + x1, j * this.width + x2,
+                    cell);
+        }
+    }
+
+    protected void setCursor(int x, int y) {
+        cursorX = x;
+        cursorY = y;
+    }
+
+    protected boolean isCursorVisible() {
+        return isCursorVisible;
+    }
+
+    protected void setCursorVisible(boolean isVisible) {
+        this.isCursorVisible = isVisible;
+    }
+
+    /**
+     * Returns absolute cursor position
+     */
+    protected int getCursorXY() {
+        return (cursorX & 0xffff) | (cursorY << 16);
+    }
+
+    protected void sync() {
+        final ByteBuffer buf = frameBuffer;
+        buf.clear();
+
+        final int[] back = backBuffer;
+        final int[] front = frontBuffer;
+        int lastAttrib = -1;
+
+        for (int y = 0; y < height; y++) {
+            final int rowStart = y * width;
+            final int rowEnd = rowStart + width;
+
+            int i = rowStart;
+            while (i < rowEnd) {
+                if (back[i] == front[i]) {
+                    i++;
+                    continue;
+                }
+
+                if (lastAttrib == -1) {
+                    // hide cursor while drawing
+                    putEscape(buf, 25, 'l');
+                }
+
+                // changed span starts here
+                putCursor(buf, i - rowStart, y);
+
+                while (i < rowEnd) {
+                    if (back[i] == front[i]) {
+                        // it's cheaper to rewrite few unchanged cells,
+                        // than to move cursor
+                        int gap = 1;
+                        while (i + gap < rowEnd && gap <= MAX_GAP
+                                && back[i + gap] == front[i + gap]) {
+                            gap++;
+                        }
+
+                        if (i + gap >= rowEnd || gap > MAX_GAP) {
+                            i += gap;
+                            break;
+                        }
+                    }
+
+                    final int cell = back[i];
+                    final int attrib = cell >>> 16;
+                    if (attrib != lastAttrib) {
+                        buf.put(SGR[attrib]);
+                        lastAttrib = attrib;
+                    }
+
+                    putChar(buf, (char) cell);
+                    front[i] = cell;
+                    i++;
+                }
+            }
+        }
+
+        final boolean changed = (lastAttrib != -1);
+        if (isCursorVisible) {
+            if (changed || !wasCursorVisible || cursorX != lastCursorX
+                    || cursorY != lastCursorY) {
+
+                putCursor(buf, cursorX, cursorY);
+                putEscape(buf, 25, 'h');
+            }
+        } else if (wasCursorVisible && !changed) {
+            putEscape(buf, 25, 'l');
+        }
+
+        wasCursorVisible = isCursorVisible;
+        lastCursorX = cursorX;
+        lastCursorY = cursorY;
+
+        if (buf.position() == 0) {
+            return;
+        }
+
+        try {
+            write(buf);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the bytes between the start and the position of the buffer
+     * to the output.
+     */
+    private void write(ByteBuffer buf) throws IOException {
+        if (outputChannel != null) {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                outputChannel.write(buf);
+            }
+        } else {
+            output.write(buf.array(), buf.arrayOffset(), buf.position());
+            output.flush();
+        }
+    }
+
+    private static void putEscape(ByteBuffer buf, int mode, char command) {
+        buf.put(ESC).put((byte) '[').put((byte) '?');
+        putNumber(buf, mode);
+        buf.put((byte) command);
+    }
+
+    private static void putCursor(ByteBuffer buf, int x, int y) {
+        buf.put(ESC).put((byte) '[');
+        putNumber(buf, y + 1);
+        buf.put((byte) ';');
+        putNumber(buf, x + 1);
+        buf.put((byte) 'H');
+    }
+
+    private static void putAttributes(ByteBuffer buf, int attrib) {
+        buf.put(ESC).put((byte) '[').put((byte) '0');
+        if ((attrib & 0x08) != 0) {
+            buf.put((byte) ';').put((byte) '1');
+        }
+
+        buf.put((byte) ';').put((byte) '3')
+            .put((byte) ('0' + ANSI_COLORS[attrib & 0x07]));
+        buf.put((byte) ';').put((byte) '4')
+            .put((byte) ('0' + ANSI_COLORS[(attrib >>> 4) & 0x07]));
+        buf.put((byte) 'm');
+    }
+
+    private static void putNumber(ByteBuffer buf, int value) {
+        if (value >= 10) {
+            putNumber(buf, value / 10);
+        }
+
+        buf.put((byte) ('0' + value % 10));
+    }
+
+    private void putChar(ByteBuffer buf, char chr) {
+        if (chr >= 0x20 && chr < 0x7f) {
+            buf.put((byte) chr);
+        } else {
+            buf.put(getGlyph(chr));
+        }
+    }
+
+    /**
+     * Returns the encoded bytes of a non-ASCII character, encoding it
+     * when it's first seen.
+     */
+    private byte[] getGlyph(char chr) {
+        byte[][] page = glyphPages[chr >>> 8];
+        if (page == null) {
+            page = new byte[256][];
+            glyphPages[chr >>> 8] = page;
+        }
+
+        byte[] glyph = page[chr & 0xff];
+        if (glyph == null) {
+            char symbol = VirtualSigns.map(chr);
+            if (symbol < 0x20 || symbol == 0x7f) {
+                // never send control characters to the terminal
+                symbol = ' ';
+            }
+
+            try {
+                final ByteBuffer bytes = encoder.encode(
+                        CharBuffer.wrap(new char[] {symbol}));
+                glyph = new byte[bytes.remaining()];
+                bytes.get(glyph);
+            } catch (CharacterCodingException e) {
+                // can't happen, errors are replaced
+                glyph = new byte[] {'?'};
+            }
+
+            page[chr & 0xff] = glyph;
+        }
+
+        return glyph;
+    }
+
+    protected void closeWindow(AnsiWindow window) {
+        // repaint the main window in stack,
+        // this will torn out to repaint other windows
+        Window[] winList = getWindows();
+        if (winList.length > 0) {
+            winList[0].repaint();
+        }
+    }
+
+    public Dimension getScreenSize() {
+        return new Dimension(width, height);
+    }
+
+    protected TerminalWindow createWindowPeer(Window charvaWindow) {
+        return new AnsiWindow(this, charvaWindow);
+    }
+
+    public void startEventThread() {
+        if (!eventWorker.isRunning()) {
+            new Thread(eventWorker).start();
+        }
+    }
+
+    public void stopEventThread() {
+        eventWorker.stopRequest();
+    }
+
+    private final class EventWorker implements Runnable {
+
+        private volatile boolean running;
+        private volatile boolean stopRequest;
+
+        public boolean isRunning() {
+            return running;
+        }
+
+        public boolean isStopRequested() {
+            return stopRequest;
+        }
+
+        public void stopRequest() {
+            stopRequest = true;
+
+            // wake up the dispatching thread, if it's waiting for events
+            getSystemEventQueue().postEvent(new InvocationEvent(
+                    AnsiToolkit.this, new Runnable() {
+                        public void run() {
+                        }
+                    }));
+        }
+
+        public void run() {
+            running = true;
+            try {
+                terminal.enterPrivateMode();
+                terminal.clearScreen();
+                terminal.flush();
+
+                try {
+                    final Thread inputThread = Platform.newThread(
+                            new InputWorker(), "charva-input");
+                    inputThread.start();
+
+                    while (!stopRequest) {
+                        try {
+                            waitAndProcessEvents();
+                        } catch (InterruptedException e) {
+                            stopRequest = true;
+                        }
+                    }
+                } finally {
+                    // reset attributes and restore cursor
+                    final ByteBuffer buf = frameBuffer;
+                    buf.clear();
+                    buf.put(new byte[] {
+                            ESC, '[', '0', 'm', ESC, '[', '?', '2', '5', 'h'});
+                    write(buf);
+
+                    terminal.exitPrivateMode();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Blocks on the terminal input and posts key events onto the event
+     * queue, which wakes up the dispatching thread.
+     */
+    private final class InputWorker implements Runnable {
+
+        public void run() {
+            try {
+                while (!eventWorker.isStopRequested()) {
+                    final KeyStroke keyStroke = terminal.readInput();
+                    if (keyStroke == null) {
+                        break;
+                    }
+
+                    fireKeystroke(VirtualKeys.map(keyStroke));
+                }
+            } catch (IOException e) {
+                if (!eventWorker.isStopRequested()) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+}
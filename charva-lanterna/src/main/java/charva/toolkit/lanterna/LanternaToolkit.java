@@ -20,19 +20,18 @@ package charva.toolkit.lanterna;
 import java.io.IOException;
 import charva.awt.Dimension;
 import charva.awt.EventQueue;
-import charva.awt.GraphicsConstants;
+import charva.awt.Platform;
 import charva.awt.Point;
+import charva.awt.SessionDispatcher;
 import charva.awt.TerminalWindow;
 import charva.awt.Toolkit;
 import charva.awt.Window;
-import charva.awt.event.KeyEvent;
-import com.googlecode.lanterna.SGR;
-import com.googlecode.lanterna.Symbols;
+import charva.awt.event.InvocationEvent;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.TextCharacter;
-import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
 import com.googlecode.lanterna.screen.TerminalScreen;
 import com.googlecode.lanterna.terminal.Terminal;
 
@@ -44,6 +43,10 @@ public class LanternaToolkit extends Toolkit {
     private final TerminalScreen screen;
     private final EventWorker eventWorker;
 
+    /** The dispatcher of a session toolkit, <code>null</code> otherwise */
+    private final SessionDispatcher dispatcher;
+    private final TextCharacterCache textChars = new TextCharacterCache();
+
     private boolean isCursorVisible;
     private int cursorX;
     private int cursorY;
@@ -51,66 +54,50 @@ public class LanternaToolkit extends Toolkit {
     public LanternaToolkit(final Terminal terminal) throws IOException {
         screen = new TerminalScreen(terminal);
         eventWorker = new EventWorker();
+        dispatcher = null;
 
         setDefaultToolkit(this);
     }
 
-    private TextColor getTextColor(final int code) {
-        switch (code) {
-        case 0:
-            return TextColor.ANSI.BLACK;
-        case 1:
-            return TextColor.ANSI.BLUE;
-        case 2:
-            return TextColor.ANSI.GREEN;
-        case 3:
-            return TextColor.ANSI.CYAN;
-        case 4:
-            return TextColor.ANSI.RED;
-        case 5:
-            return TextColor.ANSI.MAGENTA;
-        case 6:
-            return TextColor.ANSI.YELLOW;
-        case 7:
-            return TextColor.ANSI.WHITE;
-
-        default:
-            return TextColor.ANSI.DEFAULT;
-        }
-    }
-
-    private TextCharacter getTextCharacter(final int chr, final int attrib) {
-        final TextColor foregroundColor = getTextColor(attrib & 0x07);
-        final TextColor backgroundColor = getTextColor((attrib >>> 4) & 0x07);
+    /**
+     * Constructs a session toolkit, e.g. for a connection to a terminal
+     * server. Its events are dispatched by the dispatcher, once the
+     * session is started by {@link #startEventThread()}; the session is
+     * stopped by {@link #stopEventThread()} or when the terminal's input 
+     * is closed.
+     */
+    public LanternaToolkit(final Terminal terminal, 
+            final SessionDispatcher dispatcher) throws IOException {
 
-        if ((attrib & 0x08) != 0) {
-            return new TextCharacter(mapVirtualSign((char) chr),
-                                     foregroundColor,
-                                     backgroundColor,
-                                     SGR.BOLD);
-        }
+        super(new EventQueue());
+        screen = new TerminalScreen(terminal);
+        eventWorker = new EventWorker();
+        this.dispatcher = dispatcher;
+    }
 
-        return new TextCharacter(mapVirtualSign((char) chr),
-                                 foregroundColor,
-                                 backgroundColor);
+    /**
+     * Returns the terminal of this toolkit.
+     */
+    public Terminal getTerminal() {
+        return screen.getTerminal();
     }
-    
+
     protected void drawChar(int x, int y, int chr, int attrib) {
-        screen.setCharacter(x, y, getTextCharacter(chr, attrib));
+        screen.setCharacter(x, y, textChars.get((char) chr, attrib));
     }
 
     protected void drawString(int x, int y, String str, int attrib) {
         for (int i = 0, count = str.length(); i < count; i++) {
             screen.setCharacter(x + i,
                                 y,
-                                getTextCharacter(str.charAt(i), attrib));
+                                textChars.get(str.charAt(i), attrib));
         }
     }
 
     protected void drawLine(int x, int y, int length, int chr, 
             int attrib, boolean isHorizontal) {
 
-        final TextCharacter textChar = getTextCharacter(chr, attrib);
+        final TextCharacter textChar = textChars.get((char) chr, attrib);
 
         for (int i = 0; i < length; i++) {
             if (isHorizontal) {
@@ -122,11 +109,9 @@ public class LanternaToolkit extends Toolkit {
     }
 
     protected void fillBox(int x, int y, int width, int height, int attrib) {
-        final TextCharacter textChar = getTextCharacter(' ', attrib);
+        final TextCharacter textChar = textChars.get(' ', attrib);
 
         for (int j = 0; j < height; j++) {
-            screen.setCursorPosition(new TerminalPosition(x, y + j));
-            
             for (int i = 0; i < width; i++) {
                 screen.setCharacter(x + i, y + j, textChar);
             }
@@ -198,118 +183,26 @@ public class LanternaToolkit extends Toolkit {
         return new LanternaWindow(this, charvaWindow);
     }
     
-    private char mapVirtualSign(char key) {
-        switch (key) {
-        // single box
-        case GraphicsConstants.VS_ULCORNER:     return Symbols.SINGLE_LINE_TOP_LEFT_CORNER;
-        case GraphicsConstants.VS_LLCORNER:     return Symbols.SINGLE_LINE_BOTTOM_LEFT_CORNER;
-        case GraphicsConstants.VS_URCORNER:     return Symbols.SINGLE_LINE_TOP_RIGHT_CORNER;
-        case GraphicsConstants.VS_LRCORNER:     return Symbols.SINGLE_LINE_BOTTOM_RIGHT_CORNER;
-        case GraphicsConstants.VS_LTEE:         return Symbols.SINGLE_LINE_T_RIGHT;
-        case GraphicsConstants.VS_RTEE:         return Symbols.SINGLE_LINE_T_LEFT;
-        case GraphicsConstants.VS_BTEE:         return Symbols.SINGLE_LINE_T_UP;
-        case GraphicsConstants.VS_TTEE:         return Symbols.SINGLE_LINE_T_DOWN;
-        case GraphicsConstants.VS_HLINE:        return Symbols.SINGLE_LINE_HORIZONTAL;
-        case GraphicsConstants.VS_VLINE:        return Symbols.SINGLE_LINE_VERTICAL;
-        case GraphicsConstants.VS_CROSS:        return Symbols.SINGLE_LINE_CROSS;
-
-        // double box
-        case GraphicsConstants.VS_DBL_ULCORNER: return Symbols.DOUBLE_LINE_TOP_LEFT_CORNER;
-        case GraphicsConstants.VS_DBL_LLCORNER: return Symbols.DOUBLE_LINE_BOTTOM_LEFT_CORNER;
-        case GraphicsConstants.VS_DBL_URCORNER: return Symbols.DOUBLE_LINE_TOP_RIGHT_CORNER;
-        case GraphicsConstants.VS_DBL_LRCORNER: return Symbols.DOUBLE_LINE_BOTTOM_RIGHT_CORNER;
-        case GraphicsConstants.VS_DBL_LTEE:     return Symbols.DOUBLE_LINE_T_RIGHT;
-        case GraphicsConstants.VS_DBL_RTEE:     return Symbols.DOUBLE_LINE_T_LEFT;
-        case GraphicsConstants.VS_DBL_BTEE:     return Symbols.DOUBLE_LINE_T_UP;
-        case GraphicsConstants.VS_DBL_TTEE:     return Symbols.DOUBLE_LINE_T_DOWN;
-        case GraphicsConstants.VS_DBL_HLINE:    return Symbols.DOUBLE_LINE_HORIZONTAL;
-        case GraphicsConstants.VS_DBL_VLINE:    return Symbols.DOUBLE_LINE_VERTICAL;
-        case GraphicsConstants.VS_DBL_CROSS:    return Symbols.DOUBLE_LINE_CROSS;
-        
-        // single separator corners for double box
-        case GraphicsConstants.VS_DBL_LSEP:     return Symbols.DOUBLE_LINE_T_SINGLE_RIGHT;
-        case GraphicsConstants.VS_DBL_RSEP:     return Symbols.DOUBLE_LINE_T_SINGLE_LEFT;
-        case GraphicsConstants.VS_DBL_TSEP:     return Symbols.DOUBLE_LINE_T_SINGLE_DOWN;
-        case GraphicsConstants.VS_DBL_BSEP:     return Symbols.DOUBLE_LINE_T_SINGLE_UP;
-        
-        // double separator corners for single box
-        case GraphicsConstants.VS_L_DBLSEP:     return Symbols.SINGLE_LINE_T_DOUBLE_RIGHT;
-        case GraphicsConstants.VS_R_DBLSEP:     return Symbols.SINGLE_LINE_T_DOUBLE_LEFT;
-        case GraphicsConstants.VS_T_DBLSEP:     return Symbols.SINGLE_LINE_T_DOUBLE_DOWN;
-        case GraphicsConstants.VS_B_DBLSEP:     return Symbols.SINGLE_LINE_T_DOUBLE_UP;
-        
-        // other graphical symbols
-        case GraphicsConstants.VS_ARROW_DOWN:   return Symbols.ARROW_DOWN;
-        case GraphicsConstants.VS_ARROW_UP:     return Symbols.ARROW_UP;
-        case GraphicsConstants.VS_ARROW_RIGHT:  return Symbols.ARROW_RIGHT;
-        case GraphicsConstants.VS_ARROW_LEFT:   return Symbols.ARROW_LEFT;
-        case GraphicsConstants.VS_DOWN:         return 0x25BC;
-        case GraphicsConstants.VS_UP:           return 0x25B2;
-        case GraphicsConstants.VS_RIGHT:        return 0x25BA;
-        case GraphicsConstants.VS_LEFT:         return 0x25C4;
-        
-        case GraphicsConstants.VS_WTBOARD:      return Symbols.BLOCK_SPARSE;
-        case GraphicsConstants.VS_CKBOARD:      return Symbols.BLOCK_MIDDLE;
-        case GraphicsConstants.VS_BOARD:        return Symbols.BLOCK_DENSE;
-        case GraphicsConstants.VS_BLBOARD:      return Symbols.BLOCK_SOLID;
-
-        case GraphicsConstants.VS_TICK:         return 0x221A;
-        case GraphicsConstants.VS_RADIO:        return Symbols.BULLET;
-        }
-        
-        return key;
-    }
-    
-    private int mapVirtualKey(KeyStroke key) {
-        switch (key.getKeyType()) {
-        case Character:     return key.getCharacter();
-        
-        case Escape:        return KeyEvent.VK_ESCAPE;
-        case Backspace:     return KeyEvent.VK_BACK_SPACE;
-        case ArrowLeft:     return KeyEvent.VK_LEFT;
-        case ArrowRight:    return KeyEvent.VK_RIGHT;
-        case ArrowUp:       return KeyEvent.VK_UP;
-        case ArrowDown:     return KeyEvent.VK_DOWN;
-        case Insert:        return KeyEvent.VK_INSERT;
-        case Delete:        return KeyEvent.VK_DELETE;
-        case Home:          return KeyEvent.VK_HOME;
-        case End:           return KeyEvent.VK_END;
-        case PageUp:        return KeyEvent.VK_PAGE_UP;
-        case PageDown:      return KeyEvent.VK_PAGE_DOWN;
-        case Tab:           return KeyEvent.VK_TAB;
-//        case ReverseTab:    return KeyEvent.VK_UNDEFINED;
-        case Enter:         return KeyEvent.VK_ENTER;
-        
-        case F1:            return KeyEvent.VK_F1;
-        case F2:            return KeyEvent.VK_F2;
-        case F3:            return KeyEvent.VK_F3;
-        case F4:            return KeyEvent.VK_F4;
-        case F5:            return KeyEvent.VK_F5;
-        case F6:            return KeyEvent.VK_F6;
-        case F7:            return KeyEvent.VK_F7;
-        case F8:            return KeyEvent.VK_F8;
-        case F9:            return KeyEvent.VK_F9;
-        case F10:           return KeyEvent.VK_F10;
-        case F11:           return KeyEvent.VK_F11;
-        case F12:           return KeyEvent.VK_F12;
-        case F13:           return KeyEvent.VK_F13;
-        case F14:           return KeyEvent.VK_F14;
-        case F15:           return KeyEvent.VK_F15;
-        case F16:           return KeyEvent.VK_F16;
-        case F17:           return KeyEvent.VK_F17;
-        case F18:           return KeyEvent.VK_F18;
-        case F19:           return KeyEvent.VK_F19;
+    /**
+     * Starts the event-dispatching thread, or the session of a session
+     * toolkit.
+     */
+    public void startEventThread() {
+        if (eventWorker.isRunning()) {
+            return;
         }
-        
-        return KeyEvent.VK_UNDEFINED;
-    }
 
-    public void startEventThread() {
-        if (!eventWorker.isRunning()) {
+        if (dispatcher != null) {
+            eventWorker.startSession();
+        } else {
             new Thread(eventWorker).start();
         }
     }
 
+    /**
+     * Stops the event-dispatching thread, or the session of a session
+     * toolkit. The terminal itself is not closed.
+     */
     public void stopEventThread() {
         eventWorker.stopRequest();
     }
@@ -323,38 +216,79 @@ public class LanternaToolkit extends Toolkit {
             return running;
         }
 
+        public boolean isStopRequested() {
+            return stopRequest;
+        }
+
         public void stopRequest() {
             stopRequest = true;
+
+            if (dispatcher != null) {
+                stopSession();
+                return;
+            }
+
+            // wake up the dispatching thread, if it's waiting for events
+            getSystemEventQueue().postEvent(new InvocationEvent(
+                    LanternaToolkit.this, new Runnable() {
+                        public void run() {
+                        }
+                    }));
         }
 
-        public void run() {
+        /**
+         * Starts the screen and the input thread of a session, its events
+         * are dispatched by the dispatcher.
+         */
+        public void startSession() {
             running = true;
             try {
                 screen.startScreen();
+            } catch (IOException e) {
+                running = false;
+                throw new RuntimeException(e);
+            }
 
-                try {
-                    //screen.clear();
-                    //screen.setCursorPosition(new TerminalPosition(0, 0));
+            startInputThread();
+            dispatcher.addSession(LanternaToolkit.this);
+        }
 
-                    final EventQueue eventQueue = EventQueue.getInstance();
+        private void stopSession() {
+            synchronized (this) {
+                if (!running) {
+                    return;
+                }
 
-                    while (!stopRequest) {
-                        final KeyStroke keyStroke = screen.pollInput();
-                        if (keyStroke != null) {
-                            processKeyEvent(getTopWindow(),
-                                            mapVirtualKey(keyStroke),
-                                            0);
-                        }
+                running = false;
+            }
+
+            dispatcher.removeSession(LanternaToolkit.this);
+            try {
+                screen.stopScreen();
+            } catch (IOException e) {
+                // the terminal may have been disconnected already
+            }
+        }
+
+        private void startInputThread() {
+            final Thread inputThread = Platform.newThread(new InputWorker(),
+                    "charva-input");
+            inputThread.start();
+        }
+
+        public void run() {
+            running = true;
+            try {
+                screen.startScreen();
 
-                        if (!eventQueue.isEmpty()) {
-                            processIdleEvent();
+                try {
+                    startInputThread();
 
-                        } else {
-                            try {
-                                Thread.sleep(100);
-                            } catch (InterruptedException e) {
-                                stopRequest();
-                            }
+                    while (!stopRequest) {
+                        try {
+                            waitAndProcessEvents();
+                        } catch (InterruptedException e) {
+                            stopRequest = true;
                         }
                     }
                 } finally {
@@ -365,4 +299,39 @@ public class LanternaToolkit extends Toolkit {
             }
         }
     }
+
+    /**
+     * Blocks on the terminal input and posts key events onto the event
+     * queue, which wakes up the dispatching thread.
+     */
+    private final class InputWorker implements Runnable {
+
+        public void run() {
+            try {
+                while (!eventWorker.isStopRequested()) {
+                    final KeyStroke keyStroke = screen.readInput();
+                    if (keyStroke == null 
+                            || keyStroke.getKeyType() == KeyType.EOF) {
+                        break;
+                    }
+
+                    fireKeystroke(VirtualKeys.map(keyStroke));
+                }
+            } catch (IOException e) {
+                if (!eventWorker.isStopRequested() && dispatcher == null) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            // the session ends, when its terminal is disconnected; it's
+            // stopped by its dispatching thread, which uses the screen
+            if (dispatcher != null && !eventWorker.isStopRequested()) {
+                invokeLater(new Runnable() {
+                    public void run() {
+                        stopEventThread();
+                    }
+                });
+            }
+        }
+    }
 }
@@ -0,0 +1,243 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charva.toolkit.lanterna;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import charva.awt.Platform;
+import charva.awt.SessionDispatcher;
+import com.googlecode.lanterna.terminal.ansi.TelnetTerminal;
+import com.googlecode.lanterna.terminal.ansi.TelnetTerminalServer;
+
+/**
+ * Terminal server, which runs a session of the application for each
+ * telnet connection, all of them in one JVM.
+ * <p>
+ * Each session has its own {@link LanternaToolkit}, with its own event
+ * queue and window stack. The events of all the sessions are dispatched
+ * by a small pool of threads of a {@link SessionDispatcher}; only the
+ * blocking terminal input needs a thread per connection.
+ * <pre>
+ *     TelnetServer server = new TelnetServer(2323, 4,
+ *             new TelnetServer.SessionHandler() {
+ *                 public void sessionStarted(LanternaToolkit toolkit) {
+ *                     new MainFrame().show();
+ *                 }
+ *             });
+ *     server.start();
+ * </pre>
+ * The server can be tried locally with <code>telnet localhost 2323</code>.
+ */
+public class TelnetServer {
+
+    /**
+     * Starts the application in a new session.
+     */
+    public interface SessionHandler {
+
+        /**
+         * Called by the dispatching thread of a new session, so that the
+         * windows created by this method belong to the session. The
+         * session ends, when the application calls
+         * <code>toolkit.stopEventThread()</code>, or when the client
+         * disconnects.
+         *
+         * @param toolkit  the session's toolkit
+         */
+        void sessionStarted(LanternaToolkit toolkit);
+    }
+
+    private final TelnetTerminalServer  server;
+    private final SessionDispatcher     dispatcher;
+    private final SessionHandler        handler;
+
+    /** The running sessions, guarded by itself */
+    private final HashSet               sessions = new HashSet();
+
+    private volatile boolean            stopRequest;
+
+
+    /**
+     * Constructs a server with UTF-8 terminals.
+     *
+     * @param port         the port to listen on, zero for any free port
+     * @param threadCount  the number of event-dispatching threads
+     * @param handler      starts the application in the sessions
+     */
+    public TelnetServer(int port, int threadCount, SessionHandler handler)
+            throws IOException {
+
+        this(port, Charset.forName("UTF-8"), threadCount, handler);
+    }
+
+    /**
+     * Constructs a server.
+     *
+     * @param port         the port to listen on, zero for any free port
+     * @param charset      the character set of the terminals
+     * @param threadCount  the number of event-dispatching threads
+     * @param handler      starts the application in the sessions
+     */
+    public TelnetServer(int port, Charset charset, int threadCount,
+            SessionHandler handler) throws IOException {
+
+        this.server = new TelnetTerminalServer(port, charset);
+        this.dispatcher = new SessionDispatcher(threadCount);
+        this.handler = handler;
+    }
+
+    /**
+     * Returns the port, which the server listens on.
+     */
+    public int getPort() {
+        return server.getServerSocket().getLocalPort();
+    }
+
+    public SessionDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * Returns the number of the running sessions.
+     */
+    public int getSessionCount() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    /**
+     * Starts accepting the connections.
+     */
+    public void start() {
+        final Thread acceptThread = Platform.newThread(new Runnable() {
+            public void run() {
+                acceptConnections();
+            }
+        }, "charva-telnet");
+
+        acceptThread.start();
+    }
+
+    /**
+     * Stops accepting the connections, and stops all the sessions.
+     */
+    public void stop() {
+        stopRequest = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+            // nothing to do, the server is stopping anyway
+        }
+
+        ArrayList running;
+        synchronized (sessions) {
+            running = new ArrayList(sessions);
+        }
+
+        for (int i = 0; i < running.size(); i++) {
+            ((Session) running.get(i)).close();
+        }
+
+        dispatcher.shutdown();
+    }
+
+    private void acceptConnections() {
+        while (!stopRequest) {
+            final TelnetTerminal terminal;
+            try {
+                terminal = server.acceptConnection();
+            } catch (IOException e) {
+                if (!stopRequest) {
+                    e.printStackTrace();
+                }
+
+                break;      // the server socket is not usable anymore
+            }
+
+            if (terminal == null) {
+                continue;
+            }
+
+            try {
+                startSession(terminal);
+            } catch (Exception e) {
+                e.printStackTrace();
+                try {
+                    terminal.close();
+                } catch (IOException x) {
+                    // the session is abandoned anyway
+                }
+            }
+        }
+    }
+
+    private void startSession(TelnetTerminal terminal) throws IOException {
+        final Session session = new Session(terminal);
+        synchronized (sessions) {
+            sessions.add(session);
+        }
+
+        session.startEventThread();
+        session.invokeLater(new Runnable() {
+            public void run() {
+                handler.sessionStarted(session);
+            }
+        });
+    }
+
+
+    /**
+     * The toolkit of a connection, which closes the connection
+     * when the session ends.
+     */
+    private final class Session extends LanternaToolkit {
+
+        private final TelnetTerminal    terminal;
+
+        Session(TelnetTerminal terminal) throws IOException {
+            super(terminal, dispatcher);
+            this.terminal = terminal;
+        }
+
+        public void stopEventThread() {
+            super.stopEventThread();
+            close();
+        }
+
+        void close() {
+            synchronized (sessions) {
+                if (!sessions.remove(this)) {
+                    return;     // already closed
+                }
+            }
+
+            try {
+                terminal.close();
+            } catch (IOException e) {
+                // the client may have disconnected already
+            }
+        }
+
+        public String toString() {
+            return "Session[" + terminal.getRemoteSocketAddress() + "]";
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charva.toolkit.lanterna;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.TextColor;
+
+
+/**
+ * Cache of interned lanterna {@link TextCharacter} objects, keyed by
+ * the character and the 8-bit charva color attribute.
+ * <p>
+ * <code>TextCharacter</code> is immutable, so the same instance can be
+ * put into any number of screen cells. Latin-1 characters and charva
+ * virtual signs are kept in per-attribute tables, all the other characters
+ * go to a small direct-mapped cache. Once the cache is warmed up, the
+ * drawing path doesn't allocate any objects.
+ * <p>
+ * This class is not thread-safe, it should be used from the
+ * event-dispatching thread only.
+ */
+public final class TextCharacterCache {
+
+    /** Number of characters in per-attribute table */
+    private static final int    TABLE_SIZE  = 256 + VirtualSigns.COUNT;
+
+    /** Number of entries in the direct-mapped cache, must be power of 2 */
+    private static final int    OTHER_SIZE  = 4096;
+
+    private static final TextColor[] COLORS = new TextColor[] {
+        TextColor.ANSI.BLACK,
+        TextColor.ANSI.BLUE,
+        TextColor.ANSI.GREEN,
+        TextColor.ANSI.CYAN,
+        TextColor.ANSI.RED,
+        TextColor.ANSI.MAGENTA,
+        TextColor.ANSI.YELLOW,
+        TextColor.ANSI.WHITE
+    };
+
+    /** Per-attribute tables, created on demand */
+    private final TextCharacter[][] tables  = new TextCharacter[256][];
+
+    private final int[]             otherKeys   = new int[OTHER_SIZE];
+    private final TextCharacter[]   otherValues = new TextCharacter[OTHER_SIZE];
+
+
+    /**
+     * Returns text character for the given charva character and color
+     * attribute. Charva virtual signs are mapped to the terminal's symbols.
+     *
+     * @param chr       the charva character
+     * @param attrib    the color attributes (foreground + background + bold)
+     */
+    public TextCharacter get(char chr, int attrib) {
+        attrib &= 0xff;
+
+        int index;
+        if (chr < 256) {
+            index = chr;
+        } else if (VirtualSigns.isVirtualSign(chr)) {
+            index = 256 + (chr - VirtualSigns.FIRST);
+        } else {
+            return getOther(chr, attrib);
+        }
+
+        TextCharacter[] table = tables[attrib];
+        if (table == null) {
+            table = new TextCharacter[TABLE_SIZE];
+            tables[attrib] = table;
+        }
+
+        TextCharacter textChar = table[index];
+        if (textChar == null) {
+            textChar = create(VirtualSigns.map(chr), attrib);
+            table[index] = textChar;
+        }
+
+        return textChar;
+    }
+
+    private TextCharacter getOther(char chr, int attrib) {
+        // zero key is reserved for empty slot, since chr is always >= 256
+        final int key = (chr << 8) | attrib;
+        final int slot = (key ^ (key >>> 12)) & (OTHER_SIZE - 1);
+
+        if (otherKeys[slot] == key) {
+            return otherValues[slot];
+        }
+
+        final TextCharacter textChar = create(chr, attrib);
+        otherKeys[slot] = key;
+        otherValues[slot] = textChar;
+        return textChar;
+    }
+
+    private static TextCharacter create(char chr, int attrib) {
+        final TextColor foregroundColor = COLORS[attrib & 0x07];
+        final TextColor backgroundColor = COLORS[(attrib >>> 4) & 0x07];
+
+        if ((attrib & 0x08) != 0) {
+            return new TextCharacter(chr,
+                                     foregroundColor,
+                                     backgroundColor,
+                                     SGR.BOLD);
+        }
+
+        return new TextCharacter(chr, foregroundColor, backgroundColor);
+    }
+}
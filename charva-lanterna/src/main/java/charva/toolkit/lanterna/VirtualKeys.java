@@ -0,0 +1,80 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charva.toolkit.lanterna;
+
+import charva.awt.event.KeyEvent;
+import com.googlecode.lanterna.input.KeyStroke;
+
+
+/**
+ * Maps lanterna key strokes to charva virtual key codes
+ * ({@link KeyEvent}<code>.VK_*</code>).
+ */
+final class VirtualKeys {
+
+    private VirtualKeys() {
+    }
+
+    /**
+     * Returns charva key code for the given key stroke, or
+     * {@link KeyEvent#VK_UNDEFINED} if there is no such.
+     */
+    static int map(KeyStroke key) {
+        switch (key.getKeyType()) {
+        case Character:     return key.getCharacter();
+        
+        case Escape:        return KeyEvent.VK_ESCAPE;
+        case Backspace:     return KeyEvent.VK_BACK_SPACE;
+        case ArrowLeft:     return KeyEvent.VK_LEFT;
+        case ArrowRight:    return KeyEvent.VK_RIGHT;
+        case ArrowUp:       return KeyEvent.VK_UP;
+        case ArrowDown:     return KeyEvent.VK_DOWN;
+        case Insert:        return KeyEvent.VK_INSERT;
+        case Delete:        return KeyEvent.VK_DELETE;
+        case Home:          return KeyEvent.VK_HOME;
+        case End:           return KeyEvent.VK_END;
+        case PageUp:        return KeyEvent.VK_PAGE_UP;
+        case PageDown:      return KeyEvent.VK_PAGE_DOWN;
+        case Tab:           return KeyEvent.VK_TAB;
+//        case ReverseTab:    return KeyEvent.VK_UNDEFINED;
+        case Enter:         return KeyEvent.VK_ENTER;
+        
+        case F1:            return KeyEvent.VK_F1;
+        case F2:            return KeyEvent.VK_F2;
+        case F3:            return KeyEvent.VK_F3;
+        case F4:            return KeyEvent.VK_F4;
+        case F5:            return KeyEvent.VK_F5;
+        case F6:            return KeyEvent.VK_F6;
+        case F7:            return KeyEvent.VK_F7;
+        case F8:            return KeyEvent.VK_F8;
+        case F9:            return KeyEvent.VK_F9;
+        case F10:           return KeyEvent.VK_F10;
+        case F11:           return KeyEvent.VK_F11;
+        case F12:           return KeyEvent.VK_F12;
+        case F13:           return KeyEvent.VK_F13;
+        case F14:           return KeyEvent.VK_F14;
+        case F15:           return KeyEvent.VK_F15;
+        case F16:           return KeyEvent.VK_F16;
+        case F17:           return KeyEvent.VK_F17;
+        case F18:           return KeyEvent.VK_F18;
+        case F19:           return KeyEvent.VK_F19;
+        }
+        
+        return KeyEvent.VK_UNDEFINED;
+    }
+}
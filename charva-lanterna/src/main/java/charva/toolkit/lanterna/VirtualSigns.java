@@ -0,0 +1,128 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charva.toolkit.lanterna;
+
+import charva.awt.GraphicsConstants;
+import com.googlecode.lanterna.Symbols;
+
+
+/**
+ * Maps charva virtual signs ({@link GraphicsConstants}<code>.VS_*</code>)
+ * to the terminal's unicode symbols.
+ * <p>
+ * The mapping is precomputed into a lookup table, so that it can be done
+ * in the drawing path without any branching.
+ */
+final class VirtualSigns {
+
+    /** The first virtual sign code */
+    static final char   FIRST = GraphicsConstants.VS_ULCORNER;
+
+    /** The last virtual sign code */
+    static final char   LAST  = GraphicsConstants.VS_RADIO;
+
+    /** Number of virtual signs */
+    static final int    COUNT = LAST - FIRST + 1;
+
+    private static final char[] SIGNS = new char[COUNT];
+
+    static {
+        // single box
+        put(GraphicsConstants.VS_ULCORNER,     Symbols.SINGLE_LINE_TOP_LEFT_CORNER);
+        put(GraphicsConstants.VS_LLCORNER,     Symbols.SINGLE_LINE_BOTTOM_LEFT_CORNER);
+        put(GraphicsConstants.VS_URCORNER,     Symbols.SINGLE_LINE_TOP_RIGHT_CORNER);
+        put(GraphicsConstants.VS_LRCORNER,     Symbols.SINGLE_LINE_BOTTOM_RIGHT_CORNER);
+        put(GraphicsConstants.VS_LTEE,         Symbols.SINGLE_LINE_T_RIGHT);
+        put(GraphicsConstants.VS_RTEE,         Symbols.SINGLE_LINE_T_LEFT);
+        put(GraphicsConstants.VS_BTEE,         Symbols.SINGLE_LINE_T_UP);
+        put(GraphicsConstants.VS_TTEE,         Symbols.SINGLE_LINE_T_DOWN);
+        put(GraphicsConstants.VS_HLINE,        Symbols.SINGLE_LINE_HORIZONTAL);
+        put(GraphicsConstants.VS_VLINE,        Symbols.SINGLE_LINE_VERTICAL);
+        put(GraphicsConstants.VS_CROSS,        Symbols.SINGLE_LINE_CROSS);
+
+        // double box
+        put(GraphicsConstants.VS_DBL_ULCORNER, Symbols.DOUBLE_LINE_TOP_LEFT_CORNER);
+        put(GraphicsConstants.VS_DBL_LLCORNER, Symbols.DOUBLE_LINE_BOTTOM_LEFT_CORNER);
+        put(GraphicsConstants.VS_DBL_URCORNER, Symbols.DOUBLE_LINE_TOP_RIGHT_CORNER);
+        put(GraphicsConstants.VS_DBL_LRCORNER, Symbols.DOUBLE_LINE_BOTTOM_RIGHT_CORNER);
+        put(GraphicsConstants.VS_DBL_LTEE,     Symbols.DOUBLE_LINE_T_RIGHT);
+        put(GraphicsConstants.VS_DBL_RTEE,     Symbols.DOUBLE_LINE_T_LEFT);
+        put(GraphicsConstants.VS_DBL_BTEE,     Symbols.DOUBLE_LINE_T_UP);
+        put(GraphicsConstants.VS_DBL_TTEE,     Symbols.DOUBLE_LINE_T_DOWN);
+        put(GraphicsConstants.VS_DBL_HLINE,    Symbols.DOUBLE_LINE_HORIZONTAL);
+        put(GraphicsConstants.VS_DBL_VLINE,    Symbols.DOUBLE_LINE_VERTICAL);
+        put(GraphicsConstants.VS_DBL_CROSS,    Symbols.DOUBLE_LINE_CROSS);
+
+        // single separator corners for double box
+        put(GraphicsConstants.VS_DBL_LSEP,     Symbols.DOUBLE_LINE_T_SINGLE_RIGHT);
+        put(GraphicsConstants.VS_DBL_RSEP,     Symbols.DOUBLE_LINE_T_SINGLE_LEFT);
+        put(GraphicsConstants.VS_DBL_TSEP,     Symbols.DOUBLE_LINE_T_SINGLE_DOWN);
+        put(GraphicsConstants.VS_DBL_BSEP,     Symbols.DOUBLE_LINE_T_SINGLE_UP);
+
+        // double separator corners for single box
+        put(GraphicsConstants.VS_L_DBLSEP,     Symbols.SINGLE_LINE_T_DOUBLE_RIGHT);
+        put(GraphicsConstants.VS_R_DBLSEP,     Symbols.SINGLE_LINE_T_DOUBLE_LEFT);
+        put(GraphicsConstants.VS_T_DBLSEP,     Symbols.SINGLE_LINE_T_DOUBLE_DOWN);
+        put(GraphicsConstants.VS_B_DBLSEP,     Symbols.SINGLE_LINE_T_DOUBLE_UP);
+
+        // other graphical symbols
+        put(GraphicsConstants.VS_ARROW_DOWN,   Symbols.ARROW_DOWN);
+        put(GraphicsConstants.VS_ARROW_UP,     Symbols.ARROW_UP);
+        put(GraphicsConstants.VS_ARROW_RIGHT,  Symbols.ARROW_RIGHT);
+        put(GraphicsConstants.VS_ARROW_LEFT,   Symbols.ARROW_LEFT);
+        put(GraphicsConstants.VS_DOWN,         (char) 0x25BC);
+        put(GraphicsConstants.VS_UP,           (char) 0x25B2);
+        put(GraphicsConstants.VS_RIGHT,        (char) 0x25BA);
+        put(GraphicsConstants.VS_LEFT,         (char) 0x25C4);
+
+        put(GraphicsConstants.VS_WTBOARD,      Symbols.BLOCK_SPARSE);
+        put(GraphicsConstants.VS_CKBOARD,      Symbols.BLOCK_MIDDLE);
+        put(GraphicsConstants.VS_BOARD,        Symbols.BLOCK_DENSE);
+        put(GraphicsConstants.VS_BLBOARD,      Symbols.BLOCK_SOLID);
+
+        put(GraphicsConstants.VS_TICK,         (char) 0x221A);
+        put(GraphicsConstants.VS_RADIO,        Symbols.BULLET);
+    }
+
+
+    private VirtualSigns() {
+    }
+
+    private static void put(char sign, char symbol) {
+        SIGNS[sign - FIRST] = symbol;
+    }
+
+    /**
+     * Returns <code>true</code> if the given character is charva virtual sign
+     */
+    static boolean isVirtualSign(char chr) {
+        return (chr >= FIRST && chr <= LAST);
+    }
+
+    /**
+     * Maps the given character to the terminal's symbol, if it is
+     * charva virtual sign, otherwise returns the character itself.
+     */
+    static char map(char chr) {
+        if (chr >= FIRST && chr <= LAST) {
+            return SIGNS[chr - FIRST];
+        }
+
+        return chr;
+    }
+}
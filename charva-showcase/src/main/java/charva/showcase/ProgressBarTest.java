@@ -1,6 +1,8 @@
 
 package charva.showcase;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import charva.awt.BorderLayout;
 import charva.awt.Container;
 import charva.awt.GridBagConstraints;
@@ -16,7 +18,7 @@ import charvax.swing.JOptionPane;
 import charvax.swing.JPanel;
 import charvax.swing.JProgressBar;
 import charvax.swing.JTextField;
-import charvax.swing.SwingUtilities;
+import charvax.swing.SwingWorker;
 import charvax.swing.border.TitledBorder;
 
 /**
@@ -26,7 +28,7 @@ import charvax.swing.border.TitledBorder;
 class ProgressBarTest extends JDialog implements ActionListener {
 
     private JProgressBar    _progressBar = new JProgressBar();
-    private Thread          _taskThread;
+    private ProgressTask    _task;
 
     ProgressBarTest(JFrame owner_) {
         super(owner_, "JProgressBar Test");
@@ -60,22 +62,23 @@ class ProgressBarTest extends JDialog implements ActionListener {
     public void actionPerformed(ActionEvent e_) {
         String cmd = e_.getActionCommand();
         if (cmd.equals("Start Task")) {
-            if (_taskThread != null && _taskThread.isAlive()) {
+            if (_task != null && !_task.isDone()) {
                 JOptionPane.showMessageDialog(this, "The task is already running",
                         "Error", JOptionPane.ERROR_MESSAGE);
             } else {
-                _taskThread = new TaskThread();
-                _taskThread.start();
+                _progressBar.setIndeterminate(true);
+                _task = new ProgressTask();
+                _task.execute();
             }
         } else if (cmd.equals("OK")) {
-            if (_taskThread != null && _taskThread.isAlive()) {
+            if (_task != null && !_task.isDone()) {
                 JOptionPane.showMessageDialog(this, "The task is still running",
                         "Error", JOptionPane.ERROR_MESSAGE);
             } else
                 hide();
         } else if (cmd.equals("Cancel")) {
-            if (_taskThread != null && _taskThread.isAlive()) {
-                _taskThread.interrupt();
+            if (_task != null) {
+                _task.cancel(true);
             }
             hide();
         }
@@ -158,66 +161,57 @@ class ProgressBarTest extends JDialog implements ActionListener {
 
     /**
      * A nonstatic inner class that pretends to perform a time-consuming task.
+     * It runs in a background thread; the progress it sets is handed over
+     * to the event-dispatching thread by the SwingWorker, which notifies the
+     * "progress" property listeners there, so that they can update the 
+     * progress bar. Since the events are coalesced, the event queue is not 
+     * flooded even if the progress changes faster than the screen can be 
+     * updated.
      */
-    private class TaskThread extends Thread {
+    private class ProgressTask extends SwingWorker 
+            implements PropertyChangeListener {
 
-        /**
-         * Constructor
-         */
-        private TaskThread() {
+        private ProgressTask() {
+            addPropertyChangeListener(this);
         }
 
         /**
          * Pretend to do a task that takes a long time.
-         * Twice per second, wake up and update the progress bar. Note that
-         * since this thread is not the event-dispatching thread, we cannot
-         * manipulate the screen components directly; instead, we must
-         * call the static method "invokeLater()" of the SwingUtilities class,
-         * which will cause the event-dispatching thread to update the progress
-         * bar.
-         * See "Core Java, Volume II" by Horstmann and Cornell, chapter 1;
-         * Also see
-         * http://java.sun.com/docs/books/tutorial/uiswing/overview/threads.html
+         * Twenty times per second, wake up and set the progress.
          */
-        public void run() {
-            try {
-                // Initially, set the progressbar to indeterminate mode
-                // for 5 seconds (i.e. pretend we don't initially know
-                // the duration of the task).
-                _progressBar.setIndeterminate(true);
-                Thread.sleep(2000L);
-                _progressBar.setIndeterminate(false);
-
-                for (int percent = 0; percent <= 100; percent += 1) {
-                    Thread.sleep(50);
-                    SwingUtilities.invokeLater(
-                            new ProgressBarUpdater(percent));
-                }
-            } catch (InterruptedException e) {
-                //System.out.println("TaskThread was interrupted");
+        protected Object doInBackground() throws InterruptedException {
+            // Initially, the progressbar is in indeterminate mode
+            // for 2 seconds (i.e. pretend we don't initially know
+            // the duration of the task).
+            Thread.sleep(2000L);
+
+            for (int percent = 0; percent <= 100; percent += 1) {
+                Thread.sleep(50);
+                setProgress(percent);
             }
-        }
-    }
 
-    /**
-     * This is a nonstatic inner class that implements the Runnable interface;
-     * instances of this can be passed to the SwingUtilities.invokeLater() method.
-     * A shortcut method of invoking code in the event-dispatch thread,
-     * involving the use of anonymous inner classes, is shown in "Core Java
-     * Volume II" by Horstmann and Cornell, chapter 1, in the "Threads and
-     * Swing" subsection.
-     */
-    private class ProgressBarUpdater implements Runnable {
-        private int _percent;
+            return null;
+        }
 
-        private ProgressBarUpdater(int percent_) {
-            _percent = percent_;
+        /**
+         * Called in the event-dispatching thread, when the progress
+         * has changed.
+         */
+        public void propertyChange(PropertyChangeEvent e_) {
+            if ("progress".equals(e_.getPropertyName())) {
+                int percent = ((Integer) e_.getNewValue()).intValue();
+                _progressBar.setIndeterminate(false);
+                _progressBar.setString(Integer.toString(percent) + "%");
+                _progressBar.setValue(percent);
+            }
         }
 
-        public void run() {
-            String str = Integer.toString(_percent) + "%";
-            _progressBar.setString(str);
-            _progressBar.setValue(_percent);
+        /**
+         * Called in the event-dispatching thread, when the task is 
+         * finished or cancelled.
+         */
+        protected void done() {
+            _progressBar.setIndeterminate(false);
         }
     }
 }
@@ -242,11 +242,30 @@ public abstract class Component {
         int oldX = origin.x;
         int oldY = origin.y;
         
-        origin.x = x;
-        origin.y = y;
-        
-        if (oldX != x || oldY != y)
-            repaint();
+        if (oldX != x || oldY != y) {
+            origin.x = x;
+            origin.y = y;
+
+            // the area uncovered by the component has to be repainted 
+            // by the parent; the component is only visible within
+            // the parent, which matters for a scrolled view larger 
+            // than its viewport
+            Container parent = getParent();
+            if (parent != null) {
+                Rectangle damage = new Rectangle(oldX, oldY, 
+                        getWidth(), getHeight());
+                damage.add(new Rectangle(x, y, getWidth(), getHeight()));
+                damage = damage.intersection(new Rectangle(0, 0, 
+                        parent.getWidth(), parent.getHeight()));
+                
+                if (!damage.isEmpty()) {
+                    parent.repaint(damage.x, damage.y, 
+                            damage.width, damage.height);
+                }
+            } else {
+                repaint();
+            }
+        }
     }
 
     /**
@@ -975,15 +994,57 @@ public abstract class Component {
 
     /**
      * Causes this component to be repainted as soon as possible
-     * (this is done by posting a RepaintEvent onto the system queue).
+     * (this is done by posting a PaintEvent onto the system queue).
+     * <p>
+     * The event is posted on behalf of the ancestor window, with the
+     * component's bounds translated to the window's coordinates, so that
+     * the queue can merge all the pending requests for the window into
+     * one damaged region.
      */
     public void repaint() {
+        repaint(0, 0, getWidth(), getHeight());
+    }
+
+    /**
+     * Causes the specified rectangle of this component to be repainted
+     * as soon as possible.
+     * 
+     * @param x       the <i>x</i> coordinate, relative to this component
+     * @param y       the <i>y</i> coordinate, relative to this component
+     * @param width   the width
+     * @param height  the height
+     * @see #repaint()
+     */
+    public void repaint(int x, int y, int width, int height) {
         if (!isDisplayable())
             return;
 
-        PaintEvent evt = new PaintEvent(this, getBounds());
-        EventQueue queue = Toolkit.getDefaultToolkit().getSystemEventQueue();
-        queue.postEvent(evt);
+        Window ancestor = getAncestorWindow();
+        if (ancestor == null)
+            return;
+        
+        Rectangle bounds = new Rectangle(x, y, width, height);
+        for (Component c = this; c != ancestor; c = c.getParent()) {
+            bounds.x += c.getX();
+            bounds.y += c.getY();
+        }
+        
+        // the window's own queue, the caller may belong to another
+        // session or to none
+        PaintEvent evt = new PaintEvent(ancestor, bounds);
+        ancestor.getToolkit().getSystemEventQueue().postEvent(evt);
+    }
+
+    /**
+     * Returns the toolkit of the window containing this component, or the
+     * default toolkit if the component is not in a window. Code running
+     * outside the event-dispatching thread should use it to reach the
+     * component's session.
+     */
+    public Toolkit getToolkit() {
+        Window ancestor = getAncestorWindow();
+        return (ancestor != null 
+                ? ancestor.getToolkit() : Toolkit.getDefaultToolkit());
     }
 
     /**
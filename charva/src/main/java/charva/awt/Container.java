@@ -540,11 +540,50 @@ public abstract class Container extends Component {
                 continue;
             }
             
-            comp.paint(g.create(comp.getX(), comp.getY(), 
-                    comp.getWidth(), comp.getHeight()));
+            paintChild(g, comp);
         }
     }
 
+    /**
+     * Paints the given child component, unless it lies completely outside
+     * of the clipping area of the graphics context. The child is painted
+     * with its own graphics context, translated and clipped to its bounds.
+     * 
+     * @param g     the graphics context of this container
+     * @param comp  the child component
+     * @return <code>true</code> if the component was painted, 
+     *          <code>false</code> if it was culled
+     */
+    protected boolean paintChild(Graphics g, Component comp) {
+        final int x = comp.getX();
+        final int y = comp.getY();
+        final int width  = comp.getWidth();
+        final int height = comp.getHeight();
+        
+        // counted by the toolkit of the window, since the sessions
+        // paint concurrently
+        final Toolkit toolkit = g.toolkit;
+        if (!g.hitClip(x, y, width, height)) {
+            if (toolkit != null) {
+                toolkit.componentCulled();
+            }
+            return false;
+        }
+        
+        if (toolkit != null) {
+            toolkit.componentPainted();
+        }
+        
+        Graphics cg = g.create(x, y, width, height);
+        try {
+            comp.paint(cg);
+        } finally {
+            cg.dispose();
+        }
+        
+        return true;
+    }
+
     protected void processKeyEvent(KeyEvent ke) {
         // Invoke all the KeyListener callbacks that may have been registered
         // for this Container
@@ -0,0 +1,277 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charva.awt;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import charva.awt.event.AWTEvent;
+
+
+/**
+ * Collects the event-dispatching measurements into histograms: the queue
+ * time and dispatch time of each event type (by event ID), the paint time
+ * of each window, and the screen refresh time. It also counts the events 
+ * dispatched per second. 
+ * <pre>
+ *     DispatchMetrics metrics = new DispatchMetrics();
+ *     EventQueue.setMetricsListener(metrics);
+ *     ...
+ *     System.err.println(metrics.getReport());
+ * </pre>
+ * The histograms returned are copies, they can be read while the 
+ * measuring goes on. The windows are held weakly.
+ */
+public class DispatchMetrics implements DispatchMetricsListener {
+
+    /** The percentiles listed by the report */
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
+    private static final String[] PERCENTILE_LABELS = 
+        { " p50=", " p90=", " p99=", " p99.9=" };
+
+    /** Maps the event IDs to their EventStats, ordered by the IDs */
+    private final TreeMap       eventStats = new TreeMap();
+
+    /** Maps the windows to their paint time histograms */
+    private final WeakHashMap   paintTimes = new WeakHashMap();
+
+    private final Histogram     syncTimes = new Histogram();
+
+    private long                eventCount;
+
+    /** The time the measuring started, in milliseconds */
+    private long                startTime;
+
+    /** The second (since the epoch), whose events are being counted */
+    private long                currentSecond;
+
+    private int                 currentSecondCount;
+
+    private int                 peakEventsPerSecond;
+
+
+    public DispatchMetrics() {
+        reset();
+    }
+
+    public synchronized void eventDispatched(AWTEvent evt, long queueTime,
+            long dispatchTime) {
+
+        final Integer id = new Integer(evt.getID());
+        EventStats stats = (EventStats) eventStats.get(id);
+        if (stats == null) {
+            stats = new EventStats(getShortName(evt.getClass()) 
+                    + "[" + evt.getID() + "]");
+            eventStats.put(id, stats);
+        }
+
+        if (queueTime >= 0) {
+            stats.queueTimes.recordValue(queueTime);
+        }
+
+        stats.dispatchTimes.recordValue(dispatchTime);
+
+        eventCount++;
+        final long second = System.currentTimeMillis() / 1000;
+        if (second != currentSecond) {
+            currentSecond = second;
+            currentSecondCount = 0;
+        }
+
+        if (++currentSecondCount > peakEventsPerSecond) {
+            peakEventsPerSecond = currentSecondCount;
+        }
+    }
+
+    public synchronized void windowPainted(Window window, long paintTime) {
+        Histogram histogram = (Histogram) paintTimes.get(window);
+        if (histogram == null) {
+            histogram = new Histogram();
+            paintTimes.put(window, histogram);
+        }
+
+        histogram.recordValue(paintTime);
+    }
+
+    public synchronized void screenSynced(Window window, long syncTime) {
+        syncTimes.recordValue(syncTime);
+    }
+
+    /**
+     * Discards the measurements and starts measuring again.
+     */
+    public synchronized void reset() {
+        eventStats.clear();
+        paintTimes.clear();
+        syncTimes.reset();
+        eventCount = 0;
+        startTime = System.currentTimeMillis();
+        currentSecond = startTime / 1000;
+        currentSecondCount = 0;
+        peakEventsPerSecond = 0;
+    }
+
+    /**
+     * Returns the number of the events dispatched.
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Returns the average number of the events dispatched per second,
+     * since the measuring started.
+     */
+    public synchronized double getEventsPerSecond() {
+        final long elapsed = System.currentTimeMillis() - startTime;
+        return (elapsed <= 0 ? 0.0 : eventCount * 1000.0 / elapsed);
+    }
+
+    /**
+     * Returns the highest number of the events dispatched within one 
+     * second (of the system clock).
+     */
+    public synchronized int getPeakEventsPerSecond() {
+        return peakEventsPerSecond;
+    }
+
+    /**
+     * Returns the IDs of the events dispatched, in ascending order.
+     */
+    public synchronized int[] getEventIds() {
+        final int[] ids = new int[eventStats.size()];
+        Iterator iter = eventStats.keySet().iterator();
+        for (int i = 0; iter.hasNext(); i++) {
+            ids[i] = ((Integer) iter.next()).intValue();
+        }
+
+        return ids;
+    }
+
+    /**
+     * Returns the times the events with the ID waited in the queue, 
+     * or <code>null</code> if no such event was dispatched.
+     */
+    public synchronized Histogram getQueueTimes(int eventId) {
+        EventStats stats = (EventStats) eventStats.get(new Integer(eventId));
+        return (stats == null ? null : new Histogram(stats.queueTimes));
+    }
+
+    /**
+     * Returns the dispatch times of the events with the ID, 
+     * or <code>null</code> if no such event was dispatched.
+     */
+    public synchronized Histogram getDispatchTimes(int eventId) {
+        EventStats stats = (EventStats) eventStats.get(new Integer(eventId));
+        return (stats == null ? null : new Histogram(stats.dispatchTimes));
+    }
+
+    /**
+     * Returns the paint times of the window, 
+     * or <code>null</code> if it was not painted.
+     */
+    public synchronized Histogram getPaintTimes(Window window) {
+        Histogram histogram = (Histogram) paintTimes.get(window);
+        return (histogram == null ? null : new Histogram(histogram));
+    }
+
+    /**
+     * Returns the screen refresh times.
+     */
+    public synchronized Histogram getSyncTimes() {
+        return new Histogram(syncTimes);
+    }
+
+    /**
+     * Returns a table of the measurements, with the times in microseconds.
+     */
+    public synchronized String getReport() {
+        final StringBuffer buf = new StringBuffer();
+        buf.append("events: ").append(eventCount)
+            .append(", ").append(Math.round(getEventsPerSecond()))
+            .append("/s, peak ").append(peakEventsPerSecond).append("/s\n");
+
+        Iterator iter = eventStats.values().iterator();
+        while (iter.hasNext()) {
+            EventStats stats = (EventStats) iter.next();
+            appendLine(buf, stats.name + " queue", stats.queueTimes);
+            appendLine(buf, stats.name + " dispatch", stats.dispatchTimes);
+        }
+
+        iter = paintTimes.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            appendLine(buf, "paint " + getName((Window) entry.getKey()), 
+                    (Histogram) entry.getValue());
+        }
+
+        appendLine(buf, "sync", syncTimes);
+        return buf.toString();
+    }
+
+    private static void appendLine(StringBuffer buf, String label, 
+            Histogram histogram) {
+
+        buf.append(label).append(": count=")
+            .append(histogram.getTotalCount());
+
+        if (histogram.getTotalCount() > 0) {
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                buf.append(PERCENTILE_LABELS[i]).append(toMicros(
+                        histogram.getValueAtPercentile(PERCENTILES[i])));
+            }
+
+            buf.append(" max=").append(toMicros(histogram.getMax()))
+                .append(" us");
+        }
+
+        buf.append('\n');
+    }
+
+    private static long toMicros(long nanos) {
+        return (nanos + 500) / 1000;
+    }
+
+    private static String getName(Window window) {
+        final String name = window.getName();
+        return (name != null ? name : getShortName(window.getClass()));
+    }
+
+    private static String getShortName(Class cls) {
+        final String name = cls.getName();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+
+    /**
+     * The measurements of an event type
+     */
+    private static final class EventStats {
+
+        final String        name;
+        final Histogram     queueTimes = new Histogram();
+        final Histogram     dispatchTimes = new Histogram();
+
+        EventStats(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charva.awt;
+
+import java.util.EventListener;
+import charva.awt.event.AWTEvent;
+
+
+/**
+ * The listener interface for measuring the event dispatching. It is
+ * installed with {@link EventQueue#setMetricsListener}, and is called by
+ * the event-dispatching threads of all the toolkits (with session
+ * toolkits, by several threads at a time). The times are in nanoseconds.
+ * <p>
+ * The methods are called while the events are dispatched, they should 
+ * only record the values.
+ *
+ * @see DispatchMetrics
+ */
+public interface DispatchMetricsListener extends EventListener {
+
+    /**
+     * Called after an event has been dispatched.
+     *
+     * @param evt           the event
+     * @param queueTime     the time the event waited in the queue, or -1 
+     *                      if it was dispatched without being queued (or 
+     *                      it was posted before the listener was installed)
+     * @param dispatchTime  the time the event was dispatched for, including
+     *                      the painting and refreshing it did
+     */
+    public void eventDispatched(AWTEvent evt, long queueTime, 
+            long dispatchTime);
+
+    /**
+     * Called after the damaged area of a window has been painted.
+     *
+     * @param window     the window
+     * @param paintTime  the time the window was painted for
+     */
+    public void windowPainted(Window window, long paintTime);
+
+    /**
+     * Called after the terminal screen has been refreshed.
+     *
+     * @param window    the window, whose toolkit refreshed the screen
+     * @param syncTime  the time the screen was refreshed for
+     */
+    public void screenSynced(Window window, long syncTime);
+}
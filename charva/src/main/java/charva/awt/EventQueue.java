@@ -20,12 +20,11 @@
 package charva.awt;
 
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
 import charva.awt.event.AWTEvent;
 import charva.awt.event.FocusEvent;
 import charva.awt.event.InvocationEvent;
+import charva.awt.event.PaintEvent;
+import charva.awt.event.PeerEvent;
 
 
 /**
@@ -34,97 +33,369 @@ import charva.awt.event.InvocationEvent;
  * by any thread (e.g the keyboard reading thread enqueues KeyEvents),
  * but only the event-dispatching thread should call getNextEvent(),
  * because only the event-dispatching thread should do any drawing.
+ * <p>
+ * Events are stored in a ring buffer, which is guarded by a private lock.
+ * The lock is held only while the buffer indices are updated, queue
+ * listeners are notified outside of it. The dispatching thread is woken up
+ * only if it is actually waiting for events.
+ * <p>
+ * By default the queue is unbounded. If a capacity is set (either with the
+ * <code>charva.eventqueue.capacity</code> system property or with the
+ * {@link #setCapacity(int)} method), producer threads which post events
+ * onto the full queue are blocked until the dispatching thread catches up.
+ * The dispatching thread itself is never blocked, since that would
+ * deadlock it, and neither are the threads shared by the sessions, such
+ * as the timer threads.
+ * <p>
+ * Paint events are coalesced: all the pending paint requests for a window
+ * are merged into one damaged region, which is repainted by a single
+ * queued PaintEvent. Pending screen-refresh (<code>ACT_SYNC</code>) peer
+ * actions are coalesced in the same way.
+ * <p>
+ * The system event queue is shared by the default toolkit and the threads
+ * that don't belong to a session. Each session toolkit has its own queue.
+ * <p>
+ * The event dispatching can be measured by a 
+ * {@link DispatchMetricsListener}. While none is installed, the events
+ * are not timed at all.
+ *
+ * @see Toolkit#isSession()
  */
 public class EventQueue {
 
 //    private static final Log LOG = LogFactory.getLog(EventQueue.class);
 
-    private static EventQueue   instance;
+    private static final int    INITIAL_CAPACITY = 64;
+
+    private static final EventQueueListener[] NO_LISTENERS = 
+        new EventQueueListener[0];
+    
+    private static final EventQueue instance = new EventQueue();
+
+    private static volatile DispatchMetricsListener metricsListener;
+    
+    private final Object        lock = new Object();
+    
+    /** The ring buffer, its length is always power of 2 */
+    private AWTEvent[]          buffer = new AWTEvent[INITIAL_CAPACITY];
+    
+    /** Index of the first event in the buffer */
+    private int                 head;
     
-    private final LinkedList    queue = new LinkedList();
+    /** Number of events in the buffer */
+    private volatile int        size;
     
-    private final List          queueListeners = new ArrayList();
+    /** Maximum number of events in the queue, zero means unbounded */
+    private int                 capacity;
+    
+    private boolean             consumerWaiting;
+    private int                 producersWaiting;
+    
+    /** Set if the ACT_SYNC peer event is already in the queue */
+    private boolean             syncPending;
+    
+    private volatile Thread     dispatchThread;
+    
+    private volatile EventQueueListener[] queueListeners = NO_LISTENERS;
+
+    /**
+     * The times the events in the buffer were posted at (in nanoseconds, 
+     * zero if they were not timed), at the same indices as the events. 
+     * Created when the first timed event is posted.
+     */
+    private long[]              postTimes;
+
+    /** The last event removed from the queue, if it was timed */
+    private AWTEvent            lastEvent;
+
+    /** The time the last event waited in the queue */
+    private long                lastQueueTime;
     
     
     /**
-     * The constructor cannot be called from outside the class, making
-     * this an example of the Singleton pattern.
+     * Constructs the event queue of a session toolkit.
+     *
+     * @see Toolkit#Toolkit(EventQueue)
      */
-    private EventQueue() {
+    public EventQueue() {
+        capacity = Math.max(0, 
+                Integer.getInteger("charva.eventqueue.capacity", 0)
+                    .intValue());
     }
 
     /**
      * Registers an EventQueueListener object for this queue.
      */
     public void addEventQueueListener(EventQueueListener listener) {
-        queueListeners.add(listener);
+        synchronized (lock) {
+            EventQueueListener[] listeners = queueListeners;
+            EventQueueListener[] newListeners = 
+                new EventQueueListener[listeners.length + 1];
+            
+            System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+            newListeners[listeners.length] = listener;
+            queueListeners = newListeners;
+        }
     }
 
     /**
      * Unregisters an EventQueueListener object from this queue.
      */
     public void removeEventQueueListener(EventQueueListener listener) {
-        queueListeners.remove(listener);
+        synchronized (lock) {
+            EventQueueListener[] listeners = queueListeners;
+            for (int i = 0; i < listeners.length; i++) {
+                if (listeners[i].equals(listener)) {
+                    EventQueueListener[] newListeners = (listeners.length == 1 
+                            ? NO_LISTENERS 
+                            : new EventQueueListener[listeners.length - 1]);
+                    
+                    System.arraycopy(listeners, 0, newListeners, 0, i);
+                    System.arraycopy(listeners, i + 1, newListeners, i, 
+                            listeners.length - i - 1);
+                    
+                    queueListeners = newListeners;
+                    break;
+                }
+            }
+        }
     }
     
     private void fireEventPosted() {
-        for (int i = queueListeners.size() - 1; i >= 0; i--) {
-            ((EventQueueListener)queueListeners.get(i)).eventPosted();
+        EventQueueListener[] listeners = queueListeners;
+        for (int i = listeners.length - 1; i >= 0; i--) {
+            listeners[i].eventPosted();
+        }
+    }
+
+    /**
+     * Returns the event queue of the current thread's session, if it has 
+     * one, or the system event queue otherwise.
+     */
+    public static EventQueue getInstance() {
+        final Toolkit session = Toolkit.getSessionToolkit();
+        return (session != null ? session.getSystemEventQueue() : instance);
+    }
+
+    /**
+     * Returns the system event queue, regardless of the current thread.
+     */
+    static EventQueue getSystemQueue() {
+        return instance;
+    }
+
+    /**
+     * Installs the listener, which measures the event dispatching of all
+     * the toolkits, or uninstalls it, if the listener is 
+     * <code>null</code>.
+     */
+    public static void setMetricsListener(DispatchMetricsListener listener) {
+        metricsListener = listener;
+    }
+
+    public static DispatchMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Returns the time the event waited in the queue, if it is the last 
+     * event removed from the queue and it was timed, or -1 otherwise.
+     */
+    long getQueueTime(AWTEvent evt) {
+        synchronized (lock) {
+            return (evt == lastEvent ? lastQueueTime : -1);
         }
     }
 
-    public synchronized static EventQueue getInstance() {
-        if (instance == null) {
-            instance = new EventQueue();
+    /**
+     * Returns the maximum number of events in this queue, 
+     * zero means unbounded queue.
+     */
+    public int getCapacity() {
+        synchronized (lock) {
+            return capacity;
+        }
+    }
+    
+    /**
+     * Sets the maximum number of events in this queue. If the queue is full,
+     * threads which post events onto it are blocked until the
+     * event-dispatching thread removes some events.
+     * 
+     * @param capacity  the maximum number of events, 
+     *                  or zero for unbounded queue
+     */
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity: " + capacity);
         }
         
-        return instance;
+        synchronized (lock) {
+            this.capacity = capacity;
+            
+            if (producersWaiting > 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    public void postEvent(AWTEvent evt) {
+        postEvent(evt, true);
+    }
+
+    /**
+     * Posts the event without waiting for free space, even if the queue
+     * is full. This is used by the threads shared by all the sessions,
+     * which must not be blocked by any one of them; they limit the number
+     * of their pending events themselves.
+     */
+    void postEventNoWait(AWTEvent evt) {
+        postEvent(evt, false);
     }
 
-    public synchronized void postEvent(AWTEvent evt) {
+    private void postEvent(AWTEvent evt, boolean mayWait) {
         if (evt.getID() == FocusEvent.FOCUS_GAINED) {
             Toolkit.getDefaultToolkit().setLastFocusEvent((FocusEvent) evt);
         }
         
-        addLast(evt);
+        final long postTime = 
+            (metricsListener != null ? Platform.nanoTime() : 0L);
+
+        synchronized (lock) {
+            if (mayWait && capacity > 0 && size >= capacity 
+                    && Thread.currentThread() != dispatchThread) {
+                
+                waitForSpace();
+            }
+            
+            evt = coalesceEvent(evt);
+            if (evt == null) {
+                return;     // merged with the pending one
+            }
+            
+            addLast(evt, postTime);
+            
+            // wake up the dequeueing thread
+            if (consumerWaiting) {
+                lock.notifyAll();
+            }
+        }
         
         fireEventPosted();
+    }
+
+    /**
+     * Merges the given event with the equivalent event, which is already 
+     * in the queue. Should be called while holding the lock.
+     * 
+     * @return  the event to be enqueued, or <code>null</code> if it was
+     *          merged with the pending one
+     */
+    private AWTEvent coalesceEvent(AWTEvent evt) {
+        switch (evt.getID()) {
+        case PaintEvent.PAINT:
+            Object source = evt.getSource();
+            if (!(source instanceof Window)) {
+                break;
+            }
+            
+            // the update rectangle is in the window's coordinates
+            Window window = (Window) source;
+            if (window.paintDamage != null) {
+                window.paintDamage.add(((PaintEvent) evt).getUpdateRect());
+                return null;
+            }
+            
+            // the queued event shares the damage rectangle with the window,
+            // so that subsequent requests are merged into it
+            window.paintDamage = ((PaintEvent) evt).getUpdateRect();
+            return new PaintEvent(window, window.paintDamage);
+            
+        case PeerEvent.PEER_EVENT:
+            if (((PeerEvent) evt).getActionId() == PeerEvent.ACT_SYNC) {
+                if (syncPending) {
+                    return null;
+                }
+                
+                syncPending = true;
+            }
+            break;
+        }
         
-        // wake up the dequeueing thread
-        //notifyAll();
+        return evt;
+    }
+
+    /**
+     * Blocks the producer thread until there is a free space in the queue.
+     * Should be called while holding the lock.
+     */
+    private void waitForSpace() {
+        producersWaiting++;
+        try {
+            while (capacity > 0 && size >= capacity) {
+                lock.wait();
+            }
+        } catch (InterruptedException e) {
+            // never drop events, just restore interrupted status
+            Thread.currentThread().interrupt();
+        } finally {
+            producersWaiting--;
+        }
     }
 
     /**
      * Block until an event is available, then return the event.
      *
      * @return the next available AWTEvent
+     * @throws InterruptedException if the current thread was interrupted
+     *          while waiting
      */
-//    public synchronized AWTEvent waitForNextEvent() {
-//
-//        /* If the queue is empty, block until another thread enqueues
-//         * an event.
-//         */
-//        while (queuesAreEmpty()) {
-//            try {
-//                wait();
-//            } catch (InterruptedException e) {
-//                LOG.error("should never be interrupted!", e); // should never happen
-//            }
-//        }
-//        return (AWTEvent) removeFirst();
-//    }
+    public AWTEvent waitForNextEvent() throws InterruptedException {
+        synchronized (lock) {
+            dispatchThread = Thread.currentThread();
+            
+            // If the queue is empty, block until another thread enqueues
+            // an event.
+            while (size == 0) {
+                consumerWaiting = true;
+                try {
+                    lock.wait();
+                } finally {
+                    consumerWaiting = false;
+                }
+            }
+            
+            return removeFirst();
+        }
+    }
 
     /**
      * This method is only called if we know that an event is available
      *
      * @return the first AWTEvent on the queue
      */
-    synchronized AWTEvent getNextEvent() {
-        return (AWTEvent) removeFirst();
+    AWTEvent getNextEvent() {
+        synchronized (lock) {
+            dispatchThread = Thread.currentThread();
+            
+            return removeFirst();
+        }
     }
 
-    synchronized void clear() {
-        queue.clear();
+    void clear() {
+        synchronized (lock) {
+            while (size > 0) {
+                removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the current thread is the event-dispatching
+     * thread
+     */
+    public static boolean isDispatchThread() {
+        return (Thread.currentThread() == getInstance().dispatchThread);
     }
 
     /**
@@ -139,10 +410,10 @@ public class EventQueue {
     public static void invokeAndWait(Runnable runnable)
             throws InterruptedException, InvocationTargetException {
 
-//        if (EventQueue.isDispatchThread()) {
-//            throw new Error(
-//                    "Cannot call invokeAndWait from the event dispatcher thread");
-//        }
+        if (EventQueue.isDispatchThread()) {
+            throw new Error(
+                    "Cannot call invokeAndWait from the event dispatcher thread");
+        }
 
         class AWTInvocationLock {
         }
@@ -154,7 +425,11 @@ public class EventQueue {
 
         synchronized (lock) {
             getInstance().postEvent(event);
-            lock.wait();
+
+            // guard against spurious wakeups
+            while (!event.isDispatched()) {
+                lock.wait();
+            }
         }
 
         Exception eventException = event.getException();
@@ -167,21 +442,94 @@ public class EventQueue {
      * Returns <tt>true</tt> if this event queue is empty 
      * and <tt>false</tt> otherwise
      */
-    public synchronized boolean isEmpty() {
-        return (queue.size() == 0);
+    public boolean isEmpty() {
+        return (size == 0);
     }
 
     /**
-     * Enqueue the event onto one of two queues, depending on its type
+     * Enqueue the event onto the ring buffer, growing it if needed.
+     * Should be called while holding the lock.
+     *
+     * @param postTime  the time the event was posted at, 
+     *                  or zero if it is not timed
      */
-    private void addLast(AWTEvent evt) {
-        queue.addLast(evt);
+    private void addLast(AWTEvent evt, long postTime) {
+        AWTEvent[] buffer = this.buffer;
+        if (size == buffer.length) {
+            AWTEvent[] newBuffer = new AWTEvent[buffer.length << 1];
+            int firstPart = buffer.length - head;
+            System.arraycopy(buffer, head, newBuffer, 0, firstPart);
+            System.arraycopy(buffer, 0, newBuffer, firstPart, head);
+            
+            if (postTimes != null) {
+                long[] newTimes = new long[newBuffer.length];
+                System.arraycopy(postTimes, head, newTimes, 0, firstPart);
+                System.arraycopy(postTimes, 0, newTimes, firstPart, head);
+                postTimes = newTimes;
+            }
+
+            this.buffer = buffer = newBuffer;
+            head = 0;
+        }
+        
+        final int index = (head + size) & (buffer.length - 1);
+        buffer[index] = evt;
+        size++;
+
+        if (postTime != 0L && postTimes == null) {
+            postTimes = new long[buffer.length];
+        }
+
+        if (postTimes != null) {
+            postTimes[index] = postTime;
+        }
     }
 
     /**
-     * This is called only if at least one of the queues is non-empty
+     * Dequeue the first event from the ring buffer.
+     * Should be called while holding the lock.
      */
-    private Object removeFirst() {
-        return (queue.size() > 0 ? queue.removeFirst() : null);
+    private AWTEvent removeFirst() {
+        if (size == 0) {
+            return null;
+        }
+        
+        AWTEvent evt = buffer[head];
+        buffer[head] = null;
+
+        if (postTimes != null) {
+            final long postTime = postTimes[head];
+            if (postTime != 0L) {
+                postTimes[head] = 0L;
+                lastEvent = evt;
+                lastQueueTime = Platform.nanoTime() - postTime;
+            } else {
+                lastEvent = null;
+            }
+        }
+
+        head = (head + 1) & (buffer.length - 1);
+        size--;
+        
+        // from now on, new requests can't be merged into this event
+        switch (evt.getID()) {
+        case PaintEvent.PAINT:
+            if (evt.getSource() instanceof Window) {
+                ((Window) evt.getSource()).paintDamage = null;
+            }
+            break;
+            
+        case PeerEvent.PEER_EVENT:
+            if (((PeerEvent) evt).getActionId() == PeerEvent.ACT_SYNC) {
+                syncPending = false;
+            }
+            break;
+        }
+        
+        if (producersWaiting > 0) {
+            lock.notifyAll();
+        }
+        
+        return evt;
     }
 }
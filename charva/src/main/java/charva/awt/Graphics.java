@@ -60,6 +60,14 @@ package charva.awt;
  */
 public abstract class Graphics {
 
+    /**
+     * The toolkit, which counts the components painted with this context
+     * and the contexts created from it, or <code>null</code>. Set once per
+     * window paint, so that <code>Container.paintChild()</code> doesn't
+     * look up the toolkit for each component.
+     */
+    Toolkit     toolkit;
+
     /**
      * Constructs a new <code>Graphics</code> object.  
      * This constructor is the default contructor for a graphics 
@@ -122,6 +130,7 @@ public abstract class Graphics {
         if (g == null) {
             return null;
         }
+        g.toolkit = toolkit;
         g.translate(x, y);
         g.clipRect(0, 0, width, height);
         return g;
@@ -0,0 +1,244 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charva.awt;
+
+
+/**
+ * A histogram of non-negative values, such as latencies in nanoseconds,
+ * with log-linear buckets: each power of two is divided into 
+ * {@link #SUB_BUCKETS} buckets of the same width, so that the values
+ * are counted with the precision of about 3%, while the histogram still
+ * has a fixed size. The values from 0 to <code>SUB_BUCKETS - 1</code> are
+ * counted exactly, the values above 2<sup>{@link #MAX_EXPONENT} + 1</sup>
+ * are counted in the last bucket. The minimum, maximum and mean values
+ * are exact.
+ * <p>
+ * The histogram is not synchronized.
+ */
+public class Histogram {
+
+    /** The number of the buckets each power of two is divided into */
+    public static final int     SUB_BUCKETS = 32;
+
+    /** The log2 of SUB_BUCKETS */
+    private static final int    SUB_BUCKET_BITS = 5;
+
+    /** The exponent of the highest power of two, which is divided into
+     *  buckets; about 68 seconds, if the values are in nanoseconds */
+    public static final int     MAX_EXPONENT = 36;
+
+    private final long[]        counts = new long[
+        SUB_BUCKETS * (MAX_EXPONENT - SUB_BUCKET_BITS + 2)];
+
+    private long                totalCount;
+
+    private long                sum;
+
+    private long                min = Long.MAX_VALUE;
+
+    private long                max;
+
+
+    public Histogram() {
+    }
+
+    /**
+     * Constructs a copy of the histogram.
+     */
+    public Histogram(Histogram histogram) {
+        add(histogram);
+    }
+
+    /**
+     * Counts the value. A negative value is counted as zero.
+     */
+    public void recordValue(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts[getIndex(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds the counts of the other histogram to this one.
+     */
+    public void add(Histogram histogram) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += histogram.counts[i];
+        }
+
+        totalCount += histogram.totalCount;
+        sum += histogram.sum;
+        min = Math.min(min, histogram.min);
+        max = Math.max(max, histogram.max);
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the lowest value counted, or zero if the histogram is empty.
+     */
+    public long getMin() {
+        return (totalCount == 0 ? 0 : min);
+    }
+
+    /**
+     * Returns the highest value counted, or zero if the histogram is empty.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of the values, or zero if the histogram is empty.
+     */
+    public double getMean() {
+        return (totalCount == 0 ? 0.0 : (double) sum / totalCount);
+    }
+
+    /**
+     * Returns the value, which the given percentage of the values is lower
+     * than or equal to; precisely, the highest value of the bucket that 
+     * contains it.
+     *
+     * @param percentile  the percentage, from 0 to 100
+     * @return  the value, or zero if the histogram is empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException(
+                    "percentile must be from 0 to 100: " + percentile);
+        }
+
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+        if (rank < 1) {
+            rank = 1;
+        }
+
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+            if (count >= rank) {
+                // the values above the range are all in the last bucket
+                return (i == counts.length - 1 ? max 
+                        : Math.max(Math.min(getHighestValue(i), max), min));
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Returns the index of the bucket, in which the value is counted.
+     */
+    private static int getIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = log2(value);
+        if (exponent > MAX_EXPONENT) {
+            exponent = MAX_EXPONENT;
+            value = (1L << (MAX_EXPONENT + 1)) - 1;
+        }
+
+        // the value's highest SUB_BUCKET_BITS + 1 bits select the bucket
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * (shift + 1) 
+                + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns the highest value counted in the bucket.
+     */
+    private static long getHighestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        final int shift = index / SUB_BUCKETS - 1;
+        final long lowest = 
+            ((long) (SUB_BUCKETS + index % SUB_BUCKETS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Returns the position of the highest one bit of the positive value.
+     */
+    private static int log2(long value) {
+        int log = 0;
+        if ((value >>> 32) != 0) {
+            value >>>= 32;
+            log += 32;
+        }
+
+        if ((value >>> 16) != 0) {
+            value >>>= 16;
+            log += 16;
+        }
+
+        if ((value >>> 8) != 0) {
+            value >>>= 8;
+            log += 8;
+        }
+
+        if ((value >>> 4) != 0) {
+            value >>>= 4;
+            log += 4;
+        }
+
+        if ((value >>> 2) != 0) {
+            value >>>= 2;
+            log += 2;
+        }
+
+        if ((value >>> 1) != 0) {
+            log += 1;
+        }
+
+        return log;
+    }
+}
@@ -0,0 +1,107 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charva.awt;
+
+
+/**
+ * Creates the background threads of the library: the terminal input 
+ * readers, the workers of the searches and sorts, and the animations.
+ * It also provides the clock used to measure the event dispatching.
+ * <p>
+ * This is the legacy implementation, which creates platform threads.
+ * The library is packaged as a multi-release jar; on Java 21 and newer
+ * the implementation in <code>META-INF/versions/21</code> is used instead,
+ * which creates virtual threads, unless the 
+ * <code>charva.virtualthreads</code> system property is 
+ * <code>false</code>. Thousands of sessions or animated components then
+ * don't need thousands of operating system threads.
+ * <p>
+ * The threads are daemon threads. A thread, which must keep the JVM 
+ * running (such as the toolkit's event-dispatching thread), should be
+ * created directly.
+ */
+public final class Platform {
+
+    /** The monotonic clock, if the runtime has it, or the system time */
+    private static final Clock clock = createClock();
+
+    private Platform() {
+    }
+
+    /**
+     * Returns a clock, which calls System.nanoTime() directly. The class
+     * of that clock is only loaded if the runtime has the method, that is
+     * on Java 5 and newer.
+     */
+    private static Clock createClock() {
+        try {
+            System.class.getMethod("nanoTime", new Class[0]);
+            return new NanoClock();
+        } catch (Exception e) {
+            return new Clock();
+        }
+    }
+
+    /**
+     * Creates an unstarted daemon thread.
+     *
+     * @param task  the task run by the thread
+     * @param name  the name of the thread
+     */
+    public static Thread newThread(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Returns <code>true</code> if {@link #newThread(Runnable, String)}
+     * creates virtual threads.
+     */
+    public static boolean isVirtualThreads() {
+        return false;
+    }
+
+    /**
+     * Returns the current value of a monotonic clock in nanoseconds, 
+     * which is only meaningful as a difference of two values. Where the 
+     * runtime has no such clock, the system time is used, with the 
+     * resolution of a millisecond.
+     */
+    public static long nanoTime() {
+        return clock.nanoTime();
+    }
+
+
+    /** The clock of a runtime without System.nanoTime() */
+    private static class Clock {
+
+        long nanoTime() {
+            return System.currentTimeMillis() * 1000000L;
+        }
+    }
+
+    /** The monotonic clock of Java 5 and newer */
+    private static final class NanoClock extends Clock {
+
+        long nanoTime() {
+            return System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charva.awt;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import charva.awt.event.AWTEvent;
+
+
+/**
+ * Dispatches the events of a number of session toolkits on a small pool
+ * of threads, rather than on a thread per session.
+ * <p>
+ * A session is queued for dispatching when an event is posted onto its
+ * queue. A worker thread takes the session, dispatches up to
+ * {@link #BATCH_SIZE} of its events and queues it again, if more events
+ * are pending, so that a busy session can't starve the others. A session
+ * is dispatched by at most one worker at a time, so the events of each
+ * session are still processed one after another, in order; while a worker
+ * dispatches them, the session is the current thread's toolkit.
+ * <p>
+ * The event handlers of all the sessions share the workers, they should
+ * not block.
+ *
+ * @see Toolkit#Toolkit(EventQueue)
+ */
+public class SessionDispatcher {
+
+    /**
+     * The maximum number of events dispatched for a session, before
+     * the worker moves on to the next one
+     */
+    public static final int     BATCH_SIZE = 64;
+
+    /** Guards the session lists and the sessions' state */
+    private final Object        lock = new Object();
+
+    /** The sessions with pending events, in the order they were queued */
+    private final LinkedList    readySessions = new LinkedList();
+
+    /** Maps the toolkits to their sessions */
+    private final HashMap       sessions = new HashMap();
+
+    private final Thread[]      workers;
+
+    private boolean             shutdown;
+
+
+    /**
+     * Constructs a dispatcher and starts its worker threads.
+     *
+     * @param threadCount  the number of the worker threads
+     * @throws IllegalArgumentException  if the count is not positive
+     */
+    public SessionDispatcher(int threadCount) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException(
+                    "threadCount must be positive: " + threadCount);
+        }
+
+        // the workers are platform threads even where virtual threads are
+        // available, since they wait on a monitor, which would pin
+        // a carrier thread
+        workers = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new Thread(new Worker(), "charva-dispatch-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Returns the number of the worker threads.
+     */
+    public int getThreadCount() {
+        return workers.length;
+    }
+
+    /**
+     * Starts dispatching the events of the session toolkit. The events
+     * already posted onto its queue are dispatched immediately.
+     *
+     * @throws IllegalArgumentException  if the toolkit is not a session
+     *                                   toolkit
+     */
+    public void addSession(Toolkit toolkit) {
+        if (!toolkit.isSession()) {
+            throw new IllegalArgumentException(
+                    "not a session toolkit: " + toolkit);
+        }
+
+        Session session;
+        synchronized (lock) {
+            if (shutdown) {
+                throw new IllegalStateException("dispatcher is shut down");
+            }
+
+            if (sessions.containsKey(toolkit)) {
+                return;
+            }
+
+            session = new Session(toolkit);
+            sessions.put(toolkit, session);
+        }
+
+        toolkit.setSessionEnded(false);
+
+        toolkit.getSystemEventQueue().addEventQueueListener(session);
+        session.eventPosted();
+    }
+
+    /**
+     * Stops dispatching the events of the session toolkit. If a worker
+     * is dispatching its events, it finishes the current event. The
+     * session is ended, its timers are stopped.
+     *
+     * @see Toolkit#isSessionEnded()
+     */
+    public void removeSession(Toolkit toolkit) {
+        Session session;
+        synchronized (lock) {
+            session = (Session) sessions.remove(toolkit);
+            if (session == null) {
+                return;
+            }
+
+            session.removed = true;
+            readySessions.remove(session);
+        }
+
+        toolkit.setSessionEnded(true);
+
+        toolkit.getSystemEventQueue().removeEventQueueListener(session);
+    }
+
+    /**
+     * Returns the number of the sessions dispatched by this dispatcher.
+     */
+    public int getSessionCount() {
+        synchronized (lock) {
+            return sessions.size();
+        }
+    }
+
+    /**
+     * Stops the worker threads, after they finish the sessions they are
+     * dispatching. The pending events of the sessions are not dispatched.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            readySessions.clear();
+            lock.notifyAll();
+        }
+    }
+
+    private void schedule(Session session) {
+        synchronized (lock) {
+            if (session.scheduled || session.removed || shutdown) {
+                return;
+            }
+
+            session.scheduled = true;
+            readySessions.addLast(session);
+            lock.notify();
+        }
+    }
+
+    /**
+     * Takes the next session with pending events,
+     * blocking until there is one.
+     *
+     * @return  the session, or <code>null</code> if the dispatcher is
+     *          shut down
+     */
+    private Session take() throws InterruptedException {
+        synchronized (lock) {
+            while (readySessions.isEmpty() && !shutdown) {
+                lock.wait();
+            }
+
+            return (shutdown ? null : (Session) readySessions.removeFirst());
+        }
+    }
+
+
+    private final class Session implements EventQueueListener {
+
+        private final Toolkit   toolkit;
+
+        /** Set while the session is queued or dispatched.
+         *  Guarded by the dispatcher's lock. */
+        boolean                 scheduled;
+
+        /** Guarded by the dispatcher's lock */
+        boolean                 removed;
+
+        Session(Toolkit toolkit) {
+            this.toolkit = toolkit;
+        }
+
+        public void eventPosted() {
+            if (!toolkit.getSystemEventQueue().isEmpty()) {
+                schedule(this);
+            }
+        }
+
+        /**
+         * Dispatches a batch of the session's events on the current thread.
+         */
+        void dispatch() {
+            final EventQueue queue = toolkit.getSystemEventQueue();
+
+            Toolkit.setSessionToolkit(toolkit);
+            try {
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    final AWTEvent evt = queue.getNextEvent();
+                    if (evt == null) {
+                        break;
+                    }
+
+                    try {
+                        Window.doEvent(evt);
+                    } catch (RuntimeException e) {
+                        // don't let one session's bug kill a shared worker
+                        e.printStackTrace();
+                    }
+                }
+            } finally {
+                Toolkit.setSessionToolkit(null);
+            }
+
+            synchronized (lock) {
+                // the events posted during the dispatching didn't queue
+                // the session, since it was still scheduled
+                if (!removed && !shutdown && !queue.isEmpty()) {
+                    readySessions.addLast(this);
+                    lock.notify();
+                } else {
+                    scheduled = false;
+                }
+            }
+        }
+
+        public String toString() {
+            return "Session[" + toolkit + "]";
+        }
+    }
+
+
+    private final class Worker implements Runnable {
+
+        public void run() {
+            // the worker may have inherited the session of its creator
+            Toolkit.setSessionToolkit(null);
+
+            try {
+                Session session;
+                while ((session = take()) != null) {
+                    session.dispatch();
+                }
+            } catch (InterruptedException e) {
+                // exit
+            }
+        }
+    }
+}
@@ -47,6 +47,7 @@ public class TerminalGraphics extends Graphics implements GraphicsConstants {
     
     public Graphics create() {
         TerminalGraphics g = new TerminalGraphics(peer, offsetX, offsetY);
+        g.toolkit = toolkit;
         if (clipRect != null) {
             g.setClip(clipRect);
         }
@@ -69,6 +70,11 @@ public class TerminalGraphics extends Graphics implements GraphicsConstants {
     public void translate(int x, int y) {
         this.offsetX += x;
         this.offsetY += y;
+        
+        // keep the clipping area in the new coordinate system
+        if (clipRect != null) {
+            clipRect.translate(-x, -y);
+        }
     }
     
     public boolean hitClip(int x, int y, int width, int height) {
@@ -79,10 +79,29 @@ public abstract class TerminalWindow {
     }
 
     protected void paint() {
+        paint(null);
+    }
+
+    /**
+     * Repaints the given area of the window.
+     * 
+     * @param damage  the area to repaint, in the window's coordinates,
+     *                or <code>null</code> to repaint the whole window
+     */
+    protected void paint(Rectangle damage) {
         // validate first, in case invalidate() was called
         charvaWindow.validate();
 
         Graphics g = getGraphics();
+        g.toolkit = charvaWindow.getToolkit();
+        if (charvaWindow.layoutChanged) {
+            // components may have been moved, repaint everything
+            charvaWindow.layoutChanged = false;
+        
+        } else if (damage != null) {
+            g.clipRect(damage.x, damage.y, damage.width, damage.height);
+        }
+        
         charvaWindow.paint(g);
     }
 
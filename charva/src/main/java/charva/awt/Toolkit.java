@@ -21,17 +21,40 @@ package charva.awt;
 
 import java.util.LinkedList;
 import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
 import charva.awt.event.FocusEvent;
+import charva.awt.event.InvocationEvent;
 import charva.awt.event.KeyEvent;
 import charva.awt.event.MouseEvent;
 
 
 /**
  * The Toolkit class provides the interface to the window system functions.
+ * <p>
+ * Normally there is one toolkit per JVM, the default toolkit, which drives
+ * the process' terminal. A server can drive a number of terminals from 
+ * one JVM by creating a session toolkit for each of them; a session
+ * toolkit has its own event queue, window stack, focus and colors, and
+ * its events are dispatched by a {@link SessionDispatcher}. While a thread
+ * dispatches the events of a session (and in the threads it starts), 
+ * {@link #getDefaultToolkit()}, {@link EventQueue#getInstance()} and the
+ * color scheme methods refer to that session.
  */
 public abstract class Toolkit {
 
+    /** The default maximum number of screen refreshes per second */
+    public static final int         DEFAULT_MAX_FRAME_RATE = 60;
+
     private static Toolkit          instance;
+
+    /** The session toolkit of the current thread, if it has one */
+    private static final InheritableThreadLocal sessionToolkit = 
+        new InheritableThreadLocal();
+
+    /** Schedules the deferred refreshes of all toolkits, created when 
+     *  it's first needed */
+    private static Timer            syncTimer;
     
     /** The terminal's default color-pair    */
     private static ColorPair        defaultColor = ColorPair.valueOf(0x70);
@@ -48,7 +71,12 @@ public abstract class Toolkit {
     private static ColorScheme      warningColors = 
         new ColorScheme(new Properties());
     
-    private static FocusEvent       lastFocusEvent;
+    private FocusEvent              lastFocusEvent;
+
+    /** The colors of a session toolkit */
+    private ColorScheme             sessionNormalColors;
+    private ColorScheme             sessionWarningColors;
+    private ColorPair               sessionDefaultColor;
 
     /**
      * A list of visible Windows.  The first in the list is at the bottom, the
@@ -57,6 +85,36 @@ public abstract class Toolkit {
     private LinkedList              windowList = new LinkedList();
 
     private EventQueue              evtQueue;
+
+    private int                     maxFrameRate;
+
+    /** The minimum time between two screen refreshes, in milliseconds,
+     *  zero if they are not limited */
+    private int                     frameInterval;
+
+    /** Read by the timer thread to align the ticks to the frames */
+    private volatile long           lastSyncTime;
+
+    /** Set if a refresh at the next frame boundary has been scheduled */
+    private boolean                 syncScheduled;
+
+    /** Set if an input event has been dispatched since the last refresh */
+    private boolean                 inputSinceSync;
+
+    /** Set when the events of the session are no longer dispatched */
+    private volatile boolean        sessionEnded;
+
+    /**
+     * Number of components painted by Container.paintChild(), for 
+     * instrumentation. Updated from the event-dispatching thread only.
+     */
+    private long                    paintedCount;
+
+    /**
+     * Number of components skipped by Container.paintChild(), since they
+     * were lying outside of the clipping area
+     */
+    private long                    culledCount;
     
 
     /**
@@ -64,14 +122,50 @@ public abstract class Toolkit {
      * making this an example of the Singleton pattern.
      */
     protected Toolkit() {
-        evtQueue = EventQueue.getInstance();
+        evtQueue = EventQueue.getSystemQueue();
+        setMaxFrameRate(Integer.getInteger("charva.maxfps", 
+                DEFAULT_MAX_FRAME_RATE).intValue());
     }
 
     /**
-     * This static method instantiates a Toolkit object if it does not
-     * already exist; and returns a reference to the instantiated Toolkit
+     * Constructs a session toolkit. It does not become the default 
+     * toolkit, its events are dispatched by the dispatcher, to which it
+     * is added. The session starts with the current color schemes.
+     *
+     * @param eventQueue  the session's own event queue
+     * @see SessionDispatcher#addSession(Toolkit)
      */
-    public static synchronized Toolkit getDefaultToolkit() {
+    protected Toolkit(EventQueue eventQueue) {
+        if (eventQueue == EventQueue.getSystemQueue()) {
+            throw new IllegalArgumentException(
+                    "the system event queue can't be used by a session");
+        }
+
+        evtQueue = eventQueue;
+        sessionNormalColors = getNormalColors();
+        sessionWarningColors = getWarningColors();
+        sessionDefaultColor = getDefaultColor();
+        setMaxFrameRate(Integer.getInteger("charva.maxfps", 
+                DEFAULT_MAX_FRAME_RATE).intValue());
+    }
+
+    /**
+     * Returns the session toolkit of the current thread, if the thread
+     * is dispatching the events of a session (or it was started by such
+     * a thread). Otherwise this static method instantiates the default
+     * Toolkit object if it does not already exist; and returns a reference
+     * to the instantiated Toolkit.
+     */
+    public static Toolkit getDefaultToolkit() {
+        final Toolkit session = (Toolkit) sessionToolkit.get();
+        if (session != null) {
+            return session;
+        }
+
+        return getSystemToolkit();
+    }
+
+    private static synchronized Toolkit getSystemToolkit() {
         if (instance == null) {
             String nm = null;
             Class cls = null;
@@ -102,6 +196,54 @@ public abstract class Toolkit {
         
         instance = toolkit;
     }
+
+    /**
+     * Returns the session toolkit of the current thread, 
+     * or <code>null</code> if it has none.
+     */
+    static Toolkit getSessionToolkit() {
+        return (Toolkit) sessionToolkit.get();
+    }
+
+    /**
+     * Binds the current thread to the session toolkit, or unbinds it
+     * if the toolkit is <code>null</code>.
+     */
+    static void setSessionToolkit(Toolkit toolkit) {
+        sessionToolkit.set(toolkit);
+    }
+
+    /**
+     * Unbinds the current thread from its session toolkit, if it has one.
+     * Threads shared by all the sessions call this first, since they
+     * inherit the session of the thread which started them, and would
+     * keep it alive.
+     */
+    public static void detachFromSession() {
+        sessionToolkit.set(null);
+    }
+
+    /**
+     * Returns <code>true</code> if this is a session toolkit.
+     */
+    public boolean isSession() {
+        return (evtQueue != EventQueue.getSystemQueue());
+    }
+
+    /**
+     * Returns <code>true</code> if this is a session toolkit, which has
+     * been removed from its dispatcher. The work scheduled for the session
+     * by shared threads, such as the ticks of its timers, is dropped.
+     *
+     * @see SessionDispatcher#removeSession(Toolkit)
+     */
+    public boolean isSessionEnded() {
+        return sessionEnded;
+    }
+
+    void setSessionEnded(boolean ended) {
+        sessionEnded = ended;
+    }
     
     /**
      * Returns current terminal screen size
@@ -141,7 +283,8 @@ public abstract class Toolkit {
      * Returns window system normal color scheme
      */
     public static ColorScheme getNormalColors() {
-        return normalColors;
+        final Toolkit session = getSessionToolkit();
+        return (session != null ? session.sessionNormalColors : normalColors);
     }
 
     /**
@@ -153,14 +296,21 @@ public abstract class Toolkit {
         if (colors == null)
             throw new IllegalArgumentException("colors == null");
         
-        normalColors = colors;
+        final Toolkit session = getSessionToolkit();
+        if (session != null) {
+            session.sessionNormalColors = colors;
+        } else {
+            normalColors = colors;
+        }
     }
 
     /**
      * Returns window system warning color scheme
      */
     public static ColorScheme getWarningColors() {
-        return warningColors;
+        final Toolkit session = getSessionToolkit();
+        return (session != null ? session.sessionWarningColors 
+                                : warningColors);
     }
 
     /**
@@ -172,24 +322,263 @@ public abstract class Toolkit {
         if (colors == null)
             throw new IllegalArgumentException("colors == null");
         
-        warningColors = colors;
+        final Toolkit session = getSessionToolkit();
+        if (session != null) {
+            session.sessionWarningColors = colors;
+        } else {
+            warningColors = colors;
+        }
     }
 
     public static ColorPair getDefaultColor() {
-        return defaultColor;
+        final Toolkit session = getSessionToolkit();
+        return (session != null ? session.sessionDefaultColor : defaultColor);
     }
 
     public static void setDefaultColor(ColorPair color) {
         if (color == null)
             throw new IllegalArgumentException("color == null");
         
-        defaultColor = color;
+        final Toolkit session = getSessionToolkit();
+        if (session != null) {
+            session.sessionDefaultColor = color;
+        } else {
+            defaultColor = color;
+        }
     }
     
     public EventQueue getSystemEventQueue() {
         return evtQueue;
     }
 
+    /**
+     * Causes the runnable's run() method to be called by the thread, that
+     * dispatches the events of this toolkit. Unlike 
+     * <code>EventQueue.invokeLater</code>, it doesn't depend on the 
+     * current thread, so that it can be used to run code in a session
+     * from any thread.
+     */
+    public void invokeLater(Runnable runnable) {
+        evtQueue.postEvent(new InvocationEvent(this, runnable));
+    }
+
+    /**
+     * Like {@link #invokeLater(Runnable)}, but the calling thread is never
+     * blocked, even if the event queue has a capacity and is full. This
+     * is meant for threads shared by all the sessions, which post a
+     * bounded number of runnables, such as one pending tick per timer.
+     */
+    public void invokeLaterNoWait(Runnable runnable) {
+        evtQueue.postEventNoWait(new InvocationEvent(this, runnable));
+    }
+
+    /**
+     * Runs the task on the current thread as a thread of this toolkit:
+     * while the task runs, this is the default toolkit and its event
+     * queue is the current one. The previous binding of the thread is
+     * restored afterwards. This is meant for background threads, which do
+     * work for a session.
+     */
+    public void runInContext(Runnable task) {
+        final Object previous = sessionToolkit.get();
+        sessionToolkit.set(isSession() ? this : null);
+        try {
+            task.run();
+        } finally {
+            sessionToolkit.set(previous);
+        }
+    }
+
+    /**
+     * Returns the maximum number of screen refreshes per second, zero if
+     * the refreshes are not limited.
+     */
+    public int getMaxFrameRate() {
+        return maxFrameRate;
+    }
+
+    /**
+     * Limits the number of screen refreshes per second. A refresh, which 
+     * is requested sooner than a frame after the previous one, is deferred
+     * to the frame boundary, and the changes painted in the meantime are
+     * sent to the terminal together. A refresh following a key or mouse
+     * event is never deferred, so that typing is echoed immediately.
+     * <p>
+     * The initial value is taken from the <code>charva.maxfps</code> 
+     * system property, and defaults to {@link #DEFAULT_MAX_FRAME_RATE}.
+     *
+     * @param fps  the maximum frame rate, or zero for unlimited refreshes
+     */
+    public void setMaxFrameRate(int fps) {
+        if (fps < 0) {
+            throw new IllegalArgumentException("fps: " + fps);
+        }
+
+        maxFrameRate = fps;
+        frameInterval = (fps == 0 ? 0 : Math.max(1000 / fps, 1));
+    }
+
+    /**
+     * Returns the frame boundary at or after the time, that is the earliest
+     * time, at which a refresh is not deferred. It's the time itself, if 
+     * the frame rate is not limited or a frame has passed since the last
+     * refresh. The timers align their ticks to it, so that the changes 
+     * they paint don't need refreshes of their own.
+     *
+     * @param time  a time in milliseconds
+     * @see #setMaxFrameRate(int)
+     */
+    public long getFrameTime(long time) {
+        final int interval = frameInterval;
+        final long boundary = lastSyncTime + interval;
+
+        // the clock may have been set back since the last refresh
+        if (time >= boundary || boundary - time > interval) {
+            return time;
+        }
+
+        return boundary;
+    }
+
+    /**
+     * Refreshes the screen of the window, or schedules the refresh at
+     * the next frame boundary. Called by the event-dispatching thread for
+     * each coalesced refresh request.
+     */
+    void requestSync(Window window) {
+        final long now = System.currentTimeMillis();
+        final long elapsed = now - lastSyncTime;
+
+        if (frameInterval == 0 || inputSinceSync || elapsed >= frameInterval
+                || elapsed < 0) {
+
+            sync(window, now);
+            return;
+        }
+
+        if (syncScheduled) {
+            return;     // the scheduled refresh will show the changes
+        }
+
+        syncScheduled = true;
+
+        final Runnable deferredSync = new Runnable() {
+            public void run() {
+                // the screen may have been refreshed in the meantime 
+                // because of input, then the refresh is scheduled again
+                syncScheduled = false;
+                Window top = getTopVisibleWindow();
+                if (top != null) {
+                    requestSync(top);
+                }
+            }
+        };
+
+        getSyncTimer().schedule(new TimerTask() {
+            public void run() {
+                // at most one is pending per toolkit
+                if (!sessionEnded) {
+                    invokeLaterNoWait(deferredSync);
+                }
+            }
+        }, frameInterval - elapsed);
+    }
+
+    private static synchronized Timer getSyncTimer() {
+        // shared by the sessions, so that they don't need a thread each
+        if (syncTimer == null) {
+            // the thread must not inherit the session of the current one
+            final Object previous = sessionToolkit.get();
+            sessionToolkit.set(null);
+            try {
+                syncTimer = new Timer(true);
+            } finally {
+                sessionToolkit.set(previous);
+            }
+        }
+
+        return syncTimer;
+    }
+
+    private void sync(Window window, long now) {
+        lastSyncTime = now;
+        inputSinceSync = false;
+
+        final DispatchMetricsListener metrics = 
+            EventQueue.getMetricsListener();
+        if (metrics == null) {
+            window.syncPeer();
+        } else {
+            final long start = Platform.nanoTime();
+            window.syncPeer();
+            metrics.screenSynced(window, Platform.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the number of components of this toolkit's windows painted
+     * since the last call to <code>resetPaintCounters()</code>.
+     * 
+     * @see #getCulledCount()
+     */
+    public long getPaintedCount() {
+        return paintedCount;
+    }
+
+    /**
+     * Returns the number of components of this toolkit's windows, that
+     * were skipped since the last call to <code>resetPaintCounters()</code>,
+     * because they were lying outside of the clipping area.
+     * 
+     * @see #getPaintedCount()
+     */
+    public long getCulledCount() {
+        return culledCount;
+    }
+
+    /**
+     * Counts a component painted by Container.paintChild().
+     */
+    final void componentPainted() {
+        paintedCount++;
+    }
+
+    /**
+     * Counts a component skipped by Container.paintChild().
+     */
+    final void componentCulled() {
+        culledCount++;
+    }
+
+    /**
+     * Resets the painted and culled components counters.
+     */
+    public void resetPaintCounters() {
+        paintedCount = 0;
+        culledCount  = 0;
+    }
+
+    /**
+     * Called by the event-dispatching thread, when a key or mouse event
+     * has been dispatched.
+     */
+    void inputDispatched() {
+        inputSinceSync = true;
+    }
+
+    private Window getTopVisibleWindow() {
+        synchronized (windowList) {
+            for (int i = windowList.size() - 1; i >= 0; i--) {
+                Window w = (Window) windowList.get(i);
+                if (w.isDisplayable() && w.isVisible()) {
+                    return w;
+                }
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Get the top window of the window stack
      */
@@ -214,7 +603,14 @@ public abstract class Toolkit {
      *             it is a function key as defined in the "VK_*" values
      */
     public void fireKeystroke(int key) {
-        Window source = getTopWindow();
+        Window source;
+        synchronized (windowList) {
+            if (windowList.size() == 0) {
+                return;     // there is no window to receive it
+            }
+            
+            source = (Window) windowList.getLast();
+        }
     
         evtQueue.postEvent(new KeyEvent(source, KeyEvent.KEY_PRESSED, 
                 key, 0));
@@ -229,6 +625,20 @@ public abstract class Toolkit {
         Window.doEvents();
     }
 
+    /**
+     * Blocks until an event is available on the system event queue, 
+     * then dispatches it and all the other queued events.
+     * <p>
+     * Intended to be called in a loop by the event-dispatching thread.
+     * 
+     * @throws InterruptedException if the current thread was interrupted
+     *          while waiting
+     */
+    protected void waitAndProcessEvents() throws InterruptedException {
+        Window.doEvent(evtQueue.waitForNextEvent());
+        Window.doEvents();
+    }
+
     protected void processKeyEvent(Window srcWin, int key, int modifiers) {
         Window.doEvent(new KeyEvent(srcWin, KeyEvent.KEY_PRESSED, 
                 key, modifiers));
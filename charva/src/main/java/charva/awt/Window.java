@@ -46,6 +46,19 @@ public class Window extends Container {
     private TerminalWindow      peer;
     private LinkedList          windowListeners;
     
+    /**
+     * The area of this window, which is waiting to be repainted by the
+     * PaintEvent already posted onto the queue, or <code>null</code> if
+     * there is no such event. Guarded by the EventQueue.
+     */
+    Rectangle                   paintDamage;
+    
+    /**
+     * Set when the layout of this window has been recomputed, so that
+     * the next paint covers the whole window rather than the damaged area.
+     */
+    boolean                     layoutChanged;
+    
     
     public Window(Window owner) {
         this.owner      = owner;
@@ -178,6 +191,21 @@ public class Window extends Container {
         return (peer != null);
     }
 
+    /**
+     * Returns the toolkit, which was the default toolkit when this window 
+     * was created.
+     */
+    public Toolkit getToolkit() {
+        return toolkit;
+    }
+
+    /**
+     * Refreshes the terminal screen with what has been painted.
+     */
+    void syncPeer() {
+        peer.sync();
+    }
+
     /**
      * Causes this Window to be sized to fit the preferred sizes and
      * layouts of its contained components.
@@ -299,8 +327,7 @@ public class Window extends Container {
             
             } else {
                 // clear the event queue if no more windows
-                EventQueue evtQueue = 
-                    Toolkit.getDefaultToolkit().getSystemEventQueue();
+                EventQueue evtQueue = w.toolkit.getSystemEventQueue();
                 
                 while (!evtQueue.isEmpty()) {
                     AWTEvent evt = evtQueue.getNextEvent();
@@ -318,6 +345,19 @@ public class Window extends Container {
         }
     }
     
+    /**
+     * Lays out the contained components, if this window is not valid.
+     * Since any of the components may have been moved or resized, 
+     * the whole window will be repainted the next time.
+     */
+    public void validate() {
+        if (!isValid()) {
+            layoutChanged = true;
+        }
+        
+        super.validate();
+    }
+    
     /**
      * Draw all the components in this window, and request the keyboard focus.
      */
@@ -399,6 +439,33 @@ public class Window extends Container {
     }
 
     static boolean doEvent(AWTEvent evt) {
+        final DispatchMetricsListener metrics = 
+            EventQueue.getMetricsListener();
+        if (metrics == null) {
+            return dispatchEvent(evt, null);
+        }
+
+        final long queueTime = Toolkit.getDefaultToolkit()
+                .getSystemEventQueue().getQueueTime(evt);
+        final long start = Platform.nanoTime();
+        try {
+            return dispatchEvent(evt, metrics);
+        } finally {
+            metrics.eventDispatched(evt, queueTime, 
+                    Platform.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Dispatches the event.
+     *
+     * @param metrics  the listener to be notified of the windows painted,
+     *                 or <code>null</code>
+     * @return  <code>false</code> if the event closed the window
+     */
+    private static boolean dispatchEvent(AWTEvent evt, 
+            DispatchMetricsListener metrics) {
+
         Object source = evt.getSource();
         final int  id = evt.getID();
         
@@ -423,11 +490,17 @@ public class Window extends Container {
         
         switch (id) {
         case PaintEvent.PAINT:
-            // we have to draw the window rather than just the affected
-            // component, because setVisible(false) may have been set on
-            // the component
             ancestor = ((Component)source).getAncestorWindow();
             if (ancestor.peer != null && ancestor.isVisible()) {
+                // the damaged area is given in the coordinates of the source
+                // component, translate it to the screen coordinates
+                Rectangle damage = ((PaintEvent)evt).getUpdateRect();
+                for (Component c = (Component)source; c != null; 
+                        c = c.getParent()) {
+                    
+                    damage.translate(c.getX(), c.getY());
+                }
+                
                 LinkedList winlist = ancestor.toolkit.getWindowList();
                 synchronized (winlist) {
                     // ignore windows that are stacked below this ancestor
@@ -439,9 +512,22 @@ public class Window extends Container {
                             belowAncestor = false;
                         }
 
-                        // paint all windows above including this ancestor
+                        // paint all windows above including this ancestor,
+                        // but only where they overlap the damaged area
                         if (!belowAncestor) {
-                            w.peer.paint();
+                            Rectangle clip = damage.intersection(
+                                    w.getBounds());
+                            if (!clip.isEmpty()) {
+                                clip.translate(-w.getX(), -w.getY());
+                                if (metrics == null) {
+                                    w.peer.paint(clip);
+                                } else {
+                                    long start = Platform.nanoTime();
+                                    w.peer.paint(clip);
+                                    metrics.windowPainted(w, 
+                                            Platform.nanoTime() - start);
+                                }
+                            }
                         }
                     }
                 }
@@ -468,8 +554,18 @@ public class Window extends Container {
                 throw new RuntimeException("Unknown actionId: " + actionId);
             }
             
-            if (ancestor.peer != null && ancestor.isVisible()) {
-                ancestor.peer.sync();
+            // sync actions are coalesced, so the window may have been
+            // closed in the meantime, the screen has to be refreshed anyway
+            if (ancestor.peer == null || !ancestor.isVisible()) {
+                LinkedList winlist = ancestor.toolkit.getWindowList();
+                synchronized (winlist) {
+                    ancestor = (winlist.size() > 0 
+                            ? (Window) winlist.getLast() : null);
+                }
+            }
+            
+            if (ancestor != null && ancestor.peer != null) {
+                ancestor.toolkit.requestSync(ancestor);
             }
             break;
 
@@ -485,6 +581,11 @@ public class Window extends Container {
         default:
             // It is a KeyEvent, MouseEvent, ItemEvent,
             // FocusEvent or a custom type of event
+            if (evt instanceof KeyEvent || evt instanceof MouseEvent) {
+                // the echo of the input is not delayed by the frame limit
+                Toolkit.getDefaultToolkit().inputDispatched();
+            }
+
             ((Component)source).processEvent(evt);
             break;
         }
@@ -67,7 +67,10 @@ public class InvocationEvent extends AWTEvent {
      */
     private Exception           exception;
 
-    
+    /** Set when the run() method has returned */
+    private volatile boolean    dispatched;
+
+
     /**
      * Constructs an InvocationEvent with the specified source which
      * will execute the Runnable's run() method when dispatched by
@@ -124,6 +127,7 @@ public class InvocationEvent extends AWTEvent {
                 runnable.run();
             }
         } finally {
+            dispatched = true;
         	if (notifier != null) {
         	    synchronized (notifier) {
         	        notifier.notifyAll();
@@ -132,6 +136,14 @@ public class InvocationEvent extends AWTEvent {
         }
     }
 
+    /**
+     * Returns <code>true</code> if the event has been dispatched, that is
+     * the runnable's run() method has returned (normally or not).
+     */
+    public boolean isDispatched() {
+        return dispatched;
+    }
+
     public Exception getException() {
         return (catchExceptions ? exception : null);
     }
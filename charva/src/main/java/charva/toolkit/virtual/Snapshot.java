@@ -0,0 +1,151 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package charva.toolkit.virtual;
+
+import charva.awt.Point;
+
+
+/**
+ * An immutable copy of the screen of the {@link VirtualToolkit}, taken 
+ * at the end of a frame.
+ */
+public final class Snapshot {
+
+    private final int       width;
+    private final int       height;
+
+    /** The cells, each is <code>(attrib << 16) | chr</code> */
+    private final int[]     cells;
+
+    private final boolean   cursorVisible;
+    private final int       cursorX;
+    private final int       cursorY;
+
+    private final int       frameNumber;
+
+
+    Snapshot(int width, int height, int[] cells, boolean cursorVisible,
+            int cursorX, int cursorY, int frameNumber) {
+
+        this.width         = width;
+        this.height        = height;
+        this.cells         = cells;
+        this.cursorVisible = cursorVisible;
+        this.cursorX       = cursorX;
+        this.cursorY       = cursorY;
+        this.frameNumber   = frameNumber;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of frames completed before the snapshot was
+     * taken.
+     */
+    public int getFrameNumber() {
+        return frameNumber;
+    }
+
+    /**
+     * Returns the character at the screen position.
+     */
+    public char getChar(int x, int y) {
+        return (char) cells[index(x, y)];
+    }
+
+    /**
+     * Returns the color attributes (foreground + background) of the
+     * character at the screen position.
+     */
+    public int getAttributes(int x, int y) {
+        return cells[index(x, y)] >>> 16;
+    }
+
+    /**
+     * Returns the characters of a row of the screen.
+     */
+    public String getRow(int y) {
+        return getText(0, y, width);
+    }
+
+    /**
+     * Returns the characters of a part of a row of the screen.
+     */
+    public String getText(int x, int y, int length) {
+        index(x, y);
+        index(x + length - 1, y);
+
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) cells[y * width + x + i];
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Returns the position of the first occurrence of the string on 
+     * the screen, searching row by row, or <code>null</code> if it is 
+     * not shown.
+     */
+    public Point find(String str) {
+        for (int y = 0; y < height; y++) {
+            int x = getRow(y).indexOf(str);
+            if (x >= 0) {
+                return new Point(x, y);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the position of the cursor, or <code>null</code> if it is
+     * not visible.
+     */
+    public Point getCursor() {
+        return (cursorVisible ? new Point(cursorX, cursorY) : null);
+    }
+
+    private int index(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException(
+                    "position " + x + "," + y + " out of the screen " 
+                    + width + "x" + height);
+        }
+
+        return y * width + x;
+    }
+
+    /**
+     * Returns the rows of the screen, separated by newlines.
+     */
+    public String toString() {
+        StringBuffer buf = new StringBuffer((width + 1) * height);
+        for (int y = 0; y < height; y++) {
+            buf.append(getRow(y)).append('\n');
+        }
+
+        return buf.toString();
+    }
+}
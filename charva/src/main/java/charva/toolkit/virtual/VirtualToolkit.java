@@ -0,0 +1,364 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package charva.toolkit.virtual;
+
+import java.util.Arrays;
+import charva.awt.Dimension;
+import charva.awt.EventQueue;
+import charva.awt.SessionDispatcher;
+import charva.awt.TerminalWindow;
+import charva.awt.Toolkit;
+import charva.awt.Window;
+import charva.awt.event.MouseEvent;
+
+
+/**
+ * Headless {@link Toolkit} implementation, which renders into an 
+ * in-memory grid of cells instead of a terminal. It is intended for
+ * automated tests and benchmarks of the painting and dispatching code.
+ * <p>
+ * There is no event-dispatching thread. Input is injected with 
+ * {@link #pressKey(int)}, {@link #typeString(String)} and 
+ * {@link #click(int, int)}, which only post events onto the queue; 
+ * {@link #runUntilIdle()} then dispatches the queued events, and the ones
+ * they post in turn, on the calling thread. The result is a deterministic 
+ * sequence of frames, which can be inspected with {@link #snapshot()}.
+ * <pre>
+ *     VirtualToolkit toolkit = new VirtualToolkit(80, 24);
+ *     frame.show();
+ *     toolkit.pressKey(KeyEvent.VK_DOWN);
+ *     toolkit.runUntilIdle();
+ *     assert toolkit.snapshot().getRow(3).startsWith("item 2");
+ * </pre>
+ * The toolkit also counts the frames and the drawn cells, which is what
+ * performance regression tests of the paint path should assert on.
+ * The frame rate is not limited, so that each refresh request produces
+ * a frame before <code>runUntilIdle</code> returns.
+ * <p>
+ * A session toolkit, created with 
+ * {@link #VirtualToolkit(int, int, SessionDispatcher)}, is dispatched by
+ * the dispatcher's threads instead; it simulates a session of a terminal
+ * server, e.g. in load tests. Its windows should be created by 
+ * {@link #invokeLater(Runnable)} tasks.
+ */
+public class VirtualToolkit extends Toolkit {
+
+    private int         width;
+    private int         height;
+
+    /** Cells drawn by the windows, each is <code>(attrib << 16) | chr</code> */
+    private int[]       backBuffer;
+
+    /** Cells of the last frame */
+    private int[]       frontBuffer;
+
+    private boolean     isCursorVisible;
+    private int         cursorX;
+    private int         cursorY;
+
+    /** State of the cursor in the last frame */
+    private boolean     frameCursorVisible;
+    private int         frameCursorX;
+    private int         frameCursorY;
+
+    private int         frameCount;
+    private long        cellsDrawn;
+    private int         cellsChanged;
+
+
+    /**
+     * Creates a toolkit with a 80x24 screen. This constructor is used
+     * if the toolkit is selected with the <code>charva.toolkit</code>
+     * system property.
+     */
+    public VirtualToolkit() {
+        this(80, 24);
+    }
+
+    /**
+     * Creates a toolkit with a screen of the specified size, and makes
+     * it the default toolkit.
+     *
+     * @throws IllegalStateException  if the default toolkit has already 
+     *      been created
+     */
+    public VirtualToolkit(int width, int height) {
+        resize(width, height);
+        setMaxFrameRate(0);
+        setDefaultToolkit(this);
+    }
+
+    /**
+     * Creates a session toolkit with a screen of the specified size. 
+     * Its events are dispatched by the dispatcher's threads, 
+     * <code>runUntilIdle</code> must not be used.
+     */
+    public VirtualToolkit(int width, int height, 
+            SessionDispatcher dispatcher) {
+
+        super(new EventQueue());
+        resize(width, height);
+        setMaxFrameRate(0);
+        dispatcher.addSession(this);
+    }
+
+    private void resize(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(
+                    "invalid screen size: " + width + "x" + height);
+        }
+
+        this.width = width;
+        this.height = height;
+
+        backBuffer = new int[width * height];
+        Arrays.fill(backBuffer, cell(' ', getDefaultColor().getColorCode()));
+        frontBuffer = (int[]) backBuffer.clone();
+    }
+
+    private static int cell(int chr, int attrib) {
+        return ((attrib & 0xff) << 16) | (chr & 0xffff);
+    }
+
+    public Dimension getScreenSize() {
+        return new Dimension(width, height);
+    }
+
+    /**
+     * Changes the size of the screen, as if the terminal was resized, 
+     * and repaints the windows.
+     */
+    public void setScreenSize(int width, int height) {
+        resize(width, height);
+        repaintWindows();
+    }
+
+    protected TerminalWindow createWindowPeer(Window charvaWindow) {
+        return new VirtualWindow(this, charvaWindow);
+    }
+
+    /**
+     * Posts the key onto the event queue, as if it was typed on the
+     * terminal.
+     *
+     * @param key  the character, or one of the <code>VK_*</code> 
+     *             function keys of <code>KeyEvent</code>
+     */
+    public void pressKey(int key) {
+        fireKeystroke(key);
+    }
+
+    /**
+     * Posts the characters of the string onto the event queue.
+     */
+    public void typeString(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            fireKeystroke(str.charAt(i));
+        }
+    }
+
+    /**
+     * Posts a click of the first mouse button at the screen position 
+     * onto the event queue. It is received by the top window.
+     */
+    public void click(int x, int y) {
+        Window[] windows = getWindows();
+        if (windows.length == 0) {
+            return;     // there is no window to receive it
+        }
+
+        Window source = windows[windows.length - 1];
+        x -= source.getX();
+        y -= source.getY();
+
+        getSystemEventQueue().postEvent(new MouseEvent(source, 
+                MouseEvent.MOUSE_PRESSED, x, y, 0, MouseEvent.BUTTON1, 0));
+        getSystemEventQueue().postEvent(new MouseEvent(source, 
+                MouseEvent.MOUSE_RELEASED, x, y, 0, MouseEvent.BUTTON1, 0));
+        getSystemEventQueue().postEvent(new MouseEvent(source, 
+                MouseEvent.MOUSE_CLICKED, x, y, 1, MouseEvent.BUTTON1, 0));
+    }
+
+    /**
+     * Dispatches the queued events on the calling thread until the queue 
+     * is empty, including the events posted while dispatching. Events
+     * posted later by other threads are not waited for.
+     *
+     * @return the number of frames produced
+     */
+    public int runUntilIdle() {
+        int frames = frameCount;
+        while (!getSystemEventQueue().isEmpty()) {
+            processIdleEvent();
+        }
+
+        return frameCount - frames;
+    }
+
+    /**
+     * Returns a copy of the screen, as of the last frame.
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(width, height, (int[]) frontBuffer.clone(), 
+                frameCursorVisible, frameCursorX, frameCursorY, frameCount);
+    }
+
+    /**
+     * Returns the number of frames, that is the number of times the
+     * screen has been refreshed.
+     */
+    public synchronized int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the number of cells written by the windows since the last
+     * call of <code>resetCounters</code>, including the cells, which were
+     * overwritten before the frame was refreshed.
+     */
+    public long getCellsDrawn() {
+        return cellsDrawn;
+    }
+
+    /**
+     * Returns the number of cells, which differed from the previous frame
+     * in the last frame, that is, what a terminal toolkit would have to 
+     * send to the terminal.
+     */
+    public int getCellsChanged() {
+        return cellsChanged;
+    }
+
+    /**
+     * Resets the frame and cell counters.
+     */
+    public void resetCounters() {
+        frameCount = 0;
+        cellsDrawn = 0;
+        cellsChanged = 0;
+    }
+
+    void drawChar(int x, int y, int chr, int attrib) {
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            backBuffer[y * width + x] = cell(chr, attrib);
+            cellsDrawn++;
+        }
+    }
+
+    void drawString(int x, int y, String str, int attrib) {
+        if (y < 0 || y >= height) {
+            return;
+        }
+
+        final int start = Math.max(0, -x);
+        final int end = Math.min(str.length(), width - x);
+        final int offset = y * width + x;
+        attrib = (attrib & 0xff) << 16;
+
+        for (int i = start; i < end; i++) {
+            backBuffer[offset + i] = attrib | str.charAt(i);
+        }
+
+        cellsDrawn += Math.max(end - start, 0);
+    }
+
+    void drawLine(int x, int y, int length, int chr, int attrib, 
+            boolean isHorizontal) {
+
+        if (isHorizontal) {
+            for (int i = 0; i < length; i++) {
+                drawChar(x + i, y, chr, attrib);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                drawChar(x, y + i, chr, attrib);
+            }
+        }
+    }
+
+    void fillBox(int x, int y, int width, int height, int attrib) {
+        final int cell = cell(' ', attrib);
+
+        final int x1 = Math.max(0, x);
+        final int x2 = Math.min(this.width, x + width);
+        final int y1 = Math.max(0, y);
+        final int y2 = Math.min(this.height, y + height);
+        if (x1 >= x2) {
+            return;
+        }
+
+        for (int j = y1; j < y2; j++) {
+            Arrays.fill(backBuffer, j * this.width + x1, j * this.width + x2,
+                    cell);
+            cellsDrawn += x2 - x1;
+        }
+    }
+
+    void setCursor(int x, int y) {
+        cursorX = x;
+        cursorY = y;
+    }
+
+    int getCursorX() {
+        return cursorX;
+    }
+
+    int getCursorY() {
+        return cursorY;
+    }
+
+    boolean isCursorVisible() {
+        return isCursorVisible;
+    }
+
+    void setCursorVisible(boolean isVisible) {
+        this.isCursorVisible = isVisible;
+    }
+
+    /**
+     * Completes a frame.
+     */
+    synchronized void sync() {
+        int changed = 0;
+        for (int i = 0; i < backBuffer.length; i++) {
+            if (backBuffer[i] != frontBuffer[i]) {
+                frontBuffer[i] = backBuffer[i];
+                changed++;
+            }
+        }
+
+        frameCursorVisible = isCursorVisible;
+        frameCursorX = cursorX;
+        frameCursorY = cursorY;
+
+        cellsChanged = changed;
+        frameCount++;
+    }
+
+    void closeWindow(VirtualWindow window) {
+        repaintWindows();
+    }
+
+    private void repaintWindows() {
+        // repaint the main window in stack,
+        // the windows above it are repainted as well
+        Window[] winList = getWindows();
+        if (winList.length > 0) {
+            winList[0].repaint();
+        }
+    }
+}
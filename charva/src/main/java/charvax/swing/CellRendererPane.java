@@ -49,7 +49,7 @@ public class CellRendererPane extends Container {
      */
     public CellRendererPane() {
         super();
-        setLayout(null);
+        // no layout manager, Container doesn't accept null layout
         setVisible(false);
     }
 
@@ -60,6 +60,13 @@ public class CellRendererPane extends Container {
     public void invalidate() {
     }
 
+    /** 
+     * Overridden to avoid posting a repaint when the cell renderer child
+     * is moved.
+     */
+    public void repaint(int x, int y, int width, int height) {
+    }
+
     /** 
      * Shouldn't be called.
      */
@@ -120,13 +127,7 @@ public class CellRendererPane extends Container {
             c.validate();
         }
     
-        Graphics cg = g.create(x, y, w, h);
-        try {
-            c.paint(cg);
-        }
-        finally {
-            cg.dispose();
-        }
+        paintChild(g, c);
     
         c.setBounds(-w, -h, 0, 0);
     }
@@ -20,6 +20,7 @@
 package charvax.swing;
 
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Hashtable;
@@ -102,6 +103,9 @@ public abstract class JComponent extends Container {
     private SwingPropertyChangeSupport  changeSupport;
     private Hashtable                   clientProperties;
     private int                         flags;
+
+    /** The running timers owned by this component, created lazily */
+    private ArrayList                   timers;
     
     protected Border                    border;
     
@@ -486,6 +490,35 @@ public abstract class JComponent extends Container {
         super.removeNotify();
 
         unregisterWithKeyboardManager();
+
+        // the timers owned by this component are stopped
+        if (timers != null) {
+            for (int i = timers.size() - 1; i >= 0; i--) {
+                ((Timer) timers.get(i)).stop();
+            }
+        }
+    }
+
+    /**
+     * Called when a timer owned by this component is started.
+     */
+    void addTimer(Timer timer) {
+        if (timers == null) {
+            timers = new ArrayList();
+        }
+
+        if (!timers.contains(timer)) {
+            timers.add(timer);
+        }
+    }
+
+    /**
+     * Called when a timer owned by this component is stopped.
+     */
+    void removeTimer(Timer timer) {
+        if (timers != null) {
+            timers.remove(timer);
+        }
     }
 
     /**
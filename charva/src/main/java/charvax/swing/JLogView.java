@@ -0,0 +1,707 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing;
+
+import java.util.ArrayList;
+import charva.awt.ColorPair;
+import charva.awt.ColorScheme;
+import charva.awt.Container;
+import charva.awt.Dimension;
+import charva.awt.Graphics;
+import charva.awt.Insets;
+import charva.awt.Point;
+import charva.awt.Rectangle;
+import charva.awt.Window;
+import charvax.swing.event.ChangeEvent;
+import charvax.swing.event.ChangeListener;
+import charvax.swing.text.SearchPattern;
+import charvax.swing.text.TextSearch;
+
+
+/**
+ * A read-only text component that shows the tail of a log, or of any
+ * other stream of text. It should be used inside a 
+ * <code>JScrollPane</code>.
+ * <p>
+ * The component keeps at most a fixed number of lines in a ring buffer;
+ * when it is full, the oldest lines are dropped. The <code>append</code>
+ * method may be called from any thread. The appended text is queued and
+ * added to the component by a single task on the event-dispatching 
+ * thread, which repaints only the rows that have changed.
+ * <p>
+ * While the last line is visible in the enclosing viewport, the view
+ * follows the appended lines. Once the user scrolls up, the view stays
+ * at the text being read, also when the oldest lines are dropped.
+ * <p>
+ * The lines can be searched in the background with <code>search</code>;
+ * the matches are highlighted as they are found.
+ * <p>
+ * All the other methods must be called from the event-dispatching thread.
+ *
+ * @see charvax.swing.text.MappedTextView
+ */
+public class JLogView extends JComponent implements Scrollable {
+
+    /** The lines, the oldest one is at index <code>head</code> */
+    private final String[]      lines;
+
+    private int                 head;
+
+    private int                 size;
+
+    /** The number of lines dropped since this component was created */
+    private long                droppedLines;
+
+    /** <code>true</code> if the last line has not been ended by a newline */
+    private boolean             lastLineOpen;
+
+    /** The length of the longest line shown so far */
+    private int                 maxLineLength;
+
+    private ColorPair           selectedColor;
+
+    private int                 preferredRows;
+    private int                 preferredColumns;
+
+    /** Text appended but not yet added to the lines */
+    private ArrayList           pending = new ArrayList();
+
+    /** Guards <code>pending</code> and <code>flushScheduled</code> */
+    private final Object        pendingLock = new Object();
+
+    private boolean             flushScheduled;
+
+    private final Runnable      flushTask = new Runnable() {
+        public void run() {
+            flush();
+        }
+    };
+
+    /** The search of the lines, created when it's first needed */
+    private TextSearch          search;
+
+    /** The number of the first line of the searched text, counted like
+     *  <code>droppedLines</code> */
+    private long                searchFirstLine;
+
+    /** The offsets of the lines in the searched text, followed by the
+     *  length of the text */
+    private int[]               searchLineStarts;
+
+    /** The start of the match shown last, -1 if none */
+    private int                 searchPosition = -1;
+
+    private final ChangeListener searchListener = new ChangeListener() {
+        public void stateChanged(ChangeEvent e) {
+            repaintRows(0, size - 1);
+        }
+    };
+
+
+    /**
+     * Constructs an empty log view showing 10 rows of 80 columns.
+     *
+     * @param maxLines  the maximum number of lines kept
+     */
+    public JLogView(int maxLines) {
+        this(maxLines, 10, 80);
+    }
+
+    /**
+     * Constructs an empty log view.
+     *
+     * @param maxLines  the maximum number of lines kept
+     * @param rows      the preferred number of rows of the viewport
+     * @param columns   the preferred number of columns of the viewport
+     * @throws IllegalArgumentException  if maxLines is not positive
+     */
+    public JLogView(int maxLines, int rows, int columns) {
+        if (maxLines <= 0) {
+            throw new IllegalArgumentException(
+                    "maxLines must be positive: " + maxLines);
+        }
+
+        this.lines            = new String[maxLines];
+        this.preferredRows    = rows;
+        this.preferredColumns = columns;
+    }
+
+    public void setColors(ColorScheme colors) {
+        super.setColors(colors);
+        
+        color         = colors.getColor(ColorScheme.EDIT);
+        selectedColor = colors.getColor(ColorScheme.EDIT_SELECTED);
+    }
+
+    /**
+     * Returns the maximum number of lines kept by this component.
+     */
+    public int getMaxLines() {
+        return lines.length;
+    }
+
+    /**
+     * Returns the number of lines.
+     */
+    public int getLineCount() {
+        return size;
+    }
+
+    /**
+     * Returns the text of the line, without the newline.
+     *
+     * @param line  the index of the line, 0 is the oldest line
+     */
+    public String getLine(int line) {
+        return lines[index(line)];
+    }
+
+    /**
+     * Appends text to the log. The text is split into lines at the
+     * newline characters; text after the last newline is continued by
+     * the next call. The text becomes visible when the event-dispatching 
+     * thread of the window's toolkit processes the queued text; until the
+     * view is added to a window, the text is kept queued. This method may
+     * be called from any thread.
+     */
+    public void append(String text) {
+        synchronized (pendingLock) {
+            pending.add(text);
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Schedules the flush of the queued text, if the view is in a window.
+     * Should be called while holding the pending lock.
+     */
+    private void scheduleFlush() {
+        if (flushScheduled || pending.isEmpty()) {
+            return;
+        }
+
+        Window ancestor = SwingUtilities.windowForComponent(this);
+        if (ancestor != null) {
+            flushScheduled = true;
+            ancestor.getToolkit().invokeLater(flushTask);
+        }
+    }
+
+    public void addNotify() {
+        super.addNotify();
+
+        // the text appended before the view was added to a window
+        synchronized (pendingLock) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Adds the queued text to the lines, drops the oldest lines if there
+     * are too many and repaints the changed rows. It is called 
+     * automatically; it can be called directly from the event-dispatching
+     * thread to make the appended text visible immediately.
+     */
+    public void flush() {
+        ArrayList batch;
+        synchronized (pendingLock) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            batch = pending;
+            pending = new ArrayList();
+        }
+
+        final boolean atBottom = isAtBottom();
+        final int oldSize = size;
+        final int oldWidth = getWidth();
+
+        // the first row that changed, counted before dropping lines
+        int firstChanged = (lastLineOpen ? size - 1 : size);
+        int dropped = 0;
+
+        for (int i = 0; i < batch.size(); i++) {
+            String text = (String) batch.get(i);
+            int start = 0;
+            int end;
+            while ((end = text.indexOf('\n', start)) >= 0) {
+                dropped += addText(text.substring(start, end));
+                lastLineOpen = false;
+                start = end + 1;
+            }
+
+            if (start < text.length()) {
+                dropped += addText(text.substring(start));
+                lastLineOpen = true;
+            }
+        }
+
+        firstChanged = Math.max(firstChanged - dropped, 0);
+
+        if (size != oldSize || getWidth() != oldWidth) {
+            sizeChanged();
+        }
+
+        Container parent = getParent();
+        if (parent instanceof JViewport) {
+            JViewport viewport = (JViewport) parent;
+            Point position = viewport.getViewPosition();
+            int top = position.y;
+
+            if (atBottom) {
+                position.y = Math.max(
+                        getHeight() - viewport.getExtentSize().height, 0);
+            } else {
+                // keep showing the same text
+                position.y = Math.max(position.y - dropped, 0);
+            }
+
+            if (position.y != top) {
+                viewport.setViewPosition(position);
+                return;
+            }
+        }
+
+        if (dropped > 0) {
+            // all the lines have moved up
+            repaintRows(0, size - 1);
+        } else {
+            repaintRows(firstChanged, size - 1);
+        }
+    }
+
+    /**
+     * Removes all lines, including the text that has been appended, 
+     * but not flushed yet.
+     */
+    public void clear() {
+        synchronized (pendingLock) {
+            pending.clear();
+        }
+
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = null;
+        }
+
+        clearSearch();
+        droppedLines += size;
+        head = 0;
+        size = 0;
+        lastLineOpen = false;
+
+        sizeChanged();
+        repaint();
+    }
+
+    public Dimension getSize() {
+        return new Dimension(getWidth(), getHeight());
+    }
+
+    public int getWidth() {
+        Insets insets = getInsets();
+        return Math.max(maxLineLength, preferredColumns) 
+                + insets.left + insets.right;
+    }
+
+    public int getHeight() {
+        Insets insets = getInsets();
+        return Math.max(size, preferredRows) + insets.top + insets.bottom;
+    }
+
+    public Dimension getMinimumSize() {
+        return getSize();
+    }
+
+    public void paint(Graphics g) {
+        // draw the border inherited from JComponent, if it exists
+        super.paint(g);
+
+        Insets insets = getInsets();
+        g.translate(insets.left, insets.top);
+
+        g.setColor(color);
+        g.fillRect(0, 0, getWidth(), getHeight());
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+
+        int firstRow = Math.max(clip.y, 0);
+        int lastRow  = Math.min(clip.y + clip.height, size) - 1;
+        int firstCol = Math.max(clip.x, 0);
+        int lastCol  = clip.x + clip.width;
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            String line = lines[index(row)];
+            if (line.length() > firstCol) {
+                int end = Math.min(line.length(), lastCol);
+                g.drawString(line.substring(firstCol, end), firstCol, row);
+                if (search != null && search.getMatchCount() > 0) {
+                    paintMatches(g, line, row, firstCol, end);
+                    g.setColor(color);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the matches of the search within the columns [firstCol, 
+     * lastCol) of a row in the selected color.
+     */
+    private void paintMatches(Graphics g, String line, int row, 
+            int firstCol, int lastCol) {
+        
+        long k = droppedLines + row - searchFirstLine;
+        if (k < 0 || k >= searchLineStarts.length - 1) {
+            return;     // the line was appended after the search started
+        }
+
+        // the line may have been continued since
+        int lineStart = searchLineStarts[(int) k];
+        int lineEnd = Math.min(searchLineStarts[(int) k + 1] - 1, 
+                lineStart + lastCol);
+
+        g.setColor(selectedColor);
+        int count = search.getMatchCount();
+        for (int i = search.getFirstMatchEndingAfter(lineStart + firstCol);
+                i < count; i++) {
+
+            int from = search.getMatchStart(i) - lineStart;
+            if (from >= lineEnd - lineStart) {
+                break;
+            }
+
+            from = Math.max(from, firstCol);
+            int to = Math.min(search.getMatchEnd(i), lineEnd) - lineStart;
+            g.drawString(line.substring(from, to), from, row);
+        }
+    }
+
+    /**
+     * Starts searching the lines in the background. The matches are
+     * highlighted as they are found, and can be visited with 
+     * <code>findNext</code> and <code>findPrevious</code>. The previous
+     * search is abandoned. Lines appended afterwards are not searched.
+     *
+     * @param query       the string or the regular expression to find
+     * @param regex       <code>true</code> if the query is a regular 
+     *                    expression
+     * @param ignoreCase  <code>true</code> if the case of the letters
+     *                    doesn't matter
+     * @throws java.util.regex.PatternSyntaxException  if the regular
+     *      expression is not valid
+     */
+    public void search(String query, boolean regex, boolean ignoreCase) {
+        if (query.length() == 0) {
+            clearSearch();
+            return;
+        }
+
+        SearchPattern pattern = new SearchPattern(query, regex, ignoreCase);
+
+        // only the references are copied here, the search thread
+        // joins the lines
+        String[] copy = new String[size];
+        int first = Math.min(size, lines.length - head);
+        System.arraycopy(lines, head, copy, 0, first);
+        System.arraycopy(lines, 0, copy, first, size - first);
+
+        // the offsets of the matches are mapped back to the lines
+        int[] lineStarts = new int[size + 1];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            lineStarts[i] = length;
+            length += copy[i].length() + 1;
+        }
+
+        lineStarts[size] = length;
+
+        searchFirstLine = droppedLines;
+        searchLineStarts = lineStarts;
+        searchPosition = -1;
+        getSearch().start(new JoinedLines(copy, length), pattern);
+    }
+
+    /**
+     * Stops the search and removes the highlighting of the matches.
+     */
+    public void clearSearch() {
+        if (search != null && search.getPattern() != null) {
+            search.clear();
+            searchLineStarts = null;
+        }
+    }
+
+    /**
+     * Returns the search of the lines, which holds the matches found 
+     * so far.
+     */
+    public TextSearch getSearch() {
+        if (search == null) {
+            search = new TextSearch();
+            search.addChangeListener(searchListener);
+        }
+
+        return search;
+    }
+
+    /**
+     * Scrolls to the match following the one shown last, or to the first
+     * match.
+     *
+     * @return <code>false</code> if there is no such match
+     */
+    public boolean findNext() {
+        if (searchLineStarts == null) {
+            return false;
+        }
+
+        int minOffset = getFirstSearchOffset();
+        int index = search.getNextMatch(Math.max(searchPosition, 
+                minOffset - 1));
+        return (index >= 0 && showMatch(index));
+    }
+
+    /**
+     * Scrolls to the match preceding the one shown last, or to the last
+     * match.
+     *
+     * @return <code>false</code> if there is no such match
+     */
+    public boolean findPrevious() {
+        if (searchLineStarts == null) {
+            return false;
+        }
+
+        int index = search.getPreviousMatch(searchPosition < 0 
+                ? Integer.MAX_VALUE : searchPosition);
+        if (index < 0 
+                || search.getMatchStart(index) < getFirstSearchOffset()) {
+            return false;
+        }
+
+        return showMatch(index);
+    }
+
+    /**
+     * Returns the offset in the searched text of the oldest line that
+     * has not been dropped.
+     */
+    private int getFirstSearchOffset() {
+        long k = Math.max(droppedLines - searchFirstLine, 0);
+        int last = searchLineStarts.length - 1;
+        return searchLineStarts[(int) Math.min(k, last)];
+    }
+
+    private boolean showMatch(int index) {
+        int start = search.getMatchStart(index);
+        int end = search.getMatchEnd(index);
+
+        // find the line of the match
+        int low = 0;
+        int high = searchLineStarts.length - 2;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (searchLineStarts[mid] <= start) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        long row = searchFirstLine + low - droppedLines;
+        if (row < 0) {
+            return false;
+        }
+
+        searchPosition = start;
+
+        Insets insets = getInsets();
+        int column = start - searchLineStarts[low];
+        scrollRectToVisible(new Rectangle(insets.left + column, 
+                insets.top + (int) row, Math.max(end - start, 1), 1));
+        return true;
+    }
+
+    /**
+     * Returns the preferred size of the viewport for this component 
+     * when it is in a JScrollPane, which is set in the constructor.
+     */
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(preferredColumns, preferredRows);
+    }
+
+    public int getScrollableUnitIncrement(Rectangle visibleRect,
+            int orientation, int direction) {
+        return 1;
+    }
+
+    public int getScrollableBlockIncrement(Rectangle visibleRect,
+            int orientation, int direction) {
+        
+        if (orientation == SwingConstants.VERTICAL) {
+            return Math.max(visibleRect.height - 1, 1);
+        }
+
+        return Math.max(visibleRect.width - 1, 1);
+    }
+
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    /**
+     * Adds the text to the last line if it is open, otherwise adds a new 
+     * line.
+     *
+     * @return the number of lines dropped
+     */
+    private int addText(String text) {
+        maxLineLength = Math.max(maxLineLength, text.length());
+
+        if (lastLineOpen) {
+            int last = index(size - 1);
+            lines[last] = lines[last].concat(text);
+            maxLineLength = Math.max(maxLineLength, lines[last].length());
+            return 0;
+        }
+
+        if (size == lines.length) {
+            droppedLines++;
+            lines[head] = text;
+            head = (head + 1) % lines.length;
+            return 1;
+        }
+
+        lines[(head + size) % lines.length] = text;
+        size++;
+        return 0;
+    }
+
+    /**
+     * Returns <code>true</code> if the last line is visible in the
+     * enclosing viewport, or if there is no viewport.
+     */
+    private boolean isAtBottom() {
+        Container parent = getParent();
+        if (!(parent instanceof JViewport)) {
+            return true;
+        }
+
+        JViewport viewport = (JViewport) parent;
+        return viewport.getViewPosition().y 
+                + viewport.getExtentSize().height >= getHeight();
+    }
+
+    /**
+     * Called when the size of this component has changed. If it is the
+     * view of a <code>JViewport</code>, it's enough to let the scrollbars
+     * know; otherwise the layout is invalidated.
+     */
+    private void sizeChanged() {
+        Container parent = getParent();
+        if (parent instanceof JViewport) {
+            ((JViewport) parent).fireStateChanged();
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * Repaints the rows in the range [firstRow, lastRow], limited to the
+     * visible area.
+     */
+    private void repaintRows(int firstRow, int lastRow) {
+        if (lastRow < firstRow) {
+            return;
+        }
+
+        Insets insets = getInsets();
+        Rectangle damage = new Rectangle(0, insets.top + firstRow, 
+                getWidth(), lastRow - firstRow + 1);
+        damage = damage.intersection(getVisibleRect());
+        if (!damage.isEmpty()) {
+            repaint(damage.x, damage.y, damage.width, damage.height);
+        }
+    }
+
+    private int index(int line) {
+        if (line < 0 || line >= size) {
+            throw new IndexOutOfBoundsException(
+                    "line " + line + " out of range 0.." + (size - 1));
+        }
+
+        int index = head + line;
+        return (index < lines.length ? index : index - lines.length);
+    }
+
+    protected String paramString() {
+        return super.paramString() + ",lines=" + size 
+                + ",maxLines=" + lines.length;
+    }
+
+
+    /**
+     * The searched lines, each followed by a newline. The text is built
+     * when it's first read, that is by the search thread, which is the
+     * only one using it.
+     */
+    private static final class JoinedLines implements CharSequence {
+
+        private final String[]  lines;
+        private final int       length;
+        private String          text;
+
+        JoinedLines(String[] lines, int length) {
+            this.lines = lines;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int index) {
+            return toString().charAt(index);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        public String toString() {
+            if (text == null) {
+                StringBuffer buf = new StringBuffer(length);
+                for (int i = 0; i < lines.length; i++) {
+                    buf.append(lines[i]).append('\n');
+                }
+
+                text = buf.toString();
+            }
+
+            return text;
+        }
+    }
+}
@@ -102,8 +102,7 @@ public class JMenuBar extends JComponent {
         for (int i = 0; i < menus.length; i++) {
             Component c = menus[i];
             c.setLocation(x, 0);
-            c.paint(g.create(c.getX(), c.getY(), 
-                    c.getWidth(), c.getHeight()));
+            paintChild(g, c);
             x += c.getWidth();
         }
     }
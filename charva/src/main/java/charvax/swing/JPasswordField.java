@@ -120,21 +120,21 @@ public class JPasswordField extends JTextField {
 
         // get the displayable portion of the string
         int end;
-        if (document.length() > (offset + columns)) {
+        if (document.getLength() > (offset + columns)) {
             end = offset + columns;
         } else {
-            end = document.length();
+            end = document.getLength();
         }
 
         // If the echo character is set, display echo characters instead
         // of the actual string
         StringBuffer displaybuf = new StringBuffer();
         if (echoChar != 0) {
-            for (int i = 0; i < document.length(); i++) {
+            for (int i = 0; i < document.getLength(); i++) {
                 displaybuf.append(echoChar);
             }
         } else {
-            for (int i = 0; i < document.length(); i++) {
+            for (int i = 0; i < document.getLength(); i++) {
                 displaybuf.append(' ');
             }
         }
@@ -23,6 +23,8 @@ import charva.awt.Dimension;
 import charva.awt.Graphics;
 import charva.awt.GraphicsConstants;
 import charva.awt.Insets;
+import charva.awt.event.ActionEvent;
+import charva.awt.event.ActionListener;
 import charva.awt.event.KeyEvent;
 
 
@@ -43,7 +45,8 @@ public class JProgressBar extends JComponent {
 
     protected boolean   indeterminate;
 
-    protected Thread    indeterminateThread;
+    /** Animates the indeterminate progress, owned by this bar */
+    private Timer       indeterminateTimer;
     
     
     /**
@@ -264,14 +267,28 @@ public class JProgressBar extends JComponent {
         if (newval) {
             setMinimum(0);
             setMaximum(100);
-            indeterminateThread = new IndeterminateThread();
-            indeterminateThread.start();
-        } else {
-            if (indeterminateThread != null &&
-                    indeterminateThread.isAlive()) {
+            if (indeterminateTimer == null) {
+                indeterminateTimer = new Timer(50, new IndeterminateTask());
+                indeterminateTimer.setOwner(this);
+            }
 
-                indeterminateThread.interrupt();
+            if (isDisplayable()) {
+                indeterminateTimer.start();
             }
+        } else if (indeterminateTimer != null) {
+            indeterminateTimer.stop();
+        }
+    }
+
+    /**
+     * Restarts the animation of the indeterminate progress, which is 
+     * stopped when the bar is removed from its window.
+     */
+    public void addNotify() {
+        super.addNotify();
+
+        if (indeterminate) {
+            indeterminateTimer.start();
         }
     }
 
@@ -286,51 +303,23 @@ public class JProgressBar extends JComponent {
         return string;
     }
 
-    public void finalize() {
-        if (indeterminateThread != null 
-                && indeterminateThread.isAlive()) {
-
-            indeterminateThread.interrupt();
-        }
-    }
-
     /**
      * A nonstatic inner class that updates the progress bar
-     * once per second when the progress bar is in "indeterminate" mode.
+     * on each tick of the timer, when the progress bar is in 
+     * "indeterminate" mode. The timer's ticks are delivered by the
+     * event-dispatching thread, so the bar is updated directly.
      */
-    private class IndeterminateThread extends Thread {
+    private class IndeterminateTask implements ActionListener {
         
         private boolean     right = true;
         private int         percent;
         
-        private IndeterminateThread() {
+        private IndeterminateTask() {
         }
 
-        /**
-         * Twice per second, wake up and update the progress bar. Note that
-         * since this thread is not the event-dispatching thread, we cannot
-         * manipulate the screen components directly; instead, we must
-         * call the static method "invokeLater()" of the EventQueue class,
-         * which will cause the event-dispatching thread to update the progress
-         * bar.
-         * See "Core Java, Volume II" by Horstmann and Cornell, chapter 1;
-         * Also see
-         * http://java.sun.com/docs/books/tutorial/uiswing/overview/threads.html
-         */
-        public void run() {
-            try {
-                while (true) {
-                    this.adjust();
-                    Thread.sleep(50L);
-                    SwingUtilities.invokeLater(new Runnable() {
-                        public void run() {
-                            JProgressBar.this.setValue(percent);
-                        }
-                    });
-                }
-            } catch (InterruptedException e) {
-                return;
-            }
+        public void actionPerformed(ActionEvent e) {
+            adjust();
+            setValue(percent);
         }
 
         /**
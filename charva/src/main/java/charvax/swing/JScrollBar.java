@@ -24,6 +24,8 @@ import charva.awt.Dimension;
 import charva.awt.Graphics;
 import charva.awt.GraphicsConstants;
 import charva.awt.Toolkit;
+import charvax.swing.event.ChangeEvent;
+import charvax.swing.event.ChangeListener;
 
 
 /**
@@ -69,6 +71,16 @@ public class JScrollBar extends JComponent {
      */
     protected int   blockIncrement;
 
+    /**
+     * Repaints the scrollbar when the model changes, since the painting
+     * is limited to the damaged area of the window.
+     */
+    private final ChangeListener modelListener = new ChangeListener() {
+        public void stateChanged(ChangeEvent e) {
+            repaint();
+        }
+    };
+
     
     private static void checkOrientation(int orientation) {
         switch (orientation) {
@@ -137,6 +149,7 @@ public class JScrollBar extends JComponent {
         this.blockIncrement = (extent == 0) ? 1 : extent;
         this.orientation = orientation;
         this.model = new DefaultBoundedRangeModel(value, extent, min, max);
+        this.model.addChangeListener(modelListener);
         
         color = Toolkit.getDefaultColor();
     }
@@ -188,7 +201,18 @@ public class JScrollBar extends JComponent {
      * @see #getModel
      */
     public void setModel(BoundedRangeModel newModel) {
+        BoundedRangeModel oldModel = model;
+        if (oldModel != null) {
+            oldModel.removeChangeListener(modelListener);
+        }
+        
         model = newModel;
+        
+        if (newModel != null) {
+            newModel.addChangeListener(modelListener);
+        }
+        
+        repaint();
     }
 
     /**
@@ -235,8 +235,7 @@ public class JTabbedPane extends JComponent {
         for (int i = 0; i < countTabs; i++) {
             TabButton c = (TabButton)tabs.get(i);
             c.setLocation(relative.addOffset(hoffset, 0));
-            c.paint(g.create(c.getX(), c.getY(), 
-                    c.getWidth(), c.getHeight()));
+            paintChild(g, c);
             
             hoffset += c.getWidth();
         }
@@ -248,7 +247,7 @@ public class JTabbedPane extends JComponent {
             // Note that we draw the component even if isVisible() would be
             // false; it doesn't make sense to make a component invisible in a
             // JTabbedPane.
-            c.paint(g.create(c.getX(), c.getY(), c.getWidth(), c.getHeight()));
+            paintChild(g, c);
         }
     }
 
@@ -34,6 +34,8 @@ import charva.awt.Insets;
 import charva.awt.Point;
 import charva.awt.Rectangle;
 import charva.awt.event.KeyEvent;
+import charvax.swing.event.ChangeEvent;
+import charvax.swing.event.ChangeListener;
 import charvax.swing.event.ListSelectionEvent;
 import charvax.swing.event.ListSelectionListener;
 import charvax.swing.event.TableModelEvent;
@@ -44,6 +46,7 @@ import charvax.swing.table.DefaultTableModel;
 import charvax.swing.table.JTableHeader;
 import charvax.swing.table.TableCellRenderer;
 import charvax.swing.table.TableModel;
+import charvax.swing.table.TableRowSorter;
 
 
 /**
@@ -58,6 +61,20 @@ public class JTable extends JComponent implements TableModelListener,
     private TableModel              model;
     private SizeSequence            columnModel;
 
+    /** Sorts and filters the rows, <code>null</code> if not used */
+    private TableRowSorter          rowSorter;
+
+    private final ChangeListener    rowSorterListener = new ChangeListener() {
+        public void stateChanged(ChangeEvent e) {
+            // the number of rows may have changed
+            rowCountChanged();
+            repaint();
+        }
+    };
+
+    /** Keeps the last row visible when rows are inserted */
+    private boolean                 followTail;
+
     /** The <code>JTableHeader</code> working with the table. */
     protected JTableHeader          tableHeader;
 
@@ -309,6 +326,10 @@ public class JTable extends JComponent implements TableModelListener,
         if (oldModel != null) {
             oldModel.removeTableModelListener(this);
         }
+        
+        if (rowSorter != null && rowSorter.getModel() != model) {
+            setRowSorter(null);
+        }
     }
 
     public TableModel getModel() {
@@ -316,13 +337,87 @@ public class JTable extends JComponent implements TableModelListener,
     }
 
     /**
-     * Returns the number of rows in this table's model.
-     * @return the number of rows in this table's model
+     * Sets the sorter of the rows. The events of the model are forwarded
+     * to the sorter before the table is updated, so the sorter shouldn't
+     * be registered as a listener of the model itself.
+     * <p>
+     * The row indexes of the table, including the selection and the
+     * <code>getValueAt</code> and <code>setValueAt</code> methods,
+     * refer to the rows of the view.
+     * 
+     * @param sorter  the sorter working with the table's model, 
+     *                or <code>null</code> to show the rows unsorted
+     * @throws IllegalArgumentException  if the sorter uses another model
+     */
+    public void setRowSorter(TableRowSorter sorter) {
+        if (sorter != null && sorter.getModel() != model) {
+            throw new IllegalArgumentException(
+                    "sorter uses another model");
+        }
+        
+        TableRowSorter oldSorter = this.rowSorter;
+        if (oldSorter != null) {
+            oldSorter.removeChangeListener(rowSorterListener);
+        }
+        
+        this.rowSorter = sorter;
+        if (sorter != null) {
+            sorter.addChangeListener(rowSorterListener);
+        }
+        
+        if (oldSorter != sorter) {
+            invalidate();
+            repaint();
+        }
+    }
+
+    public TableRowSorter getRowSorter() {
+        return rowSorter;
+    }
+
+    /**
+     * Maps the index of the row in terms of the view to the model.
+     * 
+     * @param viewRowIndex  the index of the row in the view
+     * @see TableRowSorter#convertRowIndexToModel(int)
+     */
+    public int convertRowIndexToModel(int viewRowIndex) {
+        if (rowSorter == null) {
+            return viewRowIndex;
+        }
+        
+        return rowSorter.convertRowIndexToModel(viewRowIndex);
+    }
+
+    /**
+     * Maps the index of the row in terms of the model to the view.
+     * 
+     * @param modelRowIndex  the index of the row in the model
+     * @return the index of the row in the view, or -1 if the row
+     *          is filtered out
+     * @see TableRowSorter#convertRowIndexToView(int)
+     */
+    public int convertRowIndexToView(int modelRowIndex) {
+        if (rowSorter == null) {
+            return modelRowIndex;
+        }
+        
+        return rowSorter.convertRowIndexToView(modelRowIndex);
+    }
+
+    /**
+     * Returns the number of rows in this table, which may be less than
+     * the number of rows in the model, if the rows are filtered.
+     * @return the number of rows shown by this table
      *
      * @see #getColumnCount
      */
     public int getRowCount() {
-        return getModel().getRowCount();
+        if (rowSorter == null) {
+            return model.getRowCount();
+        }
+        
+        return rowSorter.getViewRowCount();
     }
 
     /**
@@ -365,11 +460,11 @@ public class JTable extends JComponent implements TableModelListener,
     }
 
     public void setValueAt(Object object, int row, int column) {
-        model.setValueAt(object, row, column);
+        model.setValueAt(object, convertRowIndexToModel(row), column);
     }
 
     public Object getValueAt(int row, int column) {
-        return model.getValueAt(row, column);
+        return model.getValueAt(convertRowIndexToModel(row), column);
     }
 
     /**
@@ -378,13 +473,128 @@ public class JTable extends JComponent implements TableModelListener,
      * TableModelEvent.
      */
     public void tableChanged(TableModelEvent evt) {
-        if (evt.getFirstRow() == TableModelEvent.HEADER_ROW 
-                && evt.getLastRow() == TableModelEvent.HEADER_ROW) {
+        int firstRow = evt.getFirstRow();
+        int lastRow  = evt.getLastRow();
+        
+        if (firstRow == TableModelEvent.HEADER_ROW 
+                && lastRow == TableModelEvent.HEADER_ROW) {
             
             updateColumnModel();
         }
         
-        repaint();
+        if (rowSorter != null) {
+            rowSorter.tableChanged(evt);
+        }
+        
+        int type = evt.getType();
+        if (rowSorter != null || firstRow == TableModelEvent.HEADER_ROW) {
+            // the view rows can't be mapped to the model rows
+            repaint();
+        } else if (type == TableModelEvent.UPDATE) {
+            repaintRows(firstRow, Math.min(lastRow, getRowCount() - 1));
+        } else {
+            // the following rows have moved, and a deletion uncovers
+            // the lines below the new end of the table
+            int removed = (type == TableModelEvent.DELETE 
+                    ? lastRow - firstRow + 1 : 0);
+            repaintRows(firstRow, getRowCount() + removed);
+        }
+        
+        if (type != TableModelEvent.UPDATE) {
+            if (currentRow >= getRowCount()) {
+                currentRow = Math.max(getRowCount() - 1, 0);
+            }
+            
+            if (rowSorter == null) {
+                rowCountChanged();
+            }
+            
+            if (followTail && type == TableModelEvent.INSERT) {
+                scrollToTail();
+            }
+        }
+    }
+
+    /**
+     * Sets whether the table should follow the newly inserted rows.
+     * If it does, the enclosing <code>JViewport</code> is scrolled
+     * so that the last row is visible whenever rows are inserted,
+     * which is useful for tables showing live feeds.
+     * 
+     * @see charvax.swing.table.RingBufferTableModel
+     */
+    public void setFollowTail(boolean followTail) {
+        this.followTail = followTail;
+        if (followTail) {
+            scrollToTail();
+        }
+    }
+
+    public boolean isFollowTail() {
+        return followTail;
+    }
+
+    /**
+     * Repaints the lines of the rows in the range [firstRow, lastRow],
+     * which may extend beyond the last row, limited to the area visible
+     * in the parent.
+     */
+    private void repaintRows(int firstRow, int lastRow) {
+        if (lastRow < firstRow) {
+            return;
+        }
+        
+        Insets insets = getInsets();
+        Rectangle damage = new Rectangle(0, insets.top + firstRow + 1,
+                insets.left + getWidth() + insets.right, 
+                lastRow - firstRow + 1);
+        
+        Container parent = getParent();
+        if (parent != null) {
+            Rectangle visible = new Rectangle();
+            computeVisibleRect(parent, visible);
+            visible.translate(-getX(), -getY());
+            damage = damage.intersection(visible);
+            if (damage.isEmpty()) {
+                return;
+            }
+        }
+        
+        repaint(damage.x, damage.y, damage.width, damage.height);
+    }
+
+    /**
+     * Called when the number of rows has changed. The height of the table
+     * follows the number of rows, so if the table is the view of a 
+     * <code>JViewport</code>, it's enough to let the scrollbars know; 
+     * otherwise the layout is invalidated.
+     */
+    private void rowCountChanged() {
+        Container parent = getParent();
+        if (parent instanceof JViewport) {
+            ((JViewport) parent).fireStateChanged();
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * Scrolls the enclosing viewport so that the last row is shown
+     * at its bottom line.
+     */
+    private void scrollToTail() {
+        Container parent = getParent();
+        if (!(parent instanceof JViewport)) {
+            return;
+        }
+        
+        JViewport viewport = (JViewport) parent;
+        
+        // row N is drawn at line N + 1
+        int bottom = getInsets().top + getRowCount() + 1;
+        Point position = viewport.getViewPosition();
+        position.y = Math.max(bottom - viewport.getExtentSize().height, 0);
+        viewport.setViewPosition(position);
     }
 
     public void requestFocus() {
@@ -437,8 +647,11 @@ public class JTable extends JComponent implements TableModelListener,
         return true;
     }
     
-    // TODO: Implement drawing within clipping rectangle
-    
+    /**
+     * Paints the table. Only the rows and columns intersecting the clipping
+     * area are painted, so that the painting cost depends on the size 
+     * of the viewport rather than the size of the model.
+     */
     public void paint(Graphics g) {
         // Draw the border if it exists
         super.paint(g);
@@ -448,7 +661,7 @@ public class JTable extends JComponent implements TableModelListener,
 
         ColorPair color = (enabled ? getColor() : disabledColor);
         
-        int rows    = model.getRowCount();
+        int rows    = getRowCount();
         int columns = model.getColumnCount();
 
         // start by blanking out the table area and drawing the box
@@ -457,20 +670,33 @@ public class JTable extends JComponent implements TableModelListener,
         g.fillRect(0, 0, getWidth(), getHeight());
         g.drawRect(0, 0, getWidth(), getHeight());
 
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        
+        int clipRight = clip.x + clip.width;
+        
         // now fill in the table headings
         int x = 1;
-        for (int i = 0; i < columns; i++) {
-            g.drawChar(' ', x, 0);
-            String name = model.getColumnName(i);
-            g.drawString(model.getColumnName(i), x + 1, 0);
-            g.drawChar(' ', x + 1 + name.length(), 0);
-            x += columnModel.getSize(i) + 1;
+        if (clip.y <= 0) {
+            for (int i = 0; i < columns && x < clipRight; i++) {
+                int width = columnModel.getSize(i);
+                if (x + width + 1 > clip.x) {
+                    String name = model.getColumnName(i);
+                    g.drawChar(' ', x, 0);
+                    g.drawString(name, x + 1, 0);
+                    g.drawChar(' ', x + 1 + name.length(), 0);
+                }
+                
+                x += width + 1;
+            }
         }
 
         // now draw the vertical lines that divide the columns
-        if (model.getColumnCount() != 0) {
+        if (columns != 0) {
             x = columnModel.getSize(0) + 1;
-            for (int i = 0; i < columns - 1; i++) {
+            for (int i = 0; i < columns - 1 && x < clipRight; i++) {
                 g.drawChar(GraphicsConstants.VS_TTEE, x, 0);        // top tee
                 g.drawVLine(x + 1, 1, rows, GraphicsConstants.VS_VLINE);
                 g.drawChar(GraphicsConstants.VS_BTEE, x, rows + 1); // bottom tee
@@ -479,34 +705,45 @@ public class JTable extends JComponent implements TableModelListener,
             }
         }
 
+        // the rows within the clipping area, row N is drawn at line N + 1
+        int rowMin = Math.max(clip.y - 1, 0);
+        int rowMax = Math.min(clip.y + clip.height - 2, rows - 1);
+        
         // now draw the contents of the cells
         x = 1;
         boolean hasFocus = hasFocus();
-        for (int column = 0; column < columns; column++) {
-            for (int row = 0; row < rows; row++) {
+        for (int column = 0; column < columns && x < clipRight; column++) {
+            int width = columnModel.getSize(column);
+            if (x + width <= clip.x) {
+                x += width + 1;
+                continue;
+            }
+            
+            boolean columnSelected = isColumnSelected(column);
+            for (int row = rowMin; row <= rowMax; row++) {
                 ColorPair currColor = color;
                 if (row == currentRow && hasFocus) {
                     currColor = selectionColor;
                 }
     
-                if (isRowSelected(row) || isColumnSelected(column)) {
+                if (columnSelected || isRowSelected(row)) {
                     currColor = ColorPair.create(
                             highlightedColor.getForeground(), 
                             currColor.getBackground());
                 }
                 
-                Object value = model.getValueAt(row, column);
+                Object value = getValueAt(row, column);
                 if (value != null) {
                     g.setColor(currColor);
                     if (row == currentRow && hasFocus) {
-                        g.drawHLine(x, row + 1, columnModel.getSize(column), ' ');
+                        g.drawHLine(x, row + 1, width, ' ');
                     }
                     
                     g.drawString(value.toString(), x, row + 1);
                 }
             }
             
-            x += columnModel.getSize(column) + 1;
+            x += width + 1;
         }
     }
 
@@ -543,7 +780,7 @@ public class JTable extends JComponent implements TableModelListener,
         }
         
         // allow no action if table empty
-        if (model.getRowCount() == 0 || model.getColumnCount() == 0) {
+        if (getRowCount() == 0 || model.getColumnCount() == 0) {
             return;
         }
 
@@ -571,19 +808,19 @@ public class JTable extends JComponent implements TableModelListener,
                 }
             }
         } else if (key == KeyEvent.VK_PAGE_DOWN) {
-            if (currentRow == model.getRowCount() - 1) {
+            if (currentRow == getRowCount() - 1) {
 //                SwingUtilities.windowForComponent(this).getTerminal().beep();
             } else {
                 currentRow += getStepSize();
-                if (currentRow > model.getRowCount() - 1)
-                    currentRow = model.getRowCount() - 1;
+                if (currentRow > getRowCount() - 1)
+                    currentRow = getRowCount() - 1;
                 
                 int x = 0;
                 for (int i = 0; i < currentColumn; i++)
                     x += columnModel.getSize(i) + 1;
             }
         } else if (key == KeyEvent.VK_DOWN) {
-            if (currentRow == model.getRowCount() - 1) {
+            if (currentRow == getRowCount() - 1) {
 //                SwingUtilities.windowForComponent(this).getTerminal().beep();
             } else {
                 currentRow++;
@@ -658,7 +895,7 @@ public class JTable extends JComponent implements TableModelListener,
     }
 
     public int getHeight() {
-        return model.getRowCount();
+        return getRowCount();
     }
 
     public void setPreferredScrollableViewportSize(Dimension size) {
@@ -28,7 +28,11 @@ import charva.awt.Point;
 import charva.awt.Rectangle;
 import charva.awt.event.KeyEvent;
 import charva.awt.event.MouseEvent;
+import charvax.swing.event.DocumentEvent;
+import charvax.swing.event.DocumentListener;
+import charvax.swing.text.Document;
 import charvax.swing.text.JTextComponent;
+import charvax.swing.text.TextSearch;
 
 
 /**
@@ -47,12 +51,6 @@ import charvax.swing.text.JTextComponent;
  */
 public class JTextArea extends JTextComponent implements Scrollable {
 
-    private static final int LINE_COUNT         = 1;
-    private static final int LINE_START_OFFSET  = 2;
-    private static final int LINE_END_OFFSET    = 3;
-    private static final int LINE_OF_OFFSET     = 4;
-    
-    
     private int         rows;
     private int         columns;
 
@@ -65,6 +63,25 @@ public class JTextArea extends JTextComponent implements Scrollable {
     private boolean     lineWrap;
     private boolean     wrapStyleWord;
 
+    /** The index of the rows, built when it's needed */
+    private LineIndex   lineIndex;
+    
+    private final DocumentListener documentListener = new DocumentListener() {
+        public void insertUpdate(DocumentEvent e) {
+            if (lineIndex != null) {
+                lineIndex.update(document.getCharSequence(), 
+                        e.getOffset(), 0, e.getLength());
+            }
+        }
+
+        public void removeUpdate(DocumentEvent e) {
+            if (lineIndex != null) {
+                lineIndex.update(document.getCharSequence(), 
+                        e.getOffset(), e.getLength(), 0);
+            }
+        }
+    };
+
     
     /**
      * The default constructor creates an empty text area with 10 rows
@@ -87,7 +104,8 @@ public class JTextArea extends JTextComponent implements Scrollable {
      * and containing the specified text.
      */
     public JTextArea(String text, int rows, int columns) {
-        setDocument(text);
+        setText(text);
+        document.addDocumentListener(documentListener);
         
         this.rows             = rows;
         this.preferredRows    = rows;
@@ -152,8 +170,8 @@ public class JTextArea extends JTextComponent implements Scrollable {
      * Appends the specified text to the end of the document
      */
     public void append(String text) {
-        document.append(text);
-        caretPosition = document.length();
+        document.insertString(document.getLength(), text);
+        caretPosition = document.getLength();
 
         refresh();
     }
@@ -163,7 +181,7 @@ public class JTextArea extends JTextComponent implements Scrollable {
      * specified offset from the start of the document)..
      */
     public void insert(String text, int pos) {
-        super.document.insert(pos, text);
+        document.insertString(pos, text);
         caretPosition = pos + text.length();
 
         refresh();
@@ -174,12 +192,24 @@ public class JTextArea extends JTextComponent implements Scrollable {
      * with the specified text.
      */
     public void replaceRange(String text, int start, int end) {
-        super.document.replace(start, end, text);
+        document.replace(start, end - start, text);
         caretPosition = start + text.length();
 
         refresh();
     }
 
+    /**
+     * Sets the document holding the text of this JTextArea.
+     */
+    public void setDocument(Document document) {
+        this.document.removeDocumentListener(documentListener);
+        super.setDocument(document);
+        document.addDocumentListener(documentListener);
+        lineIndex = null;
+
+        refresh();
+    }
+
     /**
      * Sets the position of the text insertion caret for this JTextArea.
      */
@@ -189,11 +219,31 @@ public class JTextArea extends JTextComponent implements Scrollable {
         refresh();
     }
 
+    /**
+     * Moves the caret to the start of the match and scrolls the match
+     * into view, if this JTextArea is in a JViewport.
+     */
+    protected void showMatch(int start, int end) {
+        setCaretPosition(start);
+
+        LineIndex index = getLineIndex();
+        int row = index.getRowOfOffset(start);
+        int column = start - index.getRowStart(row);
+        int width = Math.max(Math.min(end, index.getRowEnd(row)) - start, 1);
+        Insets insets = getInsets();
+        scrollRectToVisible(new Rectangle(insets.left + column, 
+                insets.top + row, width, 1));
+    }
+
+    protected void searchChanged() {
+        refresh();
+    }
+
     /**
      * Returns the number of lines of text displayed in the JTextArea.
      */
     public int getLineCount() {
-        return offsetCalc(LINE_COUNT, 0);
+        return getLineIndex().getRowCount();
     }
 
     /**
@@ -201,14 +251,14 @@ public class JTextArea extends JTextComponent implements Scrollable {
      * of text.
      */
     public int getLineStartOffset(int line) {
-        return offsetCalc(LINE_START_OFFSET, line);
+        return getLineIndex().getRowStart(line);
     }
 
     /**
      * Returns the offset of the last character in the specified line.
      */
     public int getLineEndOffset(int line) {
-        return offsetCalc(LINE_END_OFFSET, line);
+        return getLineIndex().getRowEnd(line);
     }
 
     /**
@@ -216,7 +266,11 @@ public class JTextArea extends JTextComponent implements Scrollable {
      * to a line number.
      */
     public int getLineOfOffset(int offset) {
-        return offsetCalc(LINE_OF_OFFSET, offset);
+        if (offset < 0 || offset > document.getLength()) {
+            return 0;
+        }
+
+        return getLineIndex().getRowOfOffset(offset);
     }
 
     /**
@@ -297,7 +351,7 @@ public class JTextArea extends JTextComponent implements Scrollable {
             setCaretPosition(caret - 1);
         
         } else if (key == KeyEvent.VK_RIGHT &&
-                caret < getDocument().length()) {
+                caret < document.getLength()) {
             
             setCaretPosition(caret + 1);
         
@@ -371,7 +425,7 @@ public class JTextArea extends JTextComponent implements Scrollable {
             replaceRange("", caret - 1, caret);
 
         } else if (key == KeyEvent.VK_DELETE 
-                && caret < getDocument().length() - 1) {
+                && caret < document.getLength() - 1) {
             
             replaceRange("", caret, caret + 1);
         }
@@ -421,8 +475,6 @@ public class JTextArea extends JTextComponent implements Scrollable {
         }
     }
 
-    // TODO: Implement drawing within clipping rectangle
-    
     public void paint(Graphics g) {
         // draw the border inherited from JComponent, if it exists
         super.paint(g);
@@ -437,108 +489,81 @@ public class JTextArea extends JTextComponent implements Scrollable {
             colorPair = disabledColor;
         }
         
-        Point tempCaret = null;
-        Point caret     = this.caret;
+        final LineIndex index = getLineIndex();
+        final TextSearch search = getSearch();
+        updateSize(index);
 
         // start by blanking out the text area
         g.setColor(colorPair);
         g.fillRect(0, 0, getWidth(), getHeight());
 
-        // scan through the entire document, drawing each character in it
-        int row = 0, col = 0;
-        for (int i = 0; i < document.length(); i++) {
-            // At some point during the scan of the document, the
-            // caret position should match the scan index, unless the caret
-            // position is after the last character of the document.
-            if (caretPosition == i) {
-                tempCaret = new Point(col, row);
-
-                if (!tempCaret.equals(caret)) {
-                    caret = tempCaret;
-                }
-            }
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
 
-            char chr = document.charAt(i);
-            if (col < columns) {
-                if (chr == '\n') {
-                    col = 0;
-                    row++;
-                    if (row >= rows) {
-                        rows++;
-                    }
-                } else {
-                    g.drawChar(chr, col, row);
-                    col++;
-                }
-            } else {
-                // We have reached the right-hand column
-                if (lineWrap == false) {
-                    if (chr == '\n') {
-                        col = 0;
-                        row++;
-                        if (row >= rows) {
-                            rows++;
-                        }
-                    } else {
-                        g.drawChar(chr, col, row);
-                        col++;
-                        columns++;
-                    }
-                } else {
-                    // line-wrap is true
-                    if (wrapStyleWord == false) {
-                        col = 0;
-                        row++;
-                        if (row >= rows) {
-                            rows++;
-                        }
-                        
-                        if (chr != '\n') {// thanks to Chris Rogers for this
-                            g.drawChar(chr, col, row);
-                        }
-                    } else {
-                        // We must back-track until we get to whitespace, so
-                        // that we can move the word to the next line.
-                        int j;
-                        for (j = 0; j < columns; j++) {
-                            char tmpchr = document.charAt(i - j);
-                            if (Character.isWhitespace(tmpchr)) {
-                                deleteEOL(g, col - j, row, colorPair);
-                                col = 0;
-                                row++;
-                                if (row >= rows) {
-                                    rows++;
-                                }
-                                
-                                i -= j;
-                                break;
-                            }
-                        }
-                        
-                        if (j == columns) {
-                            // the word was too long
-                            if (Character.isWhitespace(chr)) {
-                                col = 0;
-                                row++;
-                                if (row >= rows) {
-                                    rows++;
-                                }
-                            }
-                        }
-                    }
+        // draw the visible part of the rows within the clipping area, 
+        // one character per column
+        int firstRow = Math.max(clip.y, 0);
+        int lastRow  = Math.min(clip.y + clip.height, index.getRowCount()) - 1;
+        int firstCol = Math.max(clip.x, 0);
+        int lastCol  = clip.x + clip.width;
+        
+        for (int row = firstRow; row <= lastRow; row++) {
+            int start = index.getRowStart(row) + firstCol;
+            int end   = Math.min(index.getRowEnd(row), 
+                    start - firstCol + lastCol);
+            
+            if (start < end) {
+                g.drawString(document.getText(start, end - start), 
+                        firstCol, row);
+                if (search.getMatchCount() > 0) {
+                    paintMatches(g, search, start, end, 
+                            start - firstCol, row);
+                    g.setColor(colorPair);
                 }
             }
         }
 
-        // check for the case where the caret position is after the last
-        // character of the document
-        if (caretPosition == document.length()) {
-            tempCaret = new Point(col, row);
-            caret = tempCaret;
+        int caretRow = index.getRowOfOffset(caretPosition);
+        int caretCol = caretPosition - index.getRowStart(caretRow);
+        if (caret.x != caretCol || caret.y != caretRow) {
+            caret = new Point(caretCol, caretRow);
+        }
+    }
+
+    /**
+     * Draws the matches of the search within the range [start, end) of 
+     * a row in the selected color.
+     *
+     * @param rowStart  the offset of the first character of the row
+     */
+    private void paintMatches(Graphics g, TextSearch search, 
+            int start, int end, int rowStart, int row) {
+
+        g.setColor(selectedColor);
+        int count = search.getMatchCount();
+        for (int i = search.getFirstMatchEndingAfter(start); i < count; i++) {
+            int matchStart = search.getMatchStart(i);
+            if (matchStart >= end) {
+                break;
+            }
+
+            int from = Math.max(matchStart, start);
+            int to = Math.min(search.getMatchEnd(i), end);
+            g.drawString(document.getText(from, to - from), 
+                    from - rowStart, row);
         }
+    }
 
-        if (!this.caret.equals(caret)) {
-            this.caret = caret;
+    /**
+     * Grows the size of this component, so that it can show all rows, 
+     * and if the lines are not wrapped, the longest row.
+     */
+    private void updateSize(LineIndex index) {
+        rows = Math.max(rows, index.getRowCount());
+        if (!lineWrap) {
+            columns = Math.max(columns, index.getMaxRowLength());
         }
     }
 
@@ -600,102 +625,18 @@ public class JTextArea extends JTextComponent implements Scrollable {
     }
     
     /**
-     * A private helper method to delete from a specified position
-     * until the end of the line.
+     * Returns the index of the rows, rebuilding it if the wrapping
+     * parameters have changed.
      */
-    private void deleteEOL(Graphics g, int col, int row, ColorPair colorpair) {
-        g.setColor(colorpair);
-        for (int i = col; i < columns; i++) {
-            g.drawChar(' ', i, row);
-        }
-    }
-
-    /**
-     * This helper method converts offset to line number and
-     * vice versa.
-     */
-    private int offsetCalc(int mode, int value) {
-        int lineOfOffset = 0;
-        int row = 0;
-
-        if (mode == LINE_START_OFFSET && value == 0)
-            return 0;
-
-        for (int col = 0, i = 0; i < document.length(); i++) {
+    private LineIndex getLineIndex() {
+        if (lineIndex == null 
+                || !lineIndex.matches(columns, lineWrap, wrapStyleWord)) {
             
-            if (mode == LINE_OF_OFFSET && value == i)
-                lineOfOffset = row;
-
-            char chr = document.charAt(i);
-            if (col < columns) {
-                if (chr == '\n') {
-                    col = 0;
-                    row++;
-                } else {
-                    col++;
-                }
-            } else {
-                // we have reached the right-hand column
-                if (lineWrap == false) {
-                    if (chr == '\n') {
-                        col = 0;
-                        row++;
-                    }
-                } else {
-                    // line-wrap is true
-                    if (wrapStyleWord == false) {
-                        col = 0;
-                        row++;
-                    } else {
-                        // we must back-track until we get to whitespace, so
-                        // that we can move the word to the next line.
-                        int j;
-                        for (j = 0; j < columns; j++) {
-                            char tmpchr = document.charAt(i - j);
-                            if (tmpchr == ' ' || tmpchr == '\t') {
-                                col = 0;
-                                row++;
-                                i -= j;
-                                break;
-                            }
-                        }
-                        
-                        if (j == columns) {
-                            // the word was too long
-                            if (chr == ' ' || chr == '\n' || chr == '\t') {
-                                col = 0;
-                                row++;
-                            }
-                        }
-                    }
-                } // end if line-wrap is true
-            } // end if we have reached the right-hand column
-
-            if (mode == LINE_START_OFFSET && col == 0 && row == value)
-                return i + 1;
-            
-            if (mode == LINE_END_OFFSET && col == 0 && row == value + 1)
-                return i;
+            lineIndex = new LineIndex(document.getCharSequence(), 
+                    columns, lineWrap, wrapStyleWord);
         }
-
-        if (mode == LINE_OF_OFFSET) {
-            if (value == document.length())
-                return row;
-            
-            return lineOfOffset;
-        }
-        
-        if (mode == LINE_COUNT)
-            return row + 1;
-        
-        if (mode == LINE_END_OFFSET && row == value)
-            return document.length();
         
-        throw new IndexOutOfBoundsException(
-                "Invalid offset or line number: mode=" + mode 
-                    + ", value=" + value 
-                    + ", row=" + row 
-                    + ", doc=\"" + document + "\"");
+        return lineIndex;
     }
 
     /* Private helper method used to redraw the component if its state
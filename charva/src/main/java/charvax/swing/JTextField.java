@@ -94,9 +94,9 @@ public class JTextField extends JTextComponent {
         setText(text);
         setColumns(length);
         
-        caretPosition = document.length();
-        if (document.length() > columns)
-            offset = document.length() - columns;
+        caretPosition = document.getLength();
+        if (document.getLength() > columns)
+            offset = document.getLength() - columns;
         else
             offset = 0;
     }
@@ -203,13 +203,13 @@ public class JTextField extends JTextComponent {
 
         // get the displayable portion of the string
         int end;
-        if (getText().length() > (offset + columns)) {
+        if (document.getLength() > (offset + columns)) {
             end = offset + columns;
         } else {
-            end = getText().length();
+            end = document.getLength();
         }
 
-        g.drawString(getText().substring(offset, end).toString(), 0, 0);
+        g.drawString(document.getText(offset, end - offset), 0, 0);
     }
 
     /**
@@ -240,7 +240,8 @@ public class JTextField extends JTextComponent {
             // It is a control-character or a printable character. 
             // If it is not a control character, insert it into the text buffer.
             if (key >= ' ') {
-                document.insert(caretPosition, ke.getKeyChar());
+                document.insertString(caretPosition,
+                        String.valueOf(ke.getKeyChar()));
                 caretPosition++;
                 if (caretPosition - offset > columns)
                     offset++;
@@ -253,7 +254,7 @@ public class JTextField extends JTextComponent {
                     offset--;
 
             } else if (key == KeyEvent.VK_RIGHT 
-                    && caretPosition < document.length()) {
+                    && caretPosition < document.getLength()) {
                 
                 caretPosition++;
                 if (caretPosition - offset > columns)
@@ -261,24 +262,24 @@ public class JTextField extends JTextComponent {
 
             } else if (key == KeyEvent.VK_BACK_SPACE && caretPosition > 0) {
                 caretPosition--;
-                document.deleteCharAt(caretPosition);
+                document.remove(caretPosition, 1);
                 if (caretPosition < offset)
                     offset--;
 
             } else if (key == KeyEvent.VK_DELETE 
                     && caretPosition >= 0 
-                    && caretPosition < document.length()) {
+                    && caretPosition < document.getLength()) {
                 
-                document.deleteCharAt(caretPosition);
+                document.remove(caretPosition, 1);
 
             } else if (key == KeyEvent.VK_HOME) {
                 caretPosition = 0;
                 offset        = 0;
 
             } else if (key == KeyEvent.VK_END) {
-                caretPosition = document.length();
-                if (document.length() > columns)
-                    offset = document.length() - columns;
+                caretPosition = document.getLength();
+                if (document.getLength() > columns)
+                    offset = document.getLength() - columns;
                 else
                     offset = 0;
             
@@ -313,8 +314,8 @@ public class JTextField extends JTextComponent {
             origin.translate(insets.left, insets.top);
 
             int new_caret = offset + e.getX();
-            caretPosition = (new_caret < document.length() ? 
-                    new_caret : document.length());
+            caretPosition = (new_caret < document.getLength() ? 
+                    new_caret : document.getLength());
             repaint();
         }
     }
@@ -325,9 +326,9 @@ public class JTextField extends JTextComponent {
     public void setText(String text) {
         super.setText(text);
 
-        caretPosition = document.length();
-        if (document.length() > columns)
-            offset = document.length() - columns;
+        caretPosition = document.getLength();
+        if (document.getLength() > columns)
+            offset = document.getLength() - columns;
         else
             offset = 0;
 
@@ -385,10 +385,10 @@ public class JViewport extends JComponent {
     }
 
     public void paint(Graphics g) {
-        Point p = getViewPosition();
-        //System.out.println("viewPosition: " + p);
+        // the view is clipped by the extent, the clip is translated 
+        // along with the view by Graphics.create()
         Dimension d = getExtentSize();
-        g.setClip(p.x, p.y, d.width, d.height);
+        g.clipRect(0, 0, d.width, d.height);
         
         super.paint(g);
     }
@@ -0,0 +1,301 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing;
+
+
+/**
+ * Index of the display rows of a {@link JTextArea}, kept up to date as
+ * the document is edited.
+ * <p>
+ * For each row but the first, the index holds the offset of the character
+ * that ended the previous row: a newline, the whitespace at which a word
+ * was wrapped, or the character that didn't fit into the row. The row
+ * starts after that character. The offsets are kept sorted, so that the
+ * row of an offset is found by binary search.
+ * <p>
+ * Like the text in {@link charvax.swing.text.PlainDocument}, the offsets
+ * are stored in an array with a gap at the place of the last edit.
+ * The offsets after the gap are stored relative to the end of the text,
+ * so that an edit doesn't need to update them.
+ */
+final class LineIndex {
+
+    private final int       columns;
+    private final boolean   lineWrap;
+    private final boolean   wrapStyleWord;
+
+    private int[]           breaks = new int[16];
+
+    private int             gapStart;
+
+    private int             gapEnd = breaks.length;
+
+    /** The length of the indexed text */
+    private int             length;
+
+    /** The length of the longest row scanned so far */
+    private int             maxRowLength;
+
+    /** The start of the row being scanned */
+    private int             scanRowStart;
+
+
+    /**
+     * Builds the index of the whole text.
+     */
+    LineIndex(CharSequence text, int columns, boolean lineWrap,
+            boolean wrapStyleWord) {
+
+        this.columns       = columns;
+        this.lineWrap      = lineWrap;
+        this.wrapStyleWord = wrapStyleWord;
+
+        length = text.length();
+        scan(text, 0, length);
+    }
+
+    /**
+     * Returns <code>true</code> if the index was built with the given
+     * wrapping parameters. The number of columns doesn't matter if the
+     * lines are not wrapped.
+     */
+    boolean matches(int columns, boolean lineWrap, boolean wrapStyleWord) {
+        if (lineWrap != this.lineWrap) {
+            return false;
+        }
+
+        return (!lineWrap || (columns == this.columns 
+                && wrapStyleWord == this.wrapStyleWord));
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    int getRowCount() {
+        return getBreakCount() + 1;
+    }
+
+    /**
+     * Returns the offset of the first character in the row.
+     */
+    int getRowStart(int row) {
+        if (row == 0) {
+            return 0;
+        }
+
+        if (row < 0 || row > getBreakCount()) {
+            throw new IndexOutOfBoundsException("Invalid row: " + row);
+        }
+
+        return getBreak(row - 1) + 1;
+    }
+
+    /**
+     * Returns the offset of the character that ends the row, or the
+     * length of the text for the last row.
+     */
+    int getRowEnd(int row) {
+        int count = getBreakCount();
+        if (row == count) {
+            return length;
+        }
+
+        if (row < 0 || row > count) {
+            throw new IndexOutOfBoundsException("Invalid row: " + row);
+        }
+
+        return getBreak(row);
+    }
+
+    /**
+     * Returns the number of characters in the longest row. The value
+     * covers all the rows scanned since the index was built, so it
+     * doesn't decrease when text is removed.
+     */
+    int getMaxRowLength() {
+        return maxRowLength;
+    }
+
+    /**
+     * Returns the row containing the character at the offset, which is
+     * the number of rows ended before it.
+     */
+    int getRowOfOffset(int offset) {
+        int low = 0;
+        int high = getBreakCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getBreak(mid) < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Updates the index after an edit of the text. Only the lines
+     * (ended by newlines) touched by the edit are scanned again.
+     *
+     * @param text      the text after the edit
+     * @param offset    the offset of the edit
+     * @param removed   the number of characters removed
+     * @param inserted  the number of characters inserted
+     */
+    void update(CharSequence text, int offset, int removed, int inserted) {
+        final int newLength = text.length();
+        final int oldLength = length;
+        final int delta = inserted - removed;
+
+        // the wrapping always starts again after a newline
+        int start = offset;
+        while (start > 0 && text.charAt(start - 1) != '\n') {
+            start--;
+        }
+
+        // the rows of the lines after the first newline following
+        // the inserted text are only moved
+        int stop = offset + inserted;
+        while (stop < newLength - 1 && text.charAt(stop) != '\n') {
+            stop++;
+        }
+
+        int oldStop = stop - delta;
+
+        // remove the old breaks in the range
+        moveGap(getRowOfOffset(start));
+        while (gapEnd < breaks.length 
+                && oldLength - breaks[gapEnd] <= oldStop) {
+            gapEnd++;
+        }
+
+        length = newLength;
+        scan(text, start, stop);
+    }
+
+    private int getBreakCount() {
+        return breaks.length - (gapEnd - gapStart);
+    }
+
+    private int getBreak(int index) {
+        return (index < gapStart ? breaks[index]
+                                 : length - breaks[index + gapEnd - gapStart]);
+    }
+
+    /**
+     * Adds a break at the gap; the breaks must be added in order.
+     */
+    private void add(int offset) {
+        if (gapStart == gapEnd) {
+            int[] newBreaks = new int[breaks.length * 2];
+            int after = breaks.length - gapEnd;
+            System.arraycopy(breaks, 0, newBreaks, 0, gapStart);
+            System.arraycopy(breaks, gapEnd, newBreaks, 
+                    newBreaks.length - after, after);
+
+            gapEnd = newBreaks.length - after;
+            breaks = newBreaks;
+        }
+
+        breaks[gapStart++] = offset;
+
+        maxRowLength = Math.max(maxRowLength, offset - scanRowStart);
+        scanRowStart = offset + 1;
+    }
+
+    /**
+     * Moves the gap, so that it starts at the specified break index.
+     */
+    private void moveGap(int index) {
+        while (gapStart > index) {
+            gapStart--;
+            gapEnd--;
+            breaks[gapEnd] = length - breaks[gapStart];
+        }
+
+        while (gapStart < index) {
+            breaks[gapStart] = length - breaks[gapEnd];
+            gapStart++;
+            gapEnd++;
+        }
+    }
+
+    /**
+     * Records the breaks in the text from <code>start</code>, which must
+     * be the start of a line, until the newline at or after 
+     * <code>stop</code> or the end of the text. The wrapping follows
+     * the way <code>JTextArea</code> draws the text.
+     */
+    private void scan(CharSequence text, int start, int stop) {
+        final int end = text.length();
+        scanRowStart = start;
+
+        for (int col = 0, i = start; i < end; i++) {
+            char chr = text.charAt(i);
+            if (col < columns || !lineWrap) {
+                if (chr == '\n') {
+                    add(i);
+                    if (i >= stop) {
+                        return;
+                    }
+
+                    col = 0;
+                } else if (col < columns) {
+                    col++;
+                }
+            } else if (!wrapStyleWord) {
+                // the character is wrapped to the next row
+                add(i);
+                if (chr == '\n' && i >= stop) {
+                    return;
+                }
+
+                col = 0;
+            } else {
+                // back-track to whitespace, so that the word
+                // is moved to the next row
+                int j;
+                for (j = 0; j < columns; j++) {
+                    char tmpchr = text.charAt(i - j);
+                    if (tmpchr == ' ' || tmpchr == '\t') {
+                        col = 0;
+                        i -= j;
+                        add(i);
+                        break;
+                    }
+                }
+
+                if (j == columns) {
+                    // the word was too long
+                    if (chr == ' ' || chr == '\n' || chr == '\t') {
+                        col = 0;
+                        add(i);
+                        if (chr == '\n' && i >= stop) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        // the last row
+        maxRowLength = Math.max(maxRowLength, end - scanRowStart);
+    }
+}
@@ -0,0 +1,583 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charvax.swing;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import charva.awt.EventQueue;
+import charva.awt.Toolkit;
+import charvax.swing.event.SwingPropertyChangeSupport;
+
+
+/**
+ * A task, which runs in a background thread and hands its results over
+ * to the event-dispatching thread.
+ * <p>
+ * {@link #doInBackground()} runs on one of the threads of a shared pool
+ * of at most {@link #MAX_WORKER_THREADS} threads; the workers executed
+ * while all of them are busy wait in a queue. The task can hand over its
+ * intermediate results with {@link #publish(Object)}: the chunks published
+ * before the event-dispatching thread gets to them are passed to one call
+ * of {@link #process(List)}, so that a task producing many results doesn't
+ * flood the event queue. The progress set by {@link #setProgress(int)} is
+ * coalesced in the same way, the <code>"progress"</code> property change
+ * is fired with the latest value only. When the task is finished (or 
+ * cancelled), {@link #done()} is called on the event-dispatching thread.
+ * <p>
+ * All the callbacks and property change events are delivered by the 
+ * thread dispatching the events of the toolkit, which was the default
+ * toolkit of the thread calling {@link #execute()}; in a session, 
+ * the background task runs in the context of the session too.
+ * <p>
+ * A worker is meant to be executed only once.
+ *
+ * @see Toolkit#runInContext(Runnable)
+ */
+public abstract class SwingWorker implements Runnable {
+
+    /** The state of a worker that has not been started yet */
+    public static final int PENDING = 0;
+
+    /** The state of a worker, while <code>doInBackground</code> runs */
+    public static final int STARTED = 1;
+
+    /** The state of a worker, after <code>done</code> was called */
+    public static final int DONE = 2;
+
+    /** The maximum number of the threads running the workers */
+    public static final int MAX_WORKER_THREADS = 10;
+
+    private static final WorkerPool pool = new WorkerPool();
+
+    /** Guards the worker's result and the pending updates */
+    private final Object        lock = new Object();
+
+    /** The toolkit, whose event-dispatching thread gets the results */
+    private volatile Toolkit    toolkit;
+
+    /** Changed under the lock, it never goes back from DONE */
+    private volatile int        state = PENDING;
+
+    /** The state of the last "state" event, guarded by the lock */
+    private int                 notifiedState = PENDING;
+
+    private volatile int        progress;
+
+    /** The progress value of the last "progress" event */
+    private int                 notifiedProgress;
+
+    /** The chunks published and not yet processed, guarded by the lock */
+    private ArrayList           chunks = new ArrayList();
+
+    /** Set while the update is queued, guarded by the lock */
+    private boolean             updatePending;
+
+    /** The thread running doInBackground, guarded by the lock */
+    private Thread              runner;
+
+    /** Set when the task is finished or cancelled, guarded by the lock */
+    private boolean             completed;
+
+    /** Guarded by the lock */
+    private boolean             cancelled;
+
+    /** The value returned by doInBackground, guarded by the lock */
+    private Object              result;
+
+    /** The exception thrown by doInBackground, guarded by the lock */
+    private Throwable           exception;
+
+    private final PropertyChangeSupport changeSupport = 
+        new SwingPropertyChangeSupport(this);
+
+    private final Runnable      updater = new Runnable() {
+        public void run() {
+            update();
+        }
+    };
+
+    private final Runnable      stateNotifier = new Runnable() {
+        public void run() {
+            notifyState();
+        }
+    };
+
+    private final Runnable      finisher = new Runnable() {
+        public void run() {
+            done();
+            synchronized (lock) {
+                state = DONE;
+            }
+
+            notifyState();
+        }
+    };
+
+
+    public SwingWorker() {
+    }
+
+    /**
+     * Computes the result, this is called by a background thread.
+     *
+     * @return  the result, returned by {@link #get()}
+     * @throws Exception  if the result can't be computed; it is
+     *                    rethrown by {@link #get()} wrapped in an
+     *                    <code>InvocationTargetException</code>
+     */
+    protected abstract Object doInBackground() throws Exception;
+
+    /**
+     * Receives the chunks published since the last call, this is called by
+     * the event-dispatching thread. This implementation does nothing.
+     *
+     * @param chunks  the chunks, in the order they were published
+     */
+    protected void process(List chunks) {
+    }
+
+    /**
+     * Called by the event-dispatching thread after the task is finished
+     * or cancelled. This implementation does nothing.
+     */
+    protected void done() {
+    }
+
+    /**
+     * Schedules this worker for running on a background thread. 
+     * A worker is executed only once, the subsequent calls have no effect.
+     */
+    public final void execute() {
+        synchronized (lock) {
+            if (toolkit != null) {
+                return;
+            }
+
+            toolkit = Toolkit.getDefaultToolkit();
+        }
+
+        pool.execute(this);
+    }
+
+    /**
+     * Runs the task on the current thread, unless it has already run
+     * or it was cancelled. It is called by the worker pool, but a worker
+     * can also be run by another thread.
+     */
+    public final void run() {
+        synchronized (lock) {
+            if (runner != null || completed) {
+                return;
+            }
+
+            runner = Thread.currentThread();
+            if (toolkit == null) {
+                toolkit = Toolkit.getDefaultToolkit();
+            }
+
+            // not completed, so a cancel() can't have set DONE yet
+            state = STARTED;
+        }
+
+        // notified on the event-dispatching thread, like DONE, so the
+        // listeners get the events in order
+        post(stateNotifier);
+
+        Object value = null;
+        Throwable failure = null;
+        try {
+            value = doInBackground();
+        } catch (Throwable t) {
+            failure = t;
+        }
+
+        synchronized (lock) {
+            runner = null;
+            if (completed) {
+                return;     // cancelled, done() is already scheduled
+            }
+
+            completed = true;
+            result = value;
+            exception = failure;
+            lock.notifyAll();
+        }
+
+        // the pending updates were queued before, so they are delivered
+        // before done()
+        toolkit.invokeLater(finisher);
+    }
+
+    /**
+     * Hands the chunk over to {@link #process(List)}. It is meant to be
+     * called by <code>doInBackground</code>. The chunks published after 
+     * the worker is cancelled are discarded.
+     */
+    protected final void publish(Object chunk) {
+        publish(new Object[] { chunk });
+    }
+
+    /**
+     * Hands the chunks over to {@link #process(List)}.
+     *
+     * @see #publish(Object)
+     */
+    protected final void publish(Object[] chunks) {
+        boolean post;
+        synchronized (lock) {
+            if (cancelled) {
+                return;
+            }
+
+            for (int i = 0; i < chunks.length; i++) {
+                this.chunks.add(chunks[i]);
+            }
+
+            post = !updatePending;
+            updatePending = true;
+        }
+
+        if (post) {
+            post(updater);
+        }
+    }
+
+    /**
+     * Sets the progress of the task. The listeners get the 
+     * <code>"progress"</code> property change on the event-dispatching 
+     * thread; if the progress changes several times before that, they are
+     * notified of the latest value only.
+     *
+     * @param progress  the progress, from 0 to 100
+     * @throws IllegalArgumentException  if the value is out of range
+     */
+    protected final void setProgress(int progress) {
+        if (progress < 0 || progress > 100) {
+            throw new IllegalArgumentException(
+                    "progress must be from 0 to 100: " + progress);
+        }
+
+        boolean post;
+        synchronized (lock) {
+            if (progress == this.progress) {
+                return;
+            }
+
+            this.progress = progress;
+            post = !updatePending;
+            updatePending = true;
+        }
+
+        if (post) {
+            post(updater);
+        }
+    }
+
+    public final int getProgress() {
+        return progress;
+    }
+
+    /**
+     * Delivers the pending chunks and progress, 
+     * this is run by the event-dispatching thread.
+     */
+    private void update() {
+        List pending = null;
+        int oldProgress;
+        int newProgress;
+        synchronized (lock) {
+            updatePending = false;
+            if (!chunks.isEmpty()) {
+                pending = chunks;
+                chunks = new ArrayList();
+            }
+
+            oldProgress = notifiedProgress;
+            newProgress = progress;
+            notifiedProgress = newProgress;
+        }
+
+        if (pending != null) {
+            process(pending);
+        }
+
+        if (oldProgress != newProgress) {
+            firePropertyChange("progress", 
+                    SwingUtilities.valueOf(oldProgress), 
+                    SwingUtilities.valueOf(newProgress));
+        }
+    }
+
+    /**
+     * Cancels the task. If it has not started yet, it never runs. 
+     * If it's running, it may be interrupted; otherwise 
+     * <code>doInBackground</code> should check {@link #isCancelled()} 
+     * from time to time. Either way, its result is discarded and 
+     * {@link #done()} is called.
+     *
+     * @param mayInterruptIfRunning  interrupt the background thread,
+     *                               if the task is running
+     * @return  <code>false</code> if the task has already finished 
+     *          or it was cancelled
+     */
+    public final boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (lock) {
+            if (completed) {
+                return false;
+            }
+
+            completed = true;
+            cancelled = true;
+            chunks.clear();
+            if (mayInterruptIfRunning && runner != null) {
+                runner.interrupt();
+            }
+
+            lock.notifyAll();
+        }
+
+        pool.remove(this);
+        post(finisher);
+        return true;
+    }
+
+    public final boolean isCancelled() {
+        synchronized (lock) {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the task is finished or cancelled. 
+     * <code>done()</code> may not have been called yet.
+     */
+    public final boolean isDone() {
+        synchronized (lock) {
+            return completed;
+        }
+    }
+
+    /**
+     * Returns the state of the worker: {@link #PENDING}, {@link #STARTED}
+     * or {@link #DONE}.
+     */
+    public final int getState() {
+        return state;
+    }
+
+    /**
+     * Notifies the listeners of the change of the state since the last
+     * "state" event, this is run by the event-dispatching thread. If the
+     * worker was cancelled before its start was notified, they get the
+     * change from PENDING to DONE only.
+     */
+    private void notifyState() {
+        int oldState;
+        int newState;
+        synchronized (lock) {
+            oldState = notifiedState;
+            newState = state;
+            notifiedState = newState;
+        }
+
+        if (oldState != newState) {
+            firePropertyChange("state", SwingUtilities.valueOf(oldState), 
+                    SwingUtilities.valueOf(newState));
+        }
+    }
+
+    /**
+     * Waits until the task is finished and returns its result. If it's 
+     * called by the event-dispatching thread, the user interface is
+     * blocked meanwhile.
+     *
+     * @return  the value returned by <code>doInBackground</code>
+     * @throws InterruptedException  if the current thread was interrupted
+     *                               while waiting
+     * @throws InvocationTargetException  if <code>doInBackground</code> 
+     *                                    threw an exception
+     * @throws IllegalStateException  if the worker was cancelled
+     */
+    public final Object get() 
+            throws InterruptedException, InvocationTargetException {
+
+        synchronized (lock) {
+            while (!completed) {
+                lock.wait();
+            }
+
+            if (cancelled) {
+                throw new IllegalStateException("the worker was cancelled");
+            }
+
+            if (exception != null) {
+                throw new InvocationTargetException(exception);
+            }
+
+            return result;
+        }
+    }
+
+    public final void addPropertyChangeListener(
+            PropertyChangeListener listener) {
+
+        changeSupport.addPropertyChangeListener(listener);
+    }
+
+    public final void removePropertyChangeListener(
+            PropertyChangeListener listener) {
+
+        changeSupport.removePropertyChangeListener(listener);
+    }
+
+    public final PropertyChangeSupport getPropertyChangeSupport() {
+        return changeSupport;
+    }
+
+    /**
+     * Notifies the listeners of a property change on the event-dispatching
+     * thread: immediately, if it's called by that thread, or later
+     * otherwise.
+     */
+    public final void firePropertyChange(final String propertyName, 
+            final Object oldValue, final Object newValue) {
+
+        if (isEventThread()) {
+            changeSupport.firePropertyChange(propertyName, oldValue, 
+                    newValue);
+        } else {
+            post(new Runnable() {
+                public void run() {
+                    changeSupport.firePropertyChange(propertyName, 
+                            oldValue, newValue);
+                }
+            });
+        }
+    }
+
+    private boolean isEventThread() {
+        final Toolkit target = toolkit;
+        return ((target == null || Toolkit.getDefaultToolkit() == target)
+                && EventQueue.isDispatchThread());
+    }
+
+    private void post(Runnable runnable) {
+        final Toolkit target = toolkit;
+        (target != null ? target : Toolkit.getDefaultToolkit())
+                .invokeLater(runnable);
+    }
+
+
+    /**
+     * The threads running the workers. They are started when needed, up to
+     * the maximum, and stop after being idle for a while.
+     */
+    private static final class WorkerPool implements Runnable {
+
+        /** The time, after which an idle thread stops (milliseconds) */
+        private static final long KEEP_ALIVE = 10000L;
+
+        /** The workers waiting for a thread, guarded by the pool */
+        private final LinkedList queue = new LinkedList();
+
+        private int             threadCount;
+
+        private int             idleCount;
+
+        private int             threadNumber;
+
+        synchronized void execute(SwingWorker worker) {
+            queue.addLast(worker);
+
+            if (queue.size() > idleCount 
+                    && threadCount < MAX_WORKER_THREADS) {
+
+                // platform threads, since the idle ones wait on the pool's
+                // monitor, which would pin the carrier of a virtual thread
+                Thread thread = new Thread(this, 
+                        "charva-worker-" + threadNumber++);
+                thread.setDaemon(true);
+                thread.start();
+                threadCount++;
+            } else {
+                notify();
+            }
+        }
+
+        synchronized void remove(SwingWorker worker) {
+            queue.remove(worker);
+        }
+
+        public void run() {
+            // the thread serves all the sessions, not the one which started
+            // it; runInContext() restores this unbound state after a worker
+            Toolkit.detachFromSession();
+
+            SwingWorker worker;
+            while ((worker = take()) != null) {
+                try {
+                    worker.toolkit.runInContext(worker);
+                } catch (RuntimeException e) {
+                    // don't let a broken listener kill a shared thread
+                    e.printStackTrace();
+                }
+
+                // an interrupt was meant for the finished worker only
+                Thread.interrupted();
+            }
+        }
+
+        /**
+         * Takes the next worker, waiting for it up to the keep-alive time.
+         *
+         * @return  the worker, or <code>null</code> if the thread should
+         *          stop
+         */
+        private synchronized SwingWorker take() {
+            long timeout = KEEP_ALIVE;
+            idleCount++;
+            try {
+                while (queue.isEmpty()) {
+                    if (timeout <= 0) {
+                        threadCount--;
+                        return null;
+                    }
+
+                    long start = System.currentTimeMillis();
+                    try {
+                        wait(timeout);
+                    } catch (InterruptedException e) {
+                        // the pool's threads are not interrupted by anyone
+                        // but the cancelled workers, which are finished
+                    }
+
+                    timeout -= System.currentTimeMillis() - start;
+                }
+            } finally {
+                idleCount--;
+            }
+
+            return (SwingWorker) queue.removeFirst();
+        }
+    }
+}
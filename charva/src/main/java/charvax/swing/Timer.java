@@ -0,0 +1,249 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charvax.swing;
+
+import java.util.ArrayList;
+import charva.awt.Toolkit;
+import charva.awt.event.ActionEvent;
+import charva.awt.event.ActionListener;
+
+
+/**
+ * Fires one or more action events after a specified delay, and then
+ * optionally repeatedly. The listeners are notified by the 
+ * event-dispatching thread (of the session, which started the timer),
+ * so that they can update the components directly.
+ * <p>
+ * All the timers are driven by one shared scheduler thread, rather than
+ * by a thread each. The ticks are aligned to the frame boundaries of the
+ * timer's toolkit, as limited by its maximum frame rate, and the timers
+ * of a toolkit due at the same frame are notified
+ * by a single event, so that e.g. the indeterminate progress bars of
+ * a screen cost one event per frame, and their changes are painted
+ * together. The average rate of a repeating timer is not affected by the
+ * alignment. If the event of a timer has not been dispatched yet when
+ * the timer is due again, the tick is dropped.
+ * <p>
+ * A timer with an owner component is stopped automatically, when the 
+ * component is removed from its window (<code>removeNotify</code>).
+ */
+public class Timer {
+
+    private final ArrayList     listeners = new ArrayList();
+
+    private int                 delay;
+    private int                 initialDelay;
+    private boolean             repeats = true;
+    private String              actionCommand;
+    private JComponent          owner;
+
+    // the scheduling state, guarded by the queue
+
+    /** Set from <code>start</code> until <code>stop</code>, or until 
+     *  a non-repeating timer fires */
+    boolean                     running;
+
+    /** Set while the timer is waiting in the queue */
+    boolean                     queued;
+
+    /** Set while the notification is waiting in the event queue */
+    boolean                     notifyPending;
+
+    /** The time of the next tick, before it's aligned to a frame */
+    long                        expirationTime;
+
+    /** The toolkit, which dispatches the notifications */
+    Toolkit                     toolkit;
+
+
+    /**
+     * Creates a timer, that notifies the listener every 
+     * <code>delay</code> milliseconds. The initial delay is the same.
+     *
+     * @param delay     the delay in milliseconds
+     * @param listener  the initial listener, can be <code>null</code>
+     */
+    public Timer(int delay, ActionListener listener) {
+        checkDelay(delay);
+
+        this.delay = delay;
+        this.initialDelay = delay;
+        if (listener != null) {
+            addActionListener(listener);
+        }
+    }
+
+    public void addActionListener(ActionListener listener) {
+        synchronized (listeners) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeActionListener(ActionListener listener) {
+        synchronized (listeners) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Returns the delay between the notifications, in milliseconds.
+     */
+    public int getDelay() {
+        return delay;
+    }
+
+    /**
+     * Sets the delay between the notifications. It takes effect
+     * after the next notification.
+     */
+    public void setDelay(int delay) {
+        checkDelay(delay);
+        this.delay = delay;
+    }
+
+    /**
+     * Returns the delay of the first notification, in milliseconds.
+     */
+    public int getInitialDelay() {
+        return initialDelay;
+    }
+
+    public void setInitialDelay(int initialDelay) {
+        checkDelay(initialDelay);
+        this.initialDelay = initialDelay;
+    }
+
+    public boolean isRepeats() {
+        return repeats;
+    }
+
+    /**
+     * If <code>repeats</code> is <code>false</code>, the timer stops 
+     * after the first notification.
+     */
+    public void setRepeats(boolean repeats) {
+        this.repeats = repeats;
+    }
+
+    public String getActionCommand() {
+        return actionCommand;
+    }
+
+    /**
+     * Sets the command of the action events fired by this timer.
+     */
+    public void setActionCommand(String command) {
+        this.actionCommand = command;
+    }
+
+    public JComponent getOwner() {
+        return owner;
+    }
+
+    /**
+     * Ties the timer to the component, so that the timer is stopped 
+     * when the component is removed from its window. 
+     *
+     * @param owner  the component, or <code>null</code>
+     */
+    public void setOwner(JComponent owner) {
+        if (owner == this.owner) {
+            return;
+        }
+
+        if (this.owner != null) {
+            this.owner.removeTimer(this);
+        }
+
+        this.owner = owner;
+        if (owner != null && isRunning()) {
+            owner.addTimer(this);
+        }
+    }
+
+    /**
+     * Starts the timer, the first notification comes after the initial
+     * delay. The notifications are dispatched by the event-dispatching
+     * thread of the current thread's toolkit.
+     */
+    public void start() {
+        TimerQueue.sharedInstance().addTimer(this, 
+                Toolkit.getDefaultToolkit(), initialDelay);
+        if (owner != null) {
+            owner.addTimer(this);
+        }
+    }
+
+    /**
+     * Stops the timer, no more notifications are sent.
+     */
+    public void stop() {
+        TimerQueue.sharedInstance().removeTimer(this);
+        if (owner != null) {
+            owner.removeTimer(this);
+        }
+    }
+
+    /**
+     * Restarts the timer, discarding the pending notifications.
+     */
+    public void restart() {
+        stop();
+        start();
+    }
+
+    public boolean isRunning() {
+        return TimerQueue.sharedInstance().isRunning(this);
+    }
+
+    /**
+     * Notifies the listeners. Called by the event-dispatching thread.
+     */
+    protected void fireActionPerformed(ActionEvent evt) {
+        Object[] targets;
+        synchronized (listeners) {
+            targets = listeners.toArray();
+        }
+
+        for (int i = 0; i < targets.length; i++) {
+            ((ActionListener) targets[i]).actionPerformed(evt);
+        }
+    }
+
+    /**
+     * Called by the event-dispatching thread, when the tick is delivered.
+     */
+    void tick() {
+        if (!TimerQueue.sharedInstance().deliver(this)) {
+            return;     // stopped in the meantime
+        }
+
+        if (!repeats && owner != null) {
+            owner.removeTimer(this);
+        }
+
+        fireActionPerformed(new ActionEvent(this, actionCommand));
+    }
+
+    private static void checkDelay(int delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("invalid delay: " + delay);
+        }
+    }
+}
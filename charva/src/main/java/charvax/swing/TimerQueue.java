@@ -0,0 +1,209 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charvax.swing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import charva.awt.Toolkit;
+
+
+/**
+ * The scheduler of all the {@link Timer}s, driven by a single daemon 
+ * thread. The ticks are aligned to the frames of the timers' toolkits.
+ * On each tick, the due timers are grouped by their toolkits, and each
+ * group is delivered by one invocation event. The timers of the 
+ * sessions, which have ended, are stopped.
+ */
+final class TimerQueue implements Runnable {
+
+    private static TimerQueue   instance;
+
+    /** The timers waiting for their ticks, guarded by this queue */
+    private final ArrayList     timers = new ArrayList();
+
+    private Thread              thread;
+
+
+    private TimerQueue() {
+    }
+
+    static synchronized TimerQueue sharedInstance() {
+        if (instance == null) {
+            instance = new TimerQueue();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Schedules the timer's first tick, discarding the scheduled one,
+     * if the timer is already running.
+     */
+    synchronized void addTimer(Timer timer, Toolkit toolkit, int delay) {
+        timer.running = true;
+        timer.toolkit = toolkit;
+        timer.expirationTime = System.currentTimeMillis() + delay;
+        if (!timer.queued) {
+            timer.queued = true;
+            timers.add(timer);
+        }
+
+        if (thread == null) {
+            // it only waits for the ticks, it's never blocked otherwise
+            thread = new Thread(this, "charva-timer");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            notify();
+        }
+    }
+
+    synchronized void removeTimer(Timer timer) {
+        timer.running = false;
+        if (timer.queued) {
+            timer.queued = false;
+            timers.remove(timer);
+        }
+    }
+
+    synchronized boolean isRunning(Timer timer) {
+        return timer.running;
+    }
+
+    /**
+     * Called by the event-dispatching thread, before the timer's listeners
+     * are notified. 
+     *
+     * @return  <code>false</code> if the timer has been stopped since
+     *          the tick
+     */
+    synchronized boolean deliver(Timer timer) {
+        timer.notifyPending = false;
+        if (!timer.running) {
+            return false;
+        }
+
+        if (!timer.queued) {
+            timer.running = false;      // the only tick of the timer
+        }
+
+        return true;
+    }
+
+    public void run() {
+        // the thread serves all the sessions, not the one which started it
+        Toolkit.detachFromSession();
+
+        while (true) {
+            HashMap due;
+            try {
+                due = waitForTicks();
+            } catch (InterruptedException e) {
+                synchronized (this) {
+                    thread = null;
+                }
+                return;
+            }
+
+            Iterator iter = due.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry entry = (Map.Entry) iter.next();
+                final Object[] group = ((ArrayList) entry.getValue()).toArray();
+
+                // one tick per timer is pending at most, so the queue
+                // can't be flooded, and a full one doesn't block the thread
+                ((Toolkit) entry.getKey()).invokeLaterNoWait(new Runnable() {
+                    public void run() {
+                        for (int i = 0; i < group.length; i++) {
+                            ((Timer) group[i]).tick();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Waits until some timers are due, and schedules their next ticks.
+     *
+     * @return  the due timers, grouped by their toolkits
+     */
+    private synchronized HashMap waitForTicks() throws InterruptedException {
+        while (true) {
+            final long now = System.currentTimeMillis();
+            long next = Long.MAX_VALUE;
+            HashMap due = null;
+
+            for (int i = timers.size() - 1; i >= 0; i--) {
+                final Timer timer = (Timer) timers.get(i);
+                if (timer.toolkit.isSessionEnded()) {
+                    timer.running = false;
+                    timer.queued = false;
+                    timers.remove(i);
+                    continue;
+                }
+
+                final long tickTime = 
+                        timer.toolkit.getFrameTime(timer.expirationTime);
+                if (tickTime > now) {
+                    next = Math.min(next, tickTime);
+                    continue;
+                }
+
+                // the tick is dropped, if the previous one is still pending
+                if (!timer.notifyPending) {
+                    timer.notifyPending = true;
+                    if (due == null) {
+                        due = new HashMap();
+                    }
+
+                    ArrayList group = (ArrayList) due.get(timer.toolkit);
+                    if (group == null) {
+                        group = new ArrayList();
+                        due.put(timer.toolkit, group);
+                    }
+                    group.add(timer);
+                }
+
+                if (timer.isRepeats()) {
+                    // keep the average rate, but don't try to catch up
+                    timer.expirationTime = Math.max(
+                            timer.expirationTime + timer.getDelay(), now);
+                    next = Math.min(next, 
+                            timer.toolkit.getFrameTime(timer.expirationTime));
+                } else {
+                    timer.queued = false;
+                    timers.remove(i);
+                }
+            }
+
+            if (due != null) {
+                return due;
+            }
+
+            if (next == Long.MAX_VALUE) {
+                wait();
+            } else {
+                wait(Math.max(next - now, 1));
+            }
+        }
+    }
+}
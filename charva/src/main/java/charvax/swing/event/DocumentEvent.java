@@ -0,0 +1,95 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing.event;
+
+import java.util.EventObject;
+import charvax.swing.text.Document;
+
+
+/**
+ * This event is fired when text is inserted into or removed from 
+ * a document.
+ */
+public class DocumentEvent extends EventObject {
+
+    private static final long serialVersionUID = 4154735745069226426L;
+
+    /** Identifies the insertion of text.   */
+    public static final int INSERT  = 1;
+
+    /** Identifies the removal of text.     */
+    public static final int REMOVE  = 2;
+
+
+    private int     offset;
+    private int     length;
+    private int     type;
+
+
+    /**
+     * Constructs a DocumentEvent.
+     *
+     * @param source  the document that has changed
+     * @param offset  the offset of the change
+     * @param length  the number of characters inserted or removed
+     * @param type    <code>INSERT</code> or <code>REMOVE</code>
+     */
+    public DocumentEvent(Document source, int offset, int length, int type) {
+        super(source);
+
+        this.offset = offset;
+        this.length = length;
+        this.type   = type;
+    }
+
+    /**
+     * Returns the document that has changed.
+     */
+    public Document getDocument() {
+        return (Document) getSource();
+    }
+
+    /**
+     * Returns the offset within the document of the start of the change.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of characters inserted or removed.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the type of event, <code>INSERT</code> or <code>REMOVE</code>.
+     */
+    public int getType() {
+        return type;
+    }
+
+    public String toString() {
+        return getClass().getName()
+                + "[offset=" + offset
+                + ",length=" + length
+                + ",type=" + (type == INSERT ? "INSERT" : "REMOVE")
+                + "]";
+    }
+}
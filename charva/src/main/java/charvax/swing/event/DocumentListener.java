@@ -0,0 +1,36 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing.event;
+
+
+/**
+ * Interface for an object that listens for changes in a
+ * {@link charvax.swing.text.Document}.
+ */
+public interface DocumentListener {
+
+    /**
+     * Called after text has been inserted into the document.
+     */
+    public void insertUpdate(DocumentEvent e);
+
+    /**
+     * Called after text has been removed from the document.
+     */
+    public void removeUpdate(DocumentEvent e);
+}
@@ -129,6 +129,14 @@ public class DefaultTableCellRenderer extends JLabel implements TableCellRendere
     public void validate() {
     }
 
+    /**
+     * Overridden for performance reasons.
+     * See the <a href="#override">Implementation Note</a>
+     * for more information.
+     */
+    public void repaint(int x, int y, int width, int height) {
+    }
+
     /**
      * Overridden for performance reasons.
      * See the <a href="#override">Implementation Note</a>
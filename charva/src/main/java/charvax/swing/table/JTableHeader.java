@@ -125,20 +125,8 @@ public class JTableHeader extends JComponent {
     }
 
     private int getColumnWidth(int column) {
-        TableModel model = table.getModel();
-        
-        // calculate the column width for the specified column
-        int columnwidth = model.getColumnName(column).length() + 2;
-
-        for (int j = 0; j < model.getRowCount(); j++) {
-            Object value = model.getValueAt(j, column);
-            if (value != null) {
-                int width = value.toString().length();
-                if (width > columnwidth)
-                    columnwidth = width;
-            }
-        }
-        
-        return columnwidth;
+        // use the same widths as the table does, scanning all the rows
+        // of the model is not affordable for large tables
+        return table.getColumnWidth(column);
     }
 }
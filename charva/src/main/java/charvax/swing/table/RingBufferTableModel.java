@@ -0,0 +1,244 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing.table;
+
+import java.util.ArrayList;
+import charva.awt.Toolkit;
+
+
+/**
+ * Table model with a fixed capacity, intended for live feeds such as
+ * logs or trades. The rows are kept in a ring buffer; when the buffer is
+ * full, appending a row evicts the oldest one.
+ * <p>
+ * The <code>addRow</code> and <code>addRows</code> methods may be called
+ * from any thread. The appended rows are queued and moved into the table
+ * by a single task on the event-dispatching thread, so that the listeners
+ * receive at most one <code>DELETE</code> event (for the evicted rows)
+ * and one <code>INSERT</code> event per dispatch, regardless of how many
+ * rows were appended in the meantime.
+ * <p>
+ * All the other methods must be called from the event-dispatching thread.
+ * The model belongs to the toolkit of the thread constructing it, whose
+ * event-dispatching thread moves the appended rows into the table.
+ *
+ * @see charvax.swing.JTable#setFollowTail(boolean)
+ */
+public class RingBufferTableModel extends AbstractTableModel {
+
+    private final Object[]      columnNames;
+
+    /** The rows, the oldest one is at index <code>head</code> */
+    private final Object[][]    rows;
+
+    private int                 head;
+
+    private int                 size;
+
+    /** Rows appended but not yet moved into the buffer */
+    private ArrayList           pending = new ArrayList();
+
+    /** Guards <code>pending</code> and <code>flushScheduled</code> */
+    private final Object        pendingLock = new Object();
+
+    private boolean             flushScheduled;
+
+    /** The toolkit, whose event-dispatching thread flushes the rows */
+    private final Toolkit       toolkit = Toolkit.getDefaultToolkit();
+
+    private final Runnable      flushTask = new Runnable() {
+        public void run() {
+            flush();
+        }
+    };
+
+
+    /**
+     * Constructs an empty model.
+     *
+     * @param columnNames  the names of the columns
+     * @param capacity     the maximum number of rows
+     * @throws IllegalArgumentException  if the capacity is not positive
+     */
+    public RingBufferTableModel(Object[] columnNames, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "capacity must be positive: " + capacity);
+        }
+
+        this.columnNames = columnNames;
+        this.rows = new Object[capacity][];
+    }
+
+    /**
+     * Returns the maximum number of rows held by this model.
+     */
+    public int getCapacity() {
+        return rows.length;
+    }
+
+    public int getRowCount() {
+        return size;
+    }
+
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    public String getColumnName(int column) {
+        return columnNames[column].toString();
+    }
+
+    /**
+     * Returns the value at the specified row and column, or
+     * <code>null</code> if the row has fewer values than there are columns.
+     *
+     * @param row  the row index, 0 is the oldest row
+     */
+    public Object getValueAt(int row, int column) {
+        Object[] values = rows[index(row)];
+        return (column < values.length ? values[column] : null);
+    }
+
+    /**
+     * Sets the value of a single cell. Only cells, for which the row was
+     * appended with enough values, can be set.
+     */
+    public void setValueAt(Object value, int row, int column) {
+        rows[index(row)][column] = value;
+        fireTableCellUpdated(row, column);
+    }
+
+    /**
+     * Appends a row to the table. The row becomes visible to the listeners
+     * when the event-dispatching thread processes the queued rows.
+     * This method may be called from any thread.
+     *
+     * @param values  the values of the row's cells; the array is
+     *                not copied and must not be modified afterwards
+     */
+    public void addRow(Object[] values) {
+        synchronized (pendingLock) {
+            pending.add(values);
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Appends a number of rows to the table as a single batch.
+     * This method may be called from any thread.
+     *
+     * @param values  the rows, oldest first
+     * @see #addRow(Object[])
+     */
+    public void addRows(Object[][] values) {
+        synchronized (pendingLock) {
+            for (int i = 0; i < values.length; i++) {
+                pending.add(values[i]);
+            }
+
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        // the queued task will take all rows appended until it runs
+        if (!flushScheduled && !pending.isEmpty()) {
+            flushScheduled = true;
+            toolkit.invokeLater(flushTask);
+        }
+    }
+
+    /**
+     * Moves the queued rows into the table, evicting the oldest rows if
+     * the capacity is exceeded, and notifies the listeners. It is called
+     * automatically; it can be called directly from the event-dispatching
+     * thread to make the appended rows visible immediately.
+     */
+    public void flush() {
+        ArrayList batch;
+        synchronized (pendingLock) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            batch = pending;
+            pending = new ArrayList();
+        }
+
+        final int capacity = rows.length;
+        int count = batch.size();
+
+        // rows that would be evicted by the batch itself are skipped
+        int skip = Math.max(count - capacity, 0);
+        count -= skip;
+
+        int evicted = Math.max(size + count - capacity, 0);
+        if (evicted > 0) {
+            for (int i = 0; i < evicted; i++) {
+                rows[index(i)] = null;
+            }
+
+            head = (head + evicted) % capacity;
+            size -= evicted;
+            fireTableRowsDeleted(0, evicted - 1);
+        }
+
+        int first = size;
+        for (int i = 0; i < count; i++) {
+            rows[(head + size) % capacity] = (Object[]) batch.get(skip + i);
+            size++;
+        }
+
+        fireTableRowsInserted(first, size - 1);
+    }
+
+    /**
+     * Removes all rows from the table, including the rows that have been
+     * appended, but not flushed yet.
+     */
+    public void clear() {
+        synchronized (pendingLock) {
+            pending.clear();
+        }
+
+        if (size == 0) {
+            return;
+        }
+
+        int last = size - 1;
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = null;
+        }
+
+        head = 0;
+        size = 0;
+        fireTableRowsDeleted(0, last);
+    }
+
+    private int index(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException(
+                    "row " + row + " out of range 0.." + (size - 1));
+        }
+
+        int index = head + row;
+        return (index < rows.length ? index : index - rows.length);
+    }
+}
@@ -0,0 +1,37 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing.table;
+
+
+/**
+ * Filter used by {@link TableRowSorter} to decide, which rows of the model
+ * are shown in the view.
+ * <p>
+ * The filter is always invoked from the event-dispatching thread.
+ */
+public abstract class RowFilter {
+
+    /**
+     * Returns <code>true</code> if the specified row of the model should
+     * be shown in the view.
+     *
+     * @param model  the table model
+     * @param row    the row index in the model
+     */
+    public abstract boolean include(TableModel model, int row);
+}
@@ -0,0 +1,948 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing.table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import charva.awt.Platform;
+import charvax.swing.SwingUtilities;
+import charvax.swing.event.ChangeEvent;
+import charvax.swing.event.ChangeListener;
+import charvax.swing.event.EventListenerList;
+import charvax.swing.event.TableModelEvent;
+import charvax.swing.event.TableModelListener;
+
+
+/**
+ * Provides sorting and filtering of the rows of a <code>TableModel</code>,
+ * without changing the model itself.
+ * <p>
+ * The sorter keeps the mapping between the rows of the view and the rows
+ * of the model in primitive <code>int</code> arrays. The values of the
+ * sorted columns are fetched from the model once per sort, so the model
+ * is not queried during comparisons.
+ * <p>
+ * Changes of the model are applied incrementally: inserted and updated
+ * rows are put to their places by binary search, deleted rows are
+ * removed from the mapping. If too many rows are changed at once,
+ * the whole model is sorted again.
+ * <p>
+ * Models having at least <code>getBackgroundThreshold()</code> rows are
+ * sorted in a background thread. Until the sort is finished, the view
+ * keeps the previous order, then the new mapping is swapped in on the
+ * event-dispatching thread. If the model or the sort criteria change in
+ * the meantime, the background sort is abandoned and started again.
+ * <p>
+ * Except for the background sort, this class should be used from the
+ * event-dispatching thread only. {@link charvax.swing.JTable} forwards
+ * the events of its model to the sorter, so the sorter shouldn't be
+ * registered as a listener of the model, when used with a table.
+ *
+ * @see charvax.swing.JTable#setRowSorter(TableRowSorter)
+ */
+public class TableRowSorter implements TableModelListener {
+
+    /**
+     * Sort criteria of one column.
+     */
+    public static final class SortKey {
+
+        private final int       column;
+        private final boolean   ascending;
+
+
+        /**
+         * Creates a sort key for the specified column.
+         *
+         * @param column     the column index in the model
+         * @param ascending  the sort order
+         */
+        public SortKey(int column, boolean ascending) {
+            if (column < 0) {
+                throw new IllegalArgumentException("column < 0");
+            }
+
+            this.column    = column;
+            this.ascending = ascending;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public boolean isAscending() {
+            return ascending;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof SortKey)) {
+                return false;
+            }
+
+            SortKey key = (SortKey) o;
+            return (column == key.column && ascending == key.ascending);
+        }
+
+        public int hashCode() {
+            return (column << 1) | (ascending ? 1 : 0);
+        }
+
+        public String toString() {
+            return "SortKey[column=" + column
+                + "," + (ascending ? "ascending" : "descending") + "]";
+        }
+    }
+
+    /**
+     * Default number of model rows, starting from which the rows are
+     * sorted in a background thread
+     */
+    public static final int DEFAULT_BACKGROUND_THRESHOLD = 100000;
+
+    /**
+     * Maximum number of rows, that are inserted or updated incrementally,
+     * if more rows are changed, the whole model is sorted again
+     */
+    private static final int INCREMENTAL_LIMIT  = 64;
+
+    /**
+     * Compares the values as <code>Comparable</code> if they are
+     * of the same class, otherwise compares their string representations.
+     * The <code>null</code> values go first.
+     */
+    private static final Comparator DEFAULT_COMPARATOR = new Comparator() {
+        public int compare(Object o1, Object o2) {
+            if (o1 == o2) {
+                return 0;
+            }
+            if (o1 == null) {
+                return -1;
+            }
+            if (o2 == null) {
+                return 1;
+            }
+
+            if (o1 instanceof Comparable && o1.getClass() == o2.getClass()) {
+                return ((Comparable) o1).compareTo(o2);
+            }
+
+            return o1.toString().compareTo(o2.toString());
+        }
+    };
+
+    private final TableModel    model;
+
+    private List                sortKeys = Collections.EMPTY_LIST;
+    private HashMap             comparators;
+    private RowFilter           filter;
+    private int                 backgroundThreshold =
+        DEFAULT_BACKGROUND_THRESHOLD;
+
+    /**
+     * The model row for each row of the view, <code>null</code> if the
+     * view shows the model as is
+     */
+    private int[]               viewToModel;
+
+    /**
+     * The view row for each row of the model (-1 if the row is filtered
+     * out), built on demand
+     */
+    private int[]               modelToView;
+
+    /**
+     * The values of the sorted columns, indexed by sort key and model row,
+     * <code>null</code> if not fetched
+     */
+    private Object[][]          keyValues;
+
+    /**
+     * The number of rows of the model the mapping and the fetched
+     * values were built for
+     */
+    private int                 modelRowCount;
+
+    /** Compares the model rows, using the fetched values */
+    private RowComparator       rowComparator;
+
+    /**
+     * Incremented each time the sort is started, the results of
+     * the background sort are discarded if it has changed
+     */
+    private volatile int        generation;
+
+    /** Set while the background sort is running */
+    private boolean             sorting;
+
+    protected EventListenerList listenerList = new EventListenerList();
+
+    private ChangeEvent         changeEvent;
+
+
+    /**
+     * Creates a sorter for the specified model. Initially the rows are
+     * neither sorted nor filtered.
+     *
+     * @param model  the table model
+     */
+    public TableRowSorter(TableModel model) {
+        if (model == null) {
+            throw new NullPointerException("model");
+        }
+
+        this.model = model;
+    }
+
+    /**
+     * Returns the underlying model.
+     */
+    public TableModel getModel() {
+        return model;
+    }
+
+    /**
+     * Sets the sort criteria and sorts the rows. The first key is the
+     * primary one, the following keys are used to order the rows which
+     * are equal by the previous keys. The rows equal by all the keys keep
+     * their order in the model.
+     *
+     * @param keys  the list of {@link SortKey} objects, <code>null</code>
+     *              or empty list to show the rows in the model order
+     */
+    public void setSortKeys(List keys) {
+        if (keys == null || keys.isEmpty()) {
+            sortKeys = Collections.EMPTY_LIST;
+        } else {
+            ArrayList list = new ArrayList(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                list.add((SortKey) keys.get(i));
+            }
+
+            sortKeys = Collections.unmodifiableList(list);
+        }
+
+        sort();
+    }
+
+    /**
+     * Returns the current sort criteria, the list can't be modified.
+     */
+    public List getSortKeys() {
+        return sortKeys;
+    }
+
+    /**
+     * Makes the specified column the primary sort key. If it is already
+     * the primary key, its sort order is reversed.
+     *
+     * @param column  the column index in the model
+     */
+    public void toggleSortOrder(int column) {
+        ArrayList keys = new ArrayList(sortKeys);
+        boolean ascending = true;
+
+        for (int i = 0; i < keys.size(); i++) {
+            SortKey key = (SortKey) keys.get(i);
+            if (key.getColumn() == column) {
+                if (i == 0) {
+                    ascending = !key.isAscending();
+                }
+
+                keys.remove(i);
+                break;
+            }
+        }
+
+        keys.add(0, new SortKey(column, ascending));
+        setSortKeys(keys);
+    }
+
+    /**
+     * Sets the comparator used for the specified column, the rows are
+     * sorted again if the column is sorted.
+     *
+     * @param column      the column index in the model
+     * @param comparator  the comparator, <code>null</code> to use the
+     *                    default one
+     */
+    public void setComparator(int column, Comparator comparator) {
+        if (comparators == null) {
+            comparators = new HashMap();
+        }
+
+        comparators.put(new Integer(column), comparator);
+
+        if (isSortKey(column)) {
+            sort();
+        }
+    }
+
+    /**
+     * Returns the comparator used for the specified column.
+     * <p>
+     * The default comparator compares the values as
+     * <code>Comparable</code> if they are of the same class, otherwise
+     * compares their string representations.
+     *
+     * @param column  the column index in the model
+     */
+    public Comparator getComparator(int column) {
+        if (comparators != null) {
+            Comparator comparator =
+                (Comparator) comparators.get(new Integer(column));
+
+            if (comparator != null) {
+                return comparator;
+            }
+        }
+
+        return DEFAULT_COMPARATOR;
+    }
+
+    /**
+     * Sets the filter, that decides which rows are shown in the view, and
+     * sorts the rows again.
+     *
+     * @param filter  the filter, <code>null</code> to show all the rows
+     */
+    public void setRowFilter(RowFilter filter) {
+        this.filter = filter;
+        sort();
+    }
+
+    public RowFilter getRowFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the number of model rows, starting from which the rows are
+     * sorted in a background thread.
+     */
+    public void setBackgroundThreshold(int rows) {
+        this.backgroundThreshold = rows;
+    }
+
+    public int getBackgroundThreshold() {
+        return backgroundThreshold;
+    }
+
+    /**
+     * Returns <code>true</code> if the rows are being sorted in
+     * a background thread.
+     */
+    public boolean isSorting() {
+        return sorting;
+    }
+
+    /**
+     * Returns the number of rows in the view.
+     */
+    public int getViewRowCount() {
+        final int[] viewToModel = this.viewToModel;
+        if (viewToModel == null) {
+            return model.getRowCount();
+        }
+
+        return viewToModel.length;
+    }
+
+    /**
+     * Returns the number of rows in the model.
+     */
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    /**
+     * Returns the model row shown at the specified row of the view.
+     *
+     * @param index  the row index in the view
+     * @throws IndexOutOfBoundsException  if the index is out of range
+     */
+    public int convertRowIndexToModel(int index) {
+        final int[] viewToModel = this.viewToModel;
+        if (viewToModel == null) {
+            if (index < 0 || index >= model.getRowCount()) {
+                throw new IndexOutOfBoundsException("Invalid index: "
+                        + index);
+            }
+
+            return index;
+        }
+
+        return viewToModel[index];
+    }
+
+    /**
+     * Returns the row of the view showing the specified model row.
+     *
+     * @param index  the row index in the model
+     * @return the row index in the view, or -1 if the row is filtered out
+     * @throws IndexOutOfBoundsException  if the index is out of range
+     */
+    public int convertRowIndexToView(int index) {
+        final int[] viewToModel = this.viewToModel;
+        if (viewToModel == null) {
+            if (index < 0 || index >= model.getRowCount()) {
+                throw new IndexOutOfBoundsException("Invalid index: "
+                        + index);
+            }
+
+            return index;
+        }
+
+        if (modelToView == null) {
+            int[] map = new int[model.getRowCount()];
+            for (int i = 0; i < map.length; i++) {
+                map[i] = -1;
+            }
+            for (int i = 0; i < viewToModel.length; i++) {
+                map[viewToModel[i]] = i;
+            }
+
+            modelToView = map;
+        }
+
+        return modelToView[index];
+    }
+
+    /**
+     * Sorts and filters all the rows of the model. If the model is large,
+     * the rows are sorted in a background thread.
+     *
+     * @see #getBackgroundThreshold()
+     */
+    public void sort() {
+        final int gen = ++generation;
+        final int rowCount = model.getRowCount();
+        modelRowCount = rowCount;
+
+        int[] rows = null;
+        if (filter != null) {
+            rows = filterRows(0, rowCount - 1);
+        }
+
+        if (sortKeys.isEmpty()) {
+            keyValues     = null;
+            rowComparator = null;
+            sorting       = false;
+            setViewToModel(rows);
+            return;
+        }
+
+        if (rows == null) {
+            rows = new int[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                rows[i] = i;
+            }
+        }
+
+        // fetch the values here, the model can't be used
+        // from the background thread
+        final int keyCount = sortKeys.size();
+        final Comparator[] keyComparators = new Comparator[keyCount];
+        final boolean[] ascending = new boolean[keyCount];
+        keyValues = new Object[keyCount][];
+
+        for (int k = 0; k < keyCount; k++) {
+            SortKey key = (SortKey) sortKeys.get(k);
+            keyComparators[k] = getComparator(key.getColumn());
+            ascending[k] = key.isAscending();
+            keyValues[k] = fetchValues(key.getColumn(), 0, rowCount);
+        }
+
+        rowComparator = new RowComparator(keyValues, keyComparators,
+                ascending);
+
+        if (rowCount < backgroundThreshold) {
+            sort(rows, rowComparator, -1);
+            sorting = false;
+            setViewToModel(rows);
+            return;
+        }
+
+        sorting = true;
+
+        final int[] result = rows;
+        final RowComparator comparator = rowComparator;
+        Thread thread = Platform.newThread(new Runnable() {
+            public void run() {
+                if (!sort(result, comparator, gen)) {
+                    return;     // abandoned
+                }
+
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        if (gen == generation) {
+                            sorting = false;
+                            setViewToModel(result);
+                        }
+                    }
+                });
+            }
+        }, "charva-sorter");
+
+        thread.start();
+    }
+
+    /**
+     * Updates the mapping according to the changes of the model.
+     */
+    public void tableChanged(TableModelEvent evt) {
+        final int firstRow = evt.getFirstRow();
+        final int lastRow  = evt.getLastRow();
+
+        if (firstRow == TableModelEvent.HEADER_ROW) {
+            // the structure of the model has changed
+            removeInvalidKeys();
+            sort();
+            return;
+        }
+
+        if (viewToModel == null && !sorting) {
+            // neither sorted nor filtered
+            return;
+        }
+
+        final int type = evt.getType();
+        int expected = modelRowCount;
+        if (type == TableModelEvent.INSERT) {
+            expected += lastRow - firstRow + 1;
+        } else if (type == TableModelEvent.DELETE) {
+            expected -= lastRow - firstRow + 1;
+        }
+
+        if (model.getRowCount() != expected) {
+            // the event doesn't describe the change of the row count
+            // (e.g. fireTableDataChanged), the mapping can't be updated
+            sort();
+            return;
+        }
+
+        switch (type) {
+        case TableModelEvent.INSERT:
+            rowsInserted(firstRow, lastRow);
+            break;
+
+        case TableModelEvent.DELETE:
+            rowsDeleted(firstRow, lastRow);
+            break;
+
+        default:
+            final int column = evt.getColumn();
+            if (column != TableModelEvent.ALL_COLUMNS && filter == null
+                    && !isSortKey(column) && !sorting) {
+
+                // the order is not affected
+                return;
+            }
+
+            rowsUpdated(firstRow, lastRow);
+            break;
+        }
+    }
+
+    private void rowsInserted(int firstRow, int lastRow) {
+        final int count = lastRow - firstRow + 1;
+        modelRowCount += count;
+
+        // shift the following rows, so that the view stays valid
+        // until the rows are sorted again
+        int[] rows = viewToModel;
+        if (rows != null) {
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] >= firstRow) {
+                    rows[i] += count;
+                }
+            }
+
+            modelToView = null;
+        }
+
+        if (sorting || rows == null || count > INCREMENTAL_LIMIT) {
+            sort();
+            return;
+        }
+
+        if (keyValues != null) {
+            for (int k = 0; k < keyValues.length; k++) {
+                Object[] values = keyValues[k];
+                Object[] newValues = new Object[values.length + count];
+                System.arraycopy(values, 0, newValues, 0, firstRow);
+                System.arraycopy(values, firstRow, newValues,
+                        firstRow + count, values.length - firstRow);
+
+                SortKey key = (SortKey) sortKeys.get(k);
+                Object[] inserted = fetchValues(key.getColumn(),
+                        firstRow, count);
+                System.arraycopy(inserted, 0, newValues, firstRow, count);
+
+                keyValues[k] = newValues;
+            }
+        }
+
+        insertRows(rows, rows.length, firstRow, lastRow);
+    }
+
+    private void rowsDeleted(int firstRow, int lastRow) {
+        final int count = lastRow - firstRow + 1;
+        modelRowCount -= count;
+
+        int[] rows = viewToModel;
+        if (rows != null) {
+            int size = 0;
+            for (int i = 0; i < rows.length; i++) {
+                int row = rows[i];
+                if (row > lastRow) {
+                    rows[size++] = row - count;
+                } else if (row < firstRow) {
+                    rows[size++] = row;
+                }
+            }
+
+            int[] newRows = new int[size];
+            System.arraycopy(rows, 0, newRows, 0, size);
+            rows = newRows;
+        }
+
+        if (sorting) {
+            viewToModel = rows;
+            modelToView = null;
+            sort();
+            return;
+        }
+
+        if (keyValues != null) {
+            for (int k = 0; k < keyValues.length; k++) {
+                Object[] values = keyValues[k];
+                Object[] newValues = new Object[values.length - count];
+                System.arraycopy(values, 0, newValues, 0, firstRow);
+                System.arraycopy(values, lastRow + 1, newValues, firstRow,
+                        values.length - lastRow - 1);
+
+                keyValues[k] = newValues;
+            }
+        }
+
+        setViewToModel(rows);
+    }
+
+    private void rowsUpdated(int firstRow, int lastRow) {
+        final int rowCount = model.getRowCount();
+        if (lastRow >= rowCount) {
+            lastRow = rowCount - 1;
+        }
+
+        final int count = lastRow - firstRow + 1;
+        if (sorting || count > INCREMENTAL_LIMIT) {
+            sort();
+            return;
+        }
+
+        if (count <= 0) {
+            return;
+        }
+
+        // take the updated rows out of the view
+        int[] rows = viewToModel;
+        int size = 0;
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i];
+            if (row < firstRow || row > lastRow) {
+                rows[size++] = row;
+            }
+        }
+
+        if (keyValues != null) {
+            for (int k = 0; k < keyValues.length; k++) {
+                SortKey key = (SortKey) sortKeys.get(k);
+                Object[] updated = fetchValues(key.getColumn(),
+                        firstRow, count);
+                System.arraycopy(updated, 0, keyValues[k], firstRow, count);
+            }
+        }
+
+        // and put them to their new places
+        insertRows(rows, size, firstRow, lastRow);
+    }
+
+    /**
+     * Inserts the specified model rows into the given sorted mapping,
+     * and makes the result the current mapping.
+     *
+     * @param rows      the sorted rows, the array may be modified
+     * @param size      the number of used elements in <code>rows</code>
+     */
+    private void insertRows(int[] rows, int size, int firstRow, int lastRow) {
+        int[] newRows = new int[size + lastRow - firstRow + 1];
+        System.arraycopy(rows, 0, newRows, 0, size);
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            if (filter != null && !filter.include(model, row)) {
+                continue;
+            }
+
+            int pos = findPosition(newRows, size, row);
+            System.arraycopy(newRows, pos, newRows, pos + 1, size - pos);
+            newRows[pos] = row;
+            size++;
+        }
+
+        if (size != newRows.length) {
+            rows = new int[size];
+            System.arraycopy(newRows, 0, rows, 0, size);
+            newRows = rows;
+        }
+
+        setViewToModel(newRows);
+    }
+
+    /**
+     * Returns the position of the given model row in the sorted mapping.
+     */
+    private int findPosition(int[] rows, int size, int row) {
+        int low  = 0;
+        int high = size - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp;
+            if (rowComparator != null) {
+                cmp = rowComparator.compare(rows[mid], row);
+            } else {
+                cmp = rows[mid] - row;
+            }
+
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private int[] filterRows(int firstRow, int lastRow) {
+        int[] rows = new int[lastRow - firstRow + 1];
+        int size = 0;
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            if (filter.include(model, row)) {
+                rows[size++] = row;
+            }
+        }
+
+        if (size != rows.length) {
+            int[] newRows = new int[size];
+            System.arraycopy(rows, 0, newRows, 0, size);
+            rows = newRows;
+        }
+
+        return rows;
+    }
+
+    private Object[] fetchValues(int column, int firstRow, int count) {
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = model.getValueAt(firstRow + i, column);
+        }
+
+        return values;
+    }
+
+    private boolean isSortKey(int column) {
+        for (int i = 0; i < sortKeys.size(); i++) {
+            if (((SortKey) sortKeys.get(i)).getColumn() == column) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void removeInvalidKeys() {
+        final int columnCount = model.getColumnCount();
+        ArrayList keys = new ArrayList(sortKeys.size());
+
+        for (int i = 0; i < sortKeys.size(); i++) {
+            SortKey key = (SortKey) sortKeys.get(i);
+            if (key.getColumn() < columnCount) {
+                keys.add(key);
+            }
+        }
+
+        if (keys.size() != sortKeys.size()) {
+            sortKeys = (keys.isEmpty() ? Collections.EMPTY_LIST
+                    : Collections.unmodifiableList(keys));
+        }
+    }
+
+    private void setViewToModel(int[] rows) {
+        viewToModel = rows;
+        modelToView = null;
+        fireStateChanged();
+    }
+
+    /**
+     * Stable merge sort of the model rows, to avoid boxing of the
+     * row indexes.
+     *
+     * @param gen  the generation of the background sort, the sort is
+     *             abandoned if it changes, -1 for synchronous sort
+     * @return <code>false</code> if the sort was abandoned
+     */
+    private boolean sort(int[] rows, RowComparator comparator, int gen) {
+        final int length = rows.length;
+        final int run = 32;
+
+        for (int low = 0; low < length; low += run) {
+            insertionSort(rows, low, Math.min(low + run, length), comparator);
+        }
+
+        int[] src = rows;
+        int[] dst = new int[length];
+
+        for (int width = run; width < length; width <<= 1) {
+            if (gen != -1 && gen != generation) {
+                return false;
+            }
+
+            for (int low = 0; low < length; low += width << 1) {
+                int mid  = Math.min(low + width, length);
+                int high = Math.min(mid + width, length);
+                merge(src, dst, low, mid, high, comparator);
+            }
+
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+
+        if (src != rows) {
+            System.arraycopy(src, 0, rows, 0, length);
+        }
+
+        return true;
+    }
+
+    private static void insertionSort(int[] rows, int low, int high,
+            RowComparator comparator) {
+
+        for (int i = low + 1; i < high; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= low && comparator.compare(rows[j], row) > 0) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+
+            rows[j + 1] = row;
+        }
+    }
+
+    private static void merge(int[] src, int[] dst, int low, int mid,
+            int high, RowComparator comparator) {
+
+        if (mid >= high || comparator.compare(src[mid - 1], src[mid]) <= 0) {
+            // already in order
+            System.arraycopy(src, low, dst, low, high - low);
+            return;
+        }
+
+        int i = low;
+        int j = mid;
+        for (int k = low; k < high; k++) {
+            if (j >= high
+                    || (i < mid && comparator.compare(src[i], src[j]) <= 0)) {
+                dst[k] = src[i++];
+            } else {
+                dst[k] = src[j++];
+            }
+        }
+    }
+
+    /**
+     * Adds a <code>ChangeListener</code>, that is notified each time
+     * the mapping between the view and the model has changed.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listenerList.add(ChangeListener.class, listener);
+    }
+
+    /**
+     * Removes a <code>ChangeListener</code>.
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        listenerList.remove(ChangeListener.class, listener);
+    }
+
+    /**
+     * Notifies all <code>ChangeListeners</code> that the mapping between
+     * the view and the model has changed.
+     */
+    protected void fireStateChanged() {
+        Object[] listeners = listenerList.getListenerList();
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == ChangeListener.class) {
+                if (changeEvent == null) {
+                    changeEvent = new ChangeEvent(this);
+                }
+
+                ((ChangeListener)listeners[i + 1]).stateChanged(changeEvent);
+            }
+        }
+    }
+
+    /**
+     * Compares the model rows by the fetched values of the sorted
+     * columns, the rows with equal values are ordered by their index.
+     */
+    private static final class RowComparator {
+
+        private final Object[][]    values;
+        private final Comparator[]  comparators;
+        private final boolean[]     ascending;
+
+
+        RowComparator(Object[][] values, Comparator[] comparators,
+                boolean[] ascending) {
+
+            this.values      = values;
+            this.comparators = comparators;
+            this.ascending   = ascending;
+        }
+
+        int compare(int row1, int row2) {
+            for (int k = 0; k < values.length; k++) {
+                Object[] column = values[k];
+                int result = comparators[k].compare(column[row1],
+                        column[row2]);
+
+                if (result != 0) {
+                    return (ascending[k] ? result : -result);
+                }
+            }
+
+            return (row1 < row2 ? -1 : (row1 == row2 ? 0 : 1));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing.text;
+
+import charvax.swing.event.DocumentListener;
+
+
+/**
+ * The <code>Document</code> is the container for the text of a
+ * {@link JTextComponent}. It is a much-simplified version of the
+ * Swing javax.swing.text.Document interface: the text has no attributes
+ * and no element structure.
+ * <p>
+ * Offsets are zero-based character indexes. Methods that modify the
+ * document notify the registered <code>DocumentListener</code>s after
+ * the change has been made.
+ *
+ * @see PlainDocument
+ */
+public interface Document {
+
+    /**
+     * Returns the number of characters in the document.
+     */
+    public int getLength();
+
+    /**
+     * Returns a copy of the specified portion of the text.
+     *
+     * @param offset  the offset of the first character
+     * @param length  the number of characters
+     * @throws IndexOutOfBoundsException  if the range is not valid
+     */
+    public String getText(int offset, int length);
+
+    /**
+     * Returns a read-only view of the whole text, that doesn't copy the
+     * characters. The view reflects later modifications of the document,
+     * so its length and the offsets of the characters change with them.
+     */
+    public CharSequence getCharSequence();
+
+    /**
+     * Returns the current text, which doesn't change when the document
+     * is modified, and may be read by any thread.
+     */
+    public CharSequence getSnapshot();
+
+    /**
+     * Inserts the string at the specified offset.
+     *
+     * @throws IndexOutOfBoundsException  if the offset is not valid
+     */
+    public void insertString(int offset, String str);
+
+    /**
+     * Removes the specified portion of the text.
+     *
+     * @throws IndexOutOfBoundsException  if the range is not valid
+     */
+    public void remove(int offset, int length);
+
+    /**
+     * Replaces the specified portion of the text with the string.
+     * Either part may be empty.
+     *
+     * @throws IndexOutOfBoundsException  if the range is not valid
+     */
+    public void replace(int offset, int length, String str);
+
+    public void addDocumentListener(DocumentListener listener);
+
+    public void removeDocumentListener(DocumentListener listener);
+}
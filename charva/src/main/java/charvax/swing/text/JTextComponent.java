@@ -22,6 +22,10 @@ package charvax.swing.text;
 import charva.awt.ColorPair;
 import charva.awt.ColorScheme;
 import charvax.swing.JComponent;
+import charvax.swing.event.ChangeEvent;
+import charvax.swing.event.ChangeListener;
+import charvax.swing.event.DocumentEvent;
+import charvax.swing.event.DocumentListener;
 
 
 /**
@@ -31,20 +35,39 @@ import charvax.swing.JComponent;
  */
 public abstract class JTextComponent extends JComponent {
     
-    //TODO: Use Document interface
-    
     /**
      * Index (from the start of the string) where next character will
      * be inserted.
      */
     protected int           caretPosition;
 
-    protected StringBuffer  document;
+    protected Document      document = new PlainDocument();
 
     protected boolean       editable = true;
 
     protected ColorPair     selectedColor;
     protected ColorPair     disabledColor;
+
+    /** The search of the text, created when it's first needed */
+    private TextSearch      search;
+
+    /** Repaints the highlighted matches as they are found */
+    private final ChangeListener searchListener = new ChangeListener() {
+        public void stateChanged(ChangeEvent e) {
+            searchChanged();
+        }
+    };
+
+    /** Clears the search when the searched text is modified */
+    private final DocumentListener searchInvalidator = new DocumentListener() {
+        public void insertUpdate(DocumentEvent e) {
+            clearSearch();
+        }
+
+        public void removeUpdate(DocumentEvent e) {
+            clearSearch();
+        }
+    };
     
     
     public JTextComponent() {
@@ -58,20 +81,39 @@ public abstract class JTextComponent extends JComponent {
         disabledColor = colors.getColor(ColorScheme.EDIT_DISABLED);
     }
     
-    public String getDocument() {
-        return document.toString();
+    /**
+     * Returns the document holding the text of this component.
+     */
+    public Document getDocument() {
+        return document;
     }
 
-    public void setDocument(String document) {
-        this.document = new StringBuffer(document);
+    /**
+     * Sets the document holding the text of this component. The caret
+     * is moved to the start of the text.
+     */
+    public void setDocument(Document document) {
+        clearSearch();
+        this.document = document;
+        caretPosition = 0;
     }
 
+    /**
+     * Returns a copy of the text of this component.
+     */
     public String getText() {
-        return document.toString();
+        return document.getText(0, document.getLength());
     }
 
+    /**
+     * Replaces the text of this component. The document itself is kept,
+     * so that its listeners stay registered.
+     */
     public void setText(String text) {
-        document = new StringBuffer(text);
+        document.replace(0, document.getLength(), text);
+        if (caretPosition > document.getLength()) {
+            caretPosition = document.getLength();
+        }
     }
 
     public int getCaretPosition() {
@@ -82,6 +124,105 @@ public abstract class JTextComponent extends JComponent {
         caretPosition = caret;
     }
 
+    /**
+     * Starts searching the text in the background. The matches are
+     * highlighted as they are found, and can be visited with 
+     * <code>findNext</code> and <code>findPrevious</code>. The previous
+     * search is abandoned. Modifying the text clears the search.
+     *
+     * @param query       the string or the regular expression to find
+     * @param regex       <code>true</code> if the query is a regular 
+     *                    expression
+     * @param ignoreCase  <code>true</code> if the case of the letters
+     *                    doesn't matter
+     * @throws java.util.regex.PatternSyntaxException  if the regular
+     *      expression is not valid
+     */
+    public void search(String query, boolean regex, boolean ignoreCase) {
+        if (query.length() == 0) {
+            clearSearch();
+            return;
+        }
+
+        SearchPattern pattern = new SearchPattern(query, regex, ignoreCase);
+
+        // the search reads a snapshot, so that the text can't change
+        // under it
+        document.removeDocumentListener(searchInvalidator);
+        document.addDocumentListener(searchInvalidator);
+        getSearch().start(document.getSnapshot(), pattern);
+    }
+
+    /**
+     * Stops the search and removes the highlighting of the matches.
+     */
+    public void clearSearch() {
+        if (search != null && search.getPattern() != null) {
+            document.removeDocumentListener(searchInvalidator);
+            search.clear();
+        }
+    }
+
+    /**
+     * Returns the search of the text of this component, which holds the
+     * matches found so far.
+     */
+    public TextSearch getSearch() {
+        if (search == null) {
+            search = new TextSearch();
+            search.addChangeListener(searchListener);
+        }
+
+        return search;
+    }
+
+    /**
+     * Moves the caret to the next match after the caret.
+     *
+     * @return <code>false</code> if no match has been found after the caret
+     */
+    public boolean findNext() {
+        int index = getSearch().getNextMatch(caretPosition);
+        if (index < 0) {
+            return false;
+        }
+
+        showMatch(search.getMatchStart(index), search.getMatchEnd(index));
+        return true;
+    }
+
+    /**
+     * Moves the caret to the previous match before the caret.
+     *
+     * @return <code>false</code> if no match has been found before 
+     *      the caret
+     */
+    public boolean findPrevious() {
+        int index = getSearch().getPreviousMatch(caretPosition);
+        if (index < 0) {
+            return false;
+        }
+
+        showMatch(search.getMatchStart(index), search.getMatchEnd(index));
+        return true;
+    }
+
+    /**
+     * Called by <code>findNext</code> and <code>findPrevious</code> to
+     * show the match; moves the caret to the start of the match.
+     */
+    protected void showMatch(int start, int end) {
+        setCaretPosition(start);
+    }
+
+    /**
+     * Called when matches have been found, or the search has been 
+     * cleared; repaints the component.
+     */
+    protected void searchChanged() {
+        repaint();
+    }
+
     /**
      * Returns the boolean flag indicating whether this TextComponent
      * is editable or not.
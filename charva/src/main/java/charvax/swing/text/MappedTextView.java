@@ -0,0 +1,666 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing.text;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import charva.awt.ColorScheme;
+import charva.awt.Dimension;
+import charva.awt.Graphics;
+import charva.awt.Insets;
+import charva.awt.Platform;
+import charva.awt.Rectangle;
+import charva.awt.Window;
+import charvax.swing.JComponent;
+import charvax.swing.Scrollable;
+import charvax.swing.SwingConstants;
+import charvax.swing.SwingUtilities;
+
+
+/**
+ * A read-only view of a text file, intended for files too large to be
+ * loaded into a <code>JTextArea</code>, such as multi-gigabyte logs.
+ * It should be used inside a <code>JScrollPane</code>.
+ * <p>
+ * The file is mapped into memory with <code>FileChannel.map</code>
+ * rather than read, so the text is never copied into the heap; only the
+ * part of each visible line that fits into the clip is decoded when the
+ * view is painted. The lines are located with an index, which holds
+ * the offset of every {@link #INDEX_STRIDE}th line only, so that its size
+ * is a small fraction of the file's; a line is found by scanning the 
+ * lines preceding it in its stride, and the line starts found in the 
+ * strides painted last are cached. The index is built by a background thread after the view is created; the
+ * lines are shown as soon as they are indexed, and the view grows while
+ * indexing goes on.
+ * <p>
+ * The lines are separated by <code>'\n'</code> bytes, a preceding
+ * <code>'\r'</code> is not shown. This requires a charset, in which
+ * the newline is a single byte that doesn't appear inside other
+ * characters, such as UTF-8 or the ISO-8859 family. The file is expected
+ * not to change while it is viewed.
+ */
+public class MappedTextView extends JComponent implements Scrollable {
+
+    /** The number of lines between two offsets kept in the index */
+    public static final int     INDEX_STRIDE = 64;
+
+    /** The size of one mapping, the file is mapped in several ones */
+    private static final int    CHUNK_SHIFT = 28;
+    private static final int    CHUNK_SIZE  = 1 << CHUNK_SHIFT;
+    private static final int    CHUNK_MASK  = CHUNK_SIZE - 1;
+
+    /** Lines found between two updates of the view while indexing */
+    private static final int    PUBLISH_LINES = 1 << 16;
+
+    private final File          file;
+
+    private final Charset       charset;
+
+    /** The maximum number of bytes of one character in the charset */
+    private final int           maxBytesPerChar;
+
+    private final long          length;
+
+    private MappedByteBuffer[]  chunks;
+
+    /** <code>true</code> if the charset is UTF-8 */
+    private final boolean       utf8;
+
+    /** Offsets of the lines 0, INDEX_STRIDE, 2 * INDEX_STRIDE... */
+    private long[]              index = new long[16];
+
+    /** The line starts of the two strides used last, the recent first */
+    private final StrideCache[] strideCaches = {
+        new StrideCache(), new StrideCache()
+    };
+
+    /** Guards <code>index</code>, <code>lineCount</code> and 
+     *  <code>maxLineLength</code> */
+    private final Object        indexLock = new Object();
+
+    /** The number of lines indexed so far */
+    private int                 lineCount;
+
+    /** The length in characters of the longest line indexed so far */
+    private int                 maxLineLength;
+
+    private volatile boolean    indexing = true;
+
+    private volatile boolean    closed;
+
+    /** The number of lines shown by the view */
+    private int                 rows;
+
+    /** The number of columns of the view */
+    private int                 columns;
+
+    private int                 preferredRows;
+    private int                 preferredColumns;
+
+    private boolean             updateScheduled;
+
+    private final Runnable      updateTask = new Runnable() {
+        public void run() {
+            updateSize();
+        }
+    };
+
+
+    /**
+     * Opens a view of the file, using the platform's default charset.
+     *
+     * @see #MappedTextView(File, String, int, int)
+     */
+    public MappedTextView(File file) throws IOException {
+        this(file, System.getProperty("file.encoding"), 10, 80);
+    }
+
+    /**
+     * Opens a view of the file and starts indexing it in the background.
+     *
+     * @param file         the file to view
+     * @param charsetName  the name of the charset of the file
+     * @param rows         the preferred number of rows of the viewport
+     * @param columns      the preferred number of columns of the viewport
+     * @throws IOException  if the file can't be mapped
+     * @throws java.nio.charset.UnsupportedCharsetException  if the
+     *      charset is not supported
+     */
+    public MappedTextView(File file, String charsetName, int rows, 
+            int columns) throws IOException {
+
+        this.file    = file;
+        this.charset = Charset.forName(charsetName);
+        this.maxBytesPerChar = (int) Math.ceil(
+                charset.newEncoder().maxBytesPerChar());
+        this.utf8 = charset.name().equals("UTF-8");
+        
+        this.preferredRows    = rows;
+        this.preferredColumns = columns;
+        this.rows             = rows;
+        this.columns          = columns;
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            length = channel.size();
+
+            int count = (int) ((length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+            chunks = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long position = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, 
+                        position, Math.min(CHUNK_SIZE, length - position));
+            }
+        } finally {
+            // the mappings stay valid after the channel is closed
+            raf.close();
+        }
+
+        Thread indexer = Platform.newThread(new Runnable() {
+            public void run() {
+                buildIndex();
+            }
+        }, "charva-indexer");
+
+        indexer.start();
+    }
+
+    public void setColors(ColorScheme colors) {
+        super.setColors(colors);
+        
+        color = colors.getColor(ColorScheme.EDIT);
+    }
+
+    /**
+     * Returns the file shown by this view.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of lines indexed so far, which is the number of
+     * lines of the file once {@link #isIndexing()} returns 
+     * <code>false</code>.
+     */
+    public int getLineCount() {
+        synchronized (indexLock) {
+            return lineCount;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> while the file is being indexed.
+     */
+    public boolean isIndexing() {
+        return indexing;
+    }
+
+    /**
+     * Returns the text of the specified line, without the line separator.
+     *
+     * @throws IndexOutOfBoundsException  if the line has not been indexed
+     */
+    public String getLine(int line) {
+        long start = getLineStart(line);
+        long end = getLineEnd(line, start, Long.MAX_VALUE);
+        return decode(start, (int) Math.min(end - start, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Stops indexing and releases the mappings of the file. The view 
+     * shows nothing after it has been closed.
+     */
+    public void close() {
+        synchronized (indexLock) {
+            closed = true;
+            chunks = new MappedByteBuffer[0];
+            lineCount = 0;
+        }
+
+        repaint();
+    }
+
+    public Dimension getSize() {
+        return new Dimension(getWidth(), getHeight());
+    }
+
+    public int getWidth() {
+        Insets insets = getInsets();
+        return columns + insets.left + insets.right;
+    }
+
+    public int getHeight() {
+        Insets insets = getInsets();
+        return rows + insets.top + insets.bottom;
+    }
+
+    public Dimension getMinimumSize() {
+        return getSize();
+    }
+
+    public void paint(Graphics g) {
+        // draw the border inherited from JComponent, if it exists
+        super.paint(g);
+
+        Insets insets = getInsets();
+        g.translate(insets.left, insets.top);
+
+        g.setColor(color);
+        g.fillRect(0, 0, columns, rows);
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, columns, rows);
+        }
+
+        int firstRow = Math.max(clip.y, 0);
+        int lastRow  = Math.min(clip.y + clip.height, getLineCount()) - 1;
+        if (firstRow > lastRow) {
+            return;
+        }
+
+        int firstCol = Math.max(clip.x, 0);
+        int lastCol  = clip.x + clip.width;
+
+        // the lines are decoded only up to the right edge of the clip
+        long limit = (long) lastCol * maxBytesPerChar;
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            long start = getLineStart(row);
+            long end = getLineEnd(row, start, limit);
+            String text = decode(start, (int) Math.min(end - start, limit));
+            if (text.length() > firstCol) {
+                g.drawString(text.substring(firstCol, 
+                        Math.min(text.length(), lastCol)), firstCol, row);
+            }
+        }
+    }
+
+    /**
+     * Returns the preferred size of the viewport for this view when it
+     * is in a JScrollPane, which is set in the constructor.
+     */
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(preferredColumns, preferredRows);
+    }
+
+    public int getScrollableUnitIncrement(Rectangle visibleRect,
+            int orientation, int direction) {
+        return 1;
+    }
+
+    public int getScrollableBlockIncrement(Rectangle visibleRect,
+            int orientation, int direction) {
+        
+        if (orientation == SwingConstants.VERTICAL) {
+            return Math.max(visibleRect.height - 1, 1);
+        }
+
+        return Math.max(visibleRect.width - 1, 1);
+    }
+
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    /**
+     * Grows the view to the lines indexed so far. Called on the
+     * event-dispatching thread.
+     */
+    private void updateSize() {
+        int newRows, newColumns;
+        synchronized (indexLock) {
+            updateScheduled = false;
+            newRows    = Math.max(lineCount, preferredRows);
+            newColumns = Math.max(maxLineLength, preferredColumns);
+        }
+
+        if (newRows != rows || newColumns != columns) {
+            rows = newRows;
+            columns = newColumns;
+
+            // let the viewport update the scrollbars
+            invalidate();
+            repaint();
+        }
+    }
+
+    /**
+     * Returns the offset of the first byte of the line. The lines 
+     * preceding it in its stride are scanned, unless their starts are
+     * cached.
+     */
+    private long getLineStart(int line) {
+        final int stride = line / INDEX_STRIDE;
+        long strideStart;
+        synchronized (indexLock) {
+            if (line < 0 || line >= lineCount) {
+                throw new IndexOutOfBoundsException("Invalid line: " + line);
+            }
+
+            strideStart = index[stride];
+        }
+
+        synchronized (strideCaches) {
+            StrideCache cache = getStrideCache(stride, strideStart);
+            final int i = line % INDEX_STRIDE;
+            while (cache.count <= i) {
+                cache.starts[cache.count] = findLineEnd(
+                        cache.starts[cache.count - 1], Long.MAX_VALUE) + 1;
+                cache.count++;
+            }
+
+            return cache.starts[i];
+        }
+    }
+
+    /**
+     * Returns the cache of the line starts of the stride, making it the
+     * recent one; the cache used least recently is reset if the stride
+     * is not cached. Called with the lock of the caches held.
+     */
+    private StrideCache getStrideCache(int stride, long strideStart) {
+        StrideCache cache = strideCaches[0];
+        if (cache.stride != stride) {
+            cache = strideCaches[1];
+            if (cache.stride != stride) {
+                cache.stride = stride;
+                cache.starts[0] = strideStart;
+                cache.count = 1;
+            }
+
+            strideCaches[1] = strideCaches[0];
+            strideCaches[0] = cache;
+        }
+
+        return cache;
+    }
+
+    /**
+     * Returns the offset of the newline ending the line, which starts
+     * at the given offset, or the length of the file. Unless the start 
+     * of the next line is known, the line is scanned, and the offset 
+     * returned is at most <code>start + limit</code>.
+     */
+    private long getLineEnd(int line, long start, long limit) {
+        final int next = line + 1;
+        if (next % INDEX_STRIDE == 0) {
+            synchronized (indexLock) {
+                if (next < lineCount) {
+                    return index[next / INDEX_STRIDE] - 1;
+                }
+            }
+        } else {
+            synchronized (strideCaches) {
+                StrideCache cache = strideCaches[0];
+                if (cache.stride == line / INDEX_STRIDE 
+                        && cache.count > next % INDEX_STRIDE) {
+                    return cache.starts[next % INDEX_STRIDE] - 1;
+                }
+            }
+        }
+
+        return findLineEnd(start, limit);
+    }
+
+    /**
+     * Returns the offset of the newline ending the line, which starts
+     * at the given offset, or the length of the file, scanning at most
+     * <code>limit</code> bytes.
+     */
+    private long findLineEnd(long offset, long limit) {
+        final long end = Math.min(length, offset + Math.min(limit, length));
+        while (offset < end && getByte(offset) != '\n') {
+            offset++;
+        }
+
+        return offset;
+    }
+
+    private byte getByte(long offset) {
+        return getByte(chunks, offset);
+    }
+
+    private static byte getByte(MappedByteBuffer[] chunks, long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)]
+                .get((int) (offset & CHUNK_MASK));
+    }
+
+    /**
+     * Decodes the specified bytes, dropping a trailing carriage return
+     * of the line.
+     */
+    private String decode(long offset, int count) {
+        long end = offset + count;
+        if (count > 0 && getByte(end - 1) == '\r'
+                && (end == length || getByte(end) == '\n')) {
+            count--;
+        }
+
+        byte[] bytes = new byte[count];
+        for (int i = 0; i < count; i++) {
+            bytes[i] = getByte(offset + i);
+        }
+
+        return charset.decode(ByteBuffer.wrap(bytes)).toString();
+    }
+
+    /**
+     * Returns the number of characters encoded by the specified bytes.
+     * Runs in the indexer thread.
+     */
+    private int countChars(MappedByteBuffer[] chunks, long offset, 
+            long count) {
+        if (maxBytesPerChar == 1) {
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+
+        long chars = 0;
+        final long end = offset + count;
+
+        if (utf8) {
+            // every character has exactly one byte, which is not 10xxxxxx
+            for (long i = offset; i < end; i++) {
+                if ((getByte(chunks, i) & 0xc0) != 0x80) {
+                    chars++;
+                }
+            }
+
+            return (int) Math.min(chars, Integer.MAX_VALUE);
+        }
+
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer in = ByteBuffer.allocate(4096);
+        CharBuffer out = CharBuffer.allocate(4096);
+
+        long i = offset;
+        for (;;) {
+            while (in.hasRemaining() && i < end) {
+                in.put(getByte(chunks, i++));
+            }
+
+            boolean endOfInput = (i == end);
+            in.flip();
+            CoderResult result = decoder.decode(in, out, endOfInput);
+            in.compact();
+
+            chars += out.position();
+            out.clear();
+
+            if (endOfInput && !result.isOverflow()) {
+                break;
+            }
+        }
+
+        decoder.flush(out);
+        chars += out.position();
+
+        return (int) Math.min(chars, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Scans the file for newlines, recording the offset of every 
+     * <code>INDEX_STRIDE</code>th line. Runs in the indexer thread.
+     */
+    private void buildIndex() {
+        final MappedByteBuffer[] chunks = this.chunks;
+
+        int lines = 0;
+        int maxLength = 0;
+        long lineStart = 0;
+        
+        try {
+            for (int c = 0; c < chunks.length && !closed; c++) {
+                MappedByteBuffer chunk = chunks[c];
+                long base = (long) c << CHUNK_SHIFT;
+                int limit = chunk.limit();
+
+                for (int i = 0; i < limit; i++) {
+                    if (chunk.get(i) != '\n') {
+                        continue;
+                    }
+
+                    long offset = base + i;
+                    long lineLength = offset - lineStart;
+
+                    // a line has at most as many characters as bytes
+                    if (lineLength > maxLength) {
+                        maxLength = Math.max(maxLength,
+                                countChars(chunks, lineStart, lineLength));
+                    }
+
+                    lineStart = offset + 1;
+                    lines++;
+
+                    if (lines % INDEX_STRIDE == 0) {
+                        addIndex(lines / INDEX_STRIDE, lineStart);
+                    }
+
+                    if (lines % PUBLISH_LINES == 0) {
+                        publish(lines, maxLength);
+                    }
+
+                    if (closed) {
+                        return;
+                    }
+                }
+            }
+
+            // the last line may not end with a newline
+            if (lineStart < length && !closed) {
+                long lineLength = length - lineStart;
+                if (lineLength > maxLength) {
+                    maxLength = Math.max(maxLength,
+                            countChars(chunks, lineStart, lineLength));
+                }
+
+                lines++;
+            }
+        } finally {
+            // the line count is final once the indexing flag is cleared
+            publish(lines, maxLength);
+            indexing = false;
+        }
+    }
+
+    private void addIndex(int slot, long offset) {
+        synchronized (indexLock) {
+            if (slot == index.length) {
+                long[] newIndex = new long[index.length * 2];
+                System.arraycopy(index, 0, newIndex, 0, index.length);
+                index = newIndex;
+            }
+
+            index[slot] = offset;
+        }
+    }
+
+    /**
+     * Makes the lines indexed so far visible to the view, and schedules
+     * an update of its size on the event-dispatching thread of the window's
+     * toolkit. Until the view is added to a window, the size is updated
+     * by {@link #addNotify()}. Nothing is published once the view is 
+     * closed.
+     */
+    private void publish(int lines, int maxLength) {
+        Window ancestor;
+        synchronized (indexLock) {
+            if (closed) {
+                return;
+            }
+
+            lineCount = lines;
+            maxLineLength = maxLength;
+            if (updateScheduled) {
+                return;
+            }
+
+            ancestor = SwingUtilities.windowForComponent(this);
+            if (ancestor == null) {
+                return;
+            }
+
+            updateScheduled = true;
+        }
+
+        ancestor.getToolkit().invokeLater(updateTask);
+    }
+
+    public void addNotify() {
+        super.addNotify();
+        updateSize();
+    }
+
+    protected String paramString() {
+        return super.paramString() + ",file=" + file 
+                + ",lines=" + lineCount
+                + ",indexing=" + indexing;
+    }
+
+
+    /**
+     * The starts of the lines of a stride, which have been found so far.
+     */
+    private static final class StrideCache {
+
+        /** The stride, or -1 if the cache is unused */
+        int             stride = -1;
+
+        /** The number of line starts found */
+        int             count;
+
+        final long[]    starts = new long[INDEX_STRIDE];
+    }
+}
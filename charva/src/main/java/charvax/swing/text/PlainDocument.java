@@ -0,0 +1,364 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing.text;
+
+import java.util.ArrayList;
+import charvax.swing.event.DocumentEvent;
+import charvax.swing.event.DocumentListener;
+
+
+/**
+ * A plain text document, that keeps the text in a gap buffer.
+ * <p>
+ * The characters are stored in a single array with a gap at the place
+ * of the last modification. Inserting or removing text at the gap only
+ * moves the gap boundary, so that typing at the caret costs amortized
+ * constant time regardless of the size of the document; an edit
+ * elsewhere moves the gap, copying the characters between the old and
+ * the new position only.
+ * <p>
+ * A snapshot of the text shares the buffer with the document; the buffer
+ * is copied when the document is modified next, so taking a snapshot
+ * costs constant time.
+ * <p>
+ * This class is not thread-safe, it should be used from the
+ * event-dispatching thread only.
+ */
+public class PlainDocument implements Document {
+
+    private static final int    MIN_GAP = 16;
+
+    private char[]              buffer;
+
+    /** The offset of the first character of the gap */
+    private int                 gapStart;
+
+    /** The offset of the first character after the gap */
+    private int                 gapEnd;
+
+    private final CharSequence  content = new Content(0, -1);
+
+    /** The snapshot sharing the buffer, <code>null</code> if there's none */
+    private Snapshot            snapshot;
+
+    private final ArrayList     listeners = new ArrayList();
+
+
+    /**
+     * Constructs an empty document.
+     */
+    public PlainDocument() {
+        this("");
+    }
+
+    /**
+     * Constructs a document containing the specified text.
+     */
+    public PlainDocument(String text) {
+        int length = text.length();
+        buffer = new char[length + MIN_GAP];
+        text.getChars(0, length, buffer, 0);
+        gapStart = length;
+        gapEnd = buffer.length;
+    }
+
+    public int getLength() {
+        return buffer.length - (gapEnd - gapStart);
+    }
+
+    /**
+     * Returns the character at the specified offset.
+     */
+    public char charAt(int offset) {
+        if (offset < 0 || offset >= getLength()) {
+            throw new IndexOutOfBoundsException(
+                    "offset " + offset + ", length " + getLength());
+        }
+
+        return (offset < gapStart ? buffer[offset]
+                                  : buffer[offset + gapEnd - gapStart]);
+    }
+
+    public String getText(int offset, int length) {
+        checkRange(offset, length);
+
+        char[] chars = new char[length];
+        getChars(offset, length, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Copies the specified portion of the text into the array.
+     *
+     * @param offset      the offset of the first character
+     * @param length      the number of characters
+     * @param dest        the destination array
+     * @param destOffset  the start offset in the destination array
+     */
+    public void getChars(int offset, int length, char[] dest,
+            int destOffset) {
+
+        checkRange(offset, length);
+
+        int end = offset + length;
+        if (end <= gapStart) {
+            System.arraycopy(buffer, offset, dest, destOffset, length);
+        } else if (offset >= gapStart) {
+            System.arraycopy(buffer, offset + gapEnd - gapStart,
+                    dest, destOffset, length);
+        } else {
+            int before = gapStart - offset;
+            System.arraycopy(buffer, offset, dest, destOffset, before);
+            System.arraycopy(buffer, gapEnd, dest, destOffset + before,
+                    length - before);
+        }
+    }
+
+    public CharSequence getCharSequence() {
+        return content;
+    }
+
+    public CharSequence getSnapshot() {
+        if (snapshot == null) {
+            snapshot = new Snapshot(buffer, gapStart, gapEnd, 0, getLength());
+        }
+
+        return snapshot;
+    }
+
+    public void insertString(int offset, String str) {
+        if (offset < 0 || offset > getLength()) {
+            throw new IndexOutOfBoundsException(
+                    "offset " + offset + ", length " + getLength());
+        }
+
+        int length = str.length();
+        if (length == 0) {
+            return;
+        }
+
+        unshare();
+        moveGap(offset);
+        ensureGap(length);
+        str.getChars(0, length, buffer, gapStart);
+        gapStart += length;
+
+        fireDocumentEvent(new DocumentEvent(this, offset, length,
+                DocumentEvent.INSERT));
+    }
+
+    public void remove(int offset, int length) {
+        checkRange(offset, length);
+        if (length == 0) {
+            return;
+        }
+
+        unshare();
+        moveGap(offset);
+        gapEnd += length;
+
+        fireDocumentEvent(new DocumentEvent(this, offset, length,
+                DocumentEvent.REMOVE));
+    }
+
+    public void replace(int offset, int length, String str) {
+        remove(offset, length);
+        insertString(offset, str);
+    }
+
+    public void addDocumentListener(DocumentListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeDocumentListener(DocumentListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notifies the registered listeners of the change.
+     */
+    protected void fireDocumentEvent(DocumentEvent evt) {
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            DocumentListener l = (DocumentListener) listeners.get(i);
+            if (evt.getType() == DocumentEvent.INSERT) {
+                l.insertUpdate(evt);
+            } else {
+                l.removeUpdate(evt);
+            }
+        }
+    }
+
+    public String toString() {
+        return getText(0, getLength());
+    }
+
+    private void checkRange(int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > getLength()) {
+            throw new IndexOutOfBoundsException(
+                    "offset " + offset + ", length " + length
+                    + ", document length " + getLength());
+        }
+    }
+
+    /**
+     * Copies the buffer if it's shared with a snapshot, before it's
+     * modified.
+     */
+    private void unshare() {
+        if (snapshot != null) {
+            buffer = (char[]) buffer.clone();
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Moves the gap, so that it starts at the specified offset.
+     */
+    private void moveGap(int offset) {
+        if (offset < gapStart) {
+            int count = gapStart - offset;
+            System.arraycopy(buffer, offset, buffer, gapEnd - count, count);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (offset > gapStart) {
+            int count = offset - gapStart;
+            System.arraycopy(buffer, gapEnd, buffer, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    /**
+     * Makes sure that the gap can hold the specified number of characters,
+     * growing the buffer geometrically if it can't.
+     */
+    private void ensureGap(int required) {
+        int gap = gapEnd - gapStart;
+        if (gap >= required) {
+            return;
+        }
+
+        int length = getLength();
+        int capacity = Math.max(buffer.length * 2, length + required + MIN_GAP);
+        char[] newBuffer = new char[capacity];
+        int after = buffer.length - gapEnd;
+
+        System.arraycopy(buffer, 0, newBuffer, 0, gapStart);
+        System.arraycopy(buffer, gapEnd, newBuffer, capacity - after, after);
+
+        buffer = newBuffer;
+        gapEnd = capacity - after;
+    }
+
+
+    /**
+     * A view of a range of the text. A negative end means that the view
+     * extends to the end of the document.
+     */
+    private class Content implements CharSequence {
+
+        private final int   start;
+        private final int   end;
+
+        Content(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public int length() {
+            return (end < 0 ? getLength() : end) - start;
+        }
+
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException("index " + index);
+            }
+
+            return PlainDocument.this.charAt(start + index);
+        }
+
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > length() || from > to) {
+                throw new IndexOutOfBoundsException(
+                        "from " + from + ", to " + to);
+            }
+
+            return new Content(start + from, start + to);
+        }
+
+        public String toString() {
+            return getText(start, length());
+        }
+    }
+
+
+    /**
+     * A range of the text of a buffer, which is no longer modified.
+     */
+    private static final class Snapshot implements CharSequence {
+
+        private final char[]    buffer;
+        private final int       gapStart;
+        private final int       gapLength;
+        private final int       start;
+        private final int       length;
+
+        Snapshot(char[] buffer, int gapStart, int gapEnd, int start,
+                int length) {
+
+            this.buffer = buffer;
+            this.gapStart = gapStart;
+            this.gapLength = gapEnd - gapStart;
+            this.start = start;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index " + index);
+            }
+
+            int offset = start + index;
+            return (offset < gapStart ? buffer[offset]
+                                      : buffer[offset + gapLength]);
+        }
+
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > length || from > to) {
+                throw new IndexOutOfBoundsException(
+                        "from " + from + ", to " + to);
+            }
+
+            return new Snapshot(buffer, gapStart, gapStart + gapLength,
+                    start + from, to - from);
+        }
+
+        public String toString() {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = charAt(i);
+            }
+
+            return new String(chars);
+        }
+    }
+}
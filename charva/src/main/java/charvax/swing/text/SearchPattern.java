@@ -0,0 +1,198 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing.text;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * A compiled search query, either a literal string or a regular 
+ * expression.
+ * <p>
+ * Literal strings are found with the Boyer-Moore-Horspool algorithm,
+ * which skips over the text by up to the length of the string after
+ * a mismatch, instead of comparing at every position. Regular expressions
+ * use <code>java.util.regex</code> in <code>MULTILINE</code> mode.
+ * <p>
+ * The pattern is immutable and may be used by several threads.
+ *
+ * @see TextSearch
+ */
+public final class SearchPattern {
+
+    private final String    query;
+
+    private final boolean   ignoreCase;
+
+    /** The compiled expression, <code>null</code> for a literal query */
+    private final Pattern   regex;
+
+    /** The literal query, folded if the case is ignored */
+    private final char[]    needle;
+
+    /** Shift after a mismatch, indexed by the low byte of the character 
+     *  aligned with the end of the needle */
+    private final int[]     skip;
+
+
+    /**
+     * Compiles the query.
+     *
+     * @param query       the string or the regular expression to find
+     * @param regex       <code>true</code> if the query is a regular 
+     *                    expression
+     * @param ignoreCase  <code>true</code> if the case of the letters
+     *                    doesn't matter
+     * @throws IllegalArgumentException  if the query is empty
+     * @throws java.util.regex.PatternSyntaxException  if the regular
+     *      expression is not valid
+     */
+    public SearchPattern(String query, boolean regex, boolean ignoreCase) {
+        if (query.length() == 0) {
+            throw new IllegalArgumentException("empty query");
+        }
+
+        this.query      = query;
+        this.ignoreCase = ignoreCase;
+
+        if (regex) {
+            int flags = Pattern.MULTILINE;
+            if (ignoreCase) {
+                flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+            }
+
+            this.regex  = Pattern.compile(query, flags);
+            this.needle = null;
+            this.skip   = null;
+        } else {
+            this.regex  = null;
+            this.needle = new char[query.length()];
+            this.skip   = new int[256];
+
+            for (int i = 0; i < needle.length; i++) {
+                needle[i] = fold(query.charAt(i));
+            }
+
+            // characters sharing the low byte get the smallest shift, 
+            // which is always safe
+            int last = needle.length - 1;
+            for (int i = 0; i < skip.length; i++) {
+                skip[i] = needle.length;
+            }
+
+            for (int i = 0; i < last; i++) {
+                skip[needle[i] & 0xff] = last - i;
+            }
+        }
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public boolean isRegex() {
+        return (regex != null);
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * Finds the non-overlapping matches, which start within the range 
+     * [from, to) of the text. A match may extend up to 
+     * <code>limit</code>; a regular expression sees the text between 
+     * <code>from</code> and <code>limit</code> only. Empty matches
+     * are ignored.
+     *
+     * @return the start and end offset of each match, in pairs
+     */
+    public int[] findAll(CharSequence text, int from, int to, int limit) {
+        int[] matches = new int[16];
+        int count = 0;
+
+        if (regex != null) {
+            Matcher matcher = regex.matcher(text.subSequence(from, limit));
+            while (matcher.find()) {
+                int start = from + matcher.start();
+                if (start >= to) {
+                    break;
+                }
+
+                int end = from + matcher.end();
+                if (start == end) {
+                    continue;
+                }
+
+                if (count == matches.length) {
+                    matches = grow(matches);
+                }
+
+                matches[count++] = start;
+                matches[count++] = end;
+            }
+        } else {
+            final int last = needle.length - 1;
+            int pos = from;
+            while (pos < to && pos + last < limit) {
+                char chr = fold(text.charAt(pos + last));
+                int j = last;
+                if (chr == needle[last]) {
+                    j--;
+                    while (j >= 0 && fold(text.charAt(pos + j)) == needle[j]) {
+                        j--;
+                    }
+                }
+
+                if (j < 0) {
+                    if (count == matches.length) {
+                        matches = grow(matches);
+                    }
+
+                    matches[count++] = pos;
+                    matches[count++] = pos + needle.length;
+                    pos += needle.length;
+                } else {
+                    pos += skip[chr & 0xff];
+                }
+            }
+        }
+
+        int[] result = new int[count];
+        System.arraycopy(matches, 0, result, 0, count);
+        return result;
+    }
+
+    private char fold(char chr) {
+        return (ignoreCase ? Character.toLowerCase(Character.toUpperCase(chr)) 
+                           : chr);
+    }
+
+    private static int[] grow(int[] array) {
+        int[] newArray = new int[array.length * 2];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    public String toString() {
+        return getClass().getName() + "[query=" + query 
+                + ",regex=" + isRegex() 
+                + ",ignoreCase=" + ignoreCase + "]";
+    }
+}
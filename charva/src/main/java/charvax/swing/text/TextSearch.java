@@ -0,0 +1,359 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package charvax.swing.text;
+
+import charva.awt.Platform;
+import charva.awt.Toolkit;
+import charvax.swing.event.ChangeEvent;
+import charvax.swing.event.ChangeListener;
+import charvax.swing.event.EventListenerList;
+
+
+/**
+ * Incremental search of a text. The text is scanned by a background
+ * thread in chunks; the matches found in each part of the text are handed 
+ * over to the event-dispatching thread and the <code>ChangeListeners</code> 
+ * are notified, so that they can be highlighted while the rest of the text
+ * is still being searched. Starting another search, or clearing this one,
+ * abandons the running search at the next chunk.
+ * <p>
+ * The matches don't overlap and are kept in the order of their offsets.
+ * A regular expression is applied to each chunk separately; the chunks
+ * end at a line boundary whenever possible, so only matches spanning 
+ * several lines may be missed.
+ * <p>
+ * All the methods must be called from the event-dispatching thread.
+ *
+ * @see SearchPattern
+ */
+public class TextSearch {
+
+    /** The number of characters scanned at a time */
+    private static final int CHUNK_SIZE = 65536;
+
+    /** The number of chunks, whose matches are handed over together */
+    private static final int CHUNKS_PER_BATCH = 16;
+
+    private SearchPattern       pattern;
+
+    /** The start offsets of the matches */
+    private int[]               starts = new int[0];
+
+    /** The end offsets (exclusive) of the matches */
+    private int[]               ends = new int[0];
+
+    private int                 matchCount;
+
+    /**
+     * Incremented each time a search is started or cleared, the results 
+     * of the background search are discarded if it has changed
+     */
+    private volatile int        generation;
+
+    /** Set while the background search is running */
+    private boolean             searching;
+
+    protected EventListenerList listenerList = new EventListenerList();
+
+    private ChangeEvent         changeEvent;
+
+
+    public TextSearch() {
+    }
+
+    /**
+     * Starts searching the text for the pattern, discarding the results
+     * of the previous search.
+     *
+     * @param text     the text to search; it is read by another thread, so
+     *                 it must not be modified until the search is finished
+     *                 or cleared
+     * @param pattern  the query
+     */
+    public void start(final CharSequence text, final SearchPattern pattern) {
+        clearMatches();
+        final int gen = ++generation;
+
+        this.pattern = pattern;
+        searching = true;
+
+        // the results go to this thread's toolkit, the session of
+        // the caller
+        final Toolkit toolkit = Toolkit.getDefaultToolkit();
+        Thread thread = Platform.newThread(new Runnable() {
+            public void run() {
+                search(text, pattern, gen, toolkit);
+            }
+        }, "charva-search");
+
+        thread.start();
+        fireStateChanged();
+    }
+
+    /**
+     * Stops the running search, if any, and removes the matches.
+     */
+    public void clear() {
+        generation++;
+        searching = false;
+        pattern = null;
+        clearMatches();
+        fireStateChanged();
+    }
+
+    private void clearMatches() {
+        starts = new int[0];
+        ends = new int[0];
+        matchCount = 0;
+    }
+
+    /**
+     * Returns the pattern of the last search started, or <code>null</code>
+     * if the search was cleared.
+     */
+    public SearchPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns <code>true</code> while the text is still being searched.
+     */
+    public boolean isSearching() {
+        return searching;
+    }
+
+    /**
+     * Returns the number of matches found so far.
+     */
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    public int getMatchStart(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    public int getMatchEnd(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= matchCount) {
+            throw new IndexOutOfBoundsException(
+                    "match " + index + " out of range 0.." + (matchCount - 1));
+        }
+    }
+
+    /**
+     * Returns the index of the first match ending after the offset, which
+     * is the first match to be highlighted in a part of the text starting 
+     * at the offset, or <code>getMatchCount()</code> if there is none.
+     */
+    public int getFirstMatchEndingAfter(int offset) {
+        int low = 0;
+        int high = matchCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Returns the index of the first match starting after the offset, or
+     * -1 if none has been found.
+     */
+    public int getNextMatch(int offset) {
+        int index = getFirstMatchStartingAt(offset + 1);
+        return (index < matchCount ? index : -1);
+    }
+
+    /**
+     * Returns the index of the last match starting before the offset, or
+     * -1 if none has been found.
+     */
+    public int getPreviousMatch(int offset) {
+        return getFirstMatchStartingAt(offset) - 1;
+    }
+
+    private int getFirstMatchStartingAt(int offset) {
+        int low = 0;
+        int high = matchCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Scans the text, this is run by the background thread.
+     */
+    private void search(CharSequence text, SearchPattern pattern, int gen,
+            Toolkit toolkit) {
+        final int length = text.length();
+        final int limit = (pattern.isRegex() ? -1 : length);
+
+        int[] batch = new int[0];
+        int chunks = 0;
+        int pos = 0;
+        int lastEnd = 0;
+
+        while (pos < length) {
+            if (gen != generation) {
+                return;     // abandoned
+            }
+
+            int next = getChunkEnd(text, pos);
+            int from = Math.max(pos, lastEnd);
+            if (from < next) {
+                int[] found = pattern.findAll(text, from, next,
+                        (limit < 0 ? next : limit));
+                if (found.length > 0) {
+                    lastEnd = found[found.length - 1];
+                    batch = concat(batch, found);
+                }
+            }
+
+            pos = next;
+            if (++chunks == CHUNKS_PER_BATCH && pos < length) {
+                post(batch, false, gen, toolkit);
+                batch = new int[0];
+                chunks = 0;
+            }
+        }
+
+        post(batch, true, gen, toolkit);
+    }
+
+    /**
+     * Returns the end of the chunk starting at the offset, which is 
+     * the start of a line if there is one within another chunk's length.
+     */
+    private static int getChunkEnd(CharSequence text, int pos) {
+        final int length = text.length();
+        int end = Math.min(pos + CHUNK_SIZE, length);
+        int max = Math.min(end + CHUNK_SIZE, length);
+
+        for (int i = end; i < max; i++) {
+            if (text.charAt(i) == '\n') {
+                return i + 1;
+            }
+        }
+
+        return end;
+    }
+
+    /**
+     * Hands the matches over to the event-dispatching thread.
+     */
+    private void post(final int[] found, final boolean finished, 
+            final int gen, Toolkit toolkit) {
+        toolkit.invokeLater(new Runnable() {
+            public void run() {
+                if (gen != generation) {
+                    return;
+                }
+
+                addMatches(found);
+                if (finished) {
+                    searching = false;
+                }
+
+                if (found.length > 0 || finished) {
+                    fireStateChanged();
+                }
+            }
+        });
+    }
+
+    private void addMatches(int[] found) {
+        int count = found.length / 2;
+        if (count == 0) {
+            return;
+        }
+
+        if (matchCount + count > starts.length) {
+            int capacity = Math.max(starts.length * 2, matchCount + count);
+            int[] newStarts = new int[capacity];
+            int[] newEnds = new int[capacity];
+            System.arraycopy(starts, 0, newStarts, 0, matchCount);
+            System.arraycopy(ends, 0, newEnds, 0, matchCount);
+            starts = newStarts;
+            ends = newEnds;
+        }
+
+        for (int i = 0; i < count; i++) {
+            starts[matchCount] = found[2 * i];
+            ends[matchCount] = found[2 * i + 1];
+            matchCount++;
+        }
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+
+        int[] result = new int[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * Adds a <code>ChangeListener</code>, that is notified each time
+     * matches have been found, and when the search is started, finished 
+     * or cleared.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listenerList.add(ChangeListener.class, listener);
+    }
+
+    /**
+     * Removes a <code>ChangeListener</code>.
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        listenerList.remove(ChangeListener.class, listener);
+    }
+
+    protected void fireStateChanged() {
+        Object[] listeners = listenerList.getListenerList();
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == ChangeListener.class) {
+                if (changeEvent == null) {
+                    changeEvent = new ChangeEvent(this);
+                }
+
+                ((ChangeListener)listeners[i + 1]).stateChanged(changeEvent);
+            }
+        }
+    }
+}
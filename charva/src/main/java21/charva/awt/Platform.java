@@ -0,0 +1,70 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charva.awt;
+
+
+/**
+ * Creates the background threads of the library, on Java 21 and newer,
+ * and provides the clock used to measure the event dispatching.
+ * <p>
+ * The threads are virtual threads, unless the 
+ * <code>charva.virtualthreads</code> system property is 
+ * <code>false</code>. Like the daemon threads of the legacy 
+ * implementation, they don't keep the JVM running.
+ */
+public final class Platform {
+
+    private static final boolean VIRTUAL_THREADS = !"false".equals(
+            System.getProperty("charva.virtualthreads"));
+
+    private Platform() {
+    }
+
+    /**
+     * Creates an unstarted virtual thread, or a daemon platform thread.
+     *
+     * @param task  the task run by the thread
+     * @param name  the name of the thread
+     */
+    public static Thread newThread(Runnable task, String name) {
+        if (VIRTUAL_THREADS) {
+            return Thread.ofVirtual().name(name).unstarted(task);
+        }
+
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Returns <code>true</code> if {@link #newThread(Runnable, String)}
+     * creates virtual threads.
+     */
+    public static boolean isVirtualThreads() {
+        return VIRTUAL_THREADS;
+    }
+
+    /**
+     * Returns the current value of a monotonic clock in nanoseconds, 
+     * which is only meaningful as a difference of two values.
+     */
+    public static long nanoTime() {
+        return System.nanoTime();
+    }
+}
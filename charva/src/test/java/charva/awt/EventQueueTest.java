@@ -0,0 +1,82 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charva.awt;
+
+import charva.awt.event.AWTEvent;
+import charva.awt.event.InvocationEvent;
+import junit.framework.TestCase;
+
+/**
+ * Tests the capacity of the {@link EventQueue}.
+ */
+public class EventQueueTest extends TestCase {
+
+    private static final Runnable NOTHING = new Runnable() {
+        public void run() {
+        }
+    };
+
+    private EventQueue queue;
+
+    protected void setUp() {
+        queue = new EventQueue();
+        queue.setCapacity(1);
+        queue.postEvent(newEvent());
+    }
+
+    public void testPostWaitsForSpace() throws InterruptedException {
+        Thread poster = startPoster(false);
+        poster.join(200);
+        assertTrue("poster not blocked", poster.isAlive());
+
+        assertNotNull(queue.getNextEvent());
+        poster.join(5000);
+        assertFalse("poster blocked", poster.isAlive());
+    }
+
+    public void testPostNoWait() throws InterruptedException {
+        Thread poster = startPoster(true);
+        poster.join(5000);
+        assertFalse("poster blocked", poster.isAlive());
+
+        assertNotNull(queue.getNextEvent());
+        assertNotNull(queue.getNextEvent());
+        assertTrue(queue.isEmpty());
+    }
+
+    private Thread startPoster(final boolean noWait) {
+        Thread poster = new Thread() {
+            public void run() {
+                if (noWait) {
+                    queue.postEventNoWait(newEvent());
+                } else {
+                    queue.postEvent(newEvent());
+                }
+            }
+        };
+
+        poster.setDaemon(true);
+        poster.start();
+        return poster;
+    }
+
+    private AWTEvent newEvent() {
+        return new InvocationEvent(this, NOTHING);
+    }
+}
@@ -0,0 +1,145 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charva.toolkit.virtual;
+
+import charvax.swing.JFrame;
+import charvax.swing.JLabel;
+import charvax.swing.JPanel;
+import charvax.swing.JTextField;
+import junit.framework.TestCase;
+
+/**
+ * Tests the frames produced by the event dispatching, on the headless
+ * {@link VirtualToolkit}.
+ */
+public class VirtualToolkitTest extends TestCase {
+
+    /** The default toolkit can be created only once per JVM */
+    private static VirtualToolkit   toolkit;
+
+    private JFrame      frame;
+    private JLabel      label;
+    private JTextField  field;
+
+    protected void setUp() {
+        if (toolkit == null) {
+            toolkit = new VirtualToolkit(40, 10);
+        }
+
+        label = new JLabel("hello");
+        field = new JTextField(10);
+
+        JPanel panel = new JPanel();
+        panel.add(label);
+        panel.add(field);
+
+        frame = new JFrame("test");
+        frame.setBounds(0, 0, 40, 10);
+        frame.getContentPane().add(panel);
+        frame.show();
+        toolkit.runUntilIdle();
+        toolkit.resetCounters();
+    }
+
+    protected void tearDown() {
+        frame.hide();
+        toolkit.runUntilIdle();
+    }
+
+    public void testShow() {
+        Snapshot snapshot = toolkit.snapshot();
+        assertEquals(40, snapshot.getWidth());
+        assertTrue(snapshot.getRow(0).indexOf("test") > 0);
+        assertTrue(snapshot.getRow(1).indexOf("hello") > 0);
+    }
+
+    public void testIdle() {
+        assertEquals(0, toolkit.runUntilIdle());
+        assertEquals(0, toolkit.getFrameCount());
+    }
+
+    public void testFrameTime() {
+        // the frame was refreshed by setUp()
+        toolkit.setMaxFrameRate(1);
+        final long now = System.currentTimeMillis();
+        try {
+            long frameTime = toolkit.getFrameTime(now);
+            assertTrue(frameTime > now);
+            assertTrue(frameTime <= now + 1000);
+            assertEquals(now + 1000, toolkit.getFrameTime(now + 1000));
+        } finally {
+            toolkit.setMaxFrameRate(0);
+        }
+
+        assertEquals(now, toolkit.getFrameTime(now));
+    }
+
+    public void testRepaintsCoalesced() {
+        frame.repaint();
+        label.repaint();
+        frame.repaint();
+
+        assertEquals(1, toolkit.runUntilIdle());
+        assertEquals(0, toolkit.getCellsChanged());
+    }
+
+    public void testChildrenOutsideDamageCulled() {
+        toolkit.resetPaintCounters();
+        label.repaint();
+
+        assertEquals(1, toolkit.runUntilIdle());
+        assertTrue(toolkit.getPaintedCount() > 0);
+        // the text field is next to the label
+        assertTrue(toolkit.getCulledCount() > 0);
+    }
+
+    public void testChangedCells() {
+        label.setText("world");
+
+        assertEquals(1, toolkit.runUntilIdle());
+        // "hello" -> "world", the 'l' stays
+        assertEquals(4, toolkit.getCellsChanged());
+        assertNotNull(toolkit.snapshot().find("world"));
+    }
+
+    public void testTyping() {
+        toolkit.typeString("abc");
+
+        // the refreshes requested by the keys are merged
+        assertEquals(1, toolkit.runUntilIdle());
+        assertEquals(3, toolkit.getCellsChanged());
+        assertEquals("abc", field.getText());
+        assertNotNull(toolkit.snapshot().find("abc"));
+    }
+
+    public void testScreenResize() {
+        toolkit.setScreenSize(50, 12);
+        try {
+            assertEquals(1, toolkit.runUntilIdle());
+
+            Snapshot snapshot = toolkit.snapshot();
+            assertEquals(50, snapshot.getWidth());
+            assertEquals(12, snapshot.getHeight());
+            assertTrue(snapshot.getRow(1).indexOf("hello") > 0);
+        } finally {
+            toolkit.setScreenSize(40, 10);
+            toolkit.runUntilIdle();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charvax.swing;
+
+import charva.toolkit.virtual.VirtualToolkit;
+import junit.framework.TestCase;
+
+/**
+ * Tests the ring buffer and the search of the {@link JLogView}, on the
+ * headless {@link VirtualToolkit}.
+ */
+public class JLogViewTest extends TestCase {
+
+    private static final int    MAX_LINES = 100;
+
+    /** The default toolkit can be created only once per JVM */
+    private static VirtualToolkit   toolkit;
+
+    private JFrame      frame;
+    private JLogView    log;
+
+    protected void setUp() {
+        if (toolkit == null) {
+            toolkit = new VirtualToolkit(40, 10);
+        }
+
+        log = new JLogView(MAX_LINES, 5, 30);
+
+        frame = new JFrame("log");
+        frame.setBounds(0, 0, 40, 10);
+        frame.getContentPane().add(new JScrollPane(log));
+        frame.show();
+        toolkit.runUntilIdle();
+    }
+
+    protected void tearDown() {
+        frame.hide();
+        toolkit.runUntilIdle();
+    }
+
+    public void testOldestLinesDropped() {
+        appendLines(250);
+
+        assertEquals(MAX_LINES, log.getLineCount());
+        assertEquals("line 150", log.getLine(0));
+        assertEquals("line 249", log.getLine(MAX_LINES - 1));
+
+        // the view follows the appended lines
+        assertNotNull(toolkit.snapshot().find("line 249"));
+    }
+
+    public void testSearchWrappedRing() throws InterruptedException {
+        appendLines(250);
+
+        log.search("line 1.9", true, false);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (log.getSearch().isSearching()) {
+            assertTrue("searching", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+            toolkit.runUntilIdle();
+        }
+
+        // line 159, 169, ..., 199
+        assertEquals(5, log.getSearch().getMatchCount());
+        assertTrue(log.findNext());
+    }
+
+    private void appendLines(int count) {
+        for (int i = 0; i < count; i++) {
+            log.append("line " + i + "\n");
+        }
+
+        toolkit.runUntilIdle();
+    }
+}
@@ -0,0 +1,173 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package charvax.swing;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the incremental updates of the {@link LineIndex}, comparing it 
+ * after each edit with a scan of the whole text.
+ */
+public class LineIndexTest extends TestCase {
+
+    private static final int    EDITS = 2000;
+
+    private static final String ALPHABET = "abc de\n\n\t";
+
+    private final Random        random = new Random(42);
+
+    private StringBuffer        text;
+    private LineIndex           index;
+
+    /** The offset of the last edit, where the gap of the index is */
+    private int                 lastOffset;
+
+    protected void setUp() {
+        text = new StringBuffer(randomText(200));
+    }
+
+    public void testRandomEdits() {
+        index = new LineIndex(text, 10, false, false);
+        assertLines();
+
+        for (int i = 0; i < EDITS; i++) {
+            edit();
+            assertLines();
+        }
+    }
+
+    public void testEditsOfEmptyText() {
+        text.setLength(0);
+        index = new LineIndex(text, 10, false, false);
+        assertLines();
+
+        replace(0, 0, "\n\n");
+        assertLines();
+        replace(1, 0, "ab\ncd");
+        assertLines();
+        replace(0, text.length(), "");
+        assertLines();
+    }
+
+    public void testRandomEditsWrapped() {
+        assertWrappedEdits(false);
+    }
+
+    public void testRandomEditsWrappedAtWords() {
+        assertWrappedEdits(true);
+    }
+
+    private void assertWrappedEdits(boolean wrapStyleWord) {
+        index = new LineIndex(text, 7, true, wrapStyleWord);
+        for (int i = 0; i < EDITS; i++) {
+            edit();
+
+            // the rows must be the same as those of a new index
+            LineIndex expected = new LineIndex(text, 7, true, wrapStyleWord);
+            assertEquals(expected.getRowCount(), index.getRowCount());
+            for (int row = 0; row < expected.getRowCount(); row++) {
+                assertEquals(expected.getRowStart(row), 
+                        index.getRowStart(row));
+                assertEquals(expected.getRowEnd(row), index.getRowEnd(row));
+            }
+
+            for (int offset = 0; offset <= text.length(); offset++) {
+                assertEquals(expected.getRowOfOffset(offset), 
+                        index.getRowOfOffset(offset));
+            }
+        }
+    }
+
+    /**
+     * Applies a random edit: an insertion, a removal or a replacement, of
+     * one or several lines, at a random offset, at the gap or at one of 
+     * the ends of the text.
+     */
+    private void edit() {
+        int offset;
+        switch (random.nextInt(4)) {
+        case 0:
+            offset = 0;
+            break;
+        case 1:
+            offset = text.length();
+            break;
+        case 2:
+            offset = Math.min(lastOffset, text.length());
+            break;
+        default:
+            offset = random.nextInt(text.length() + 1);
+        }
+
+        int removed = 0;
+        if (random.nextBoolean()) {
+            removed = random.nextInt(Math.min(text.length() - offset, 30) + 1);
+        }
+
+        String inserted = "";
+        if (removed == 0 || random.nextBoolean()) {
+            inserted = randomText(random.nextInt(30));
+        }
+
+        // keep the text from growing without bounds
+        if (text.length() > 400) {
+            offset = random.nextInt(text.length() - 100);
+            removed = 100;
+            inserted = "";
+        }
+
+        replace(offset, removed, inserted);
+    }
+
+    private void replace(int offset, int removed, String inserted) {
+        text.replace(offset, offset + removed, inserted);
+        index.update(text, offset, removed, inserted.length());
+        lastOffset = offset;
+    }
+
+    /**
+     * Compares the index of lines, which are not wrapped, with the 
+     * newlines of the text.
+     */
+    private void assertLines() {
+        int row = 0;
+        int rowStart = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            assertEquals("row of offset " + i, row, index.getRowOfOffset(i));
+
+            if (i == text.length() || text.charAt(i) == '\n') {
+                assertEquals(rowStart, index.getRowStart(row));
+                assertEquals(i, index.getRowEnd(row));
+                row++;
+                rowStart = i + 1;
+            }
+        }
+
+        assertEquals(row, index.getRowCount());
+    }
+
+    private String randomText(int count) {
+        StringBuffer buf = new StringBuffer(count);
+        for (int i = 0; i < count; i++) {
+            buf.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+
+        return buf.toString();
+    }
+}
@@ -0,0 +1,111 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package charvax.swing;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import charva.toolkit.virtual.VirtualToolkit;
+import junit.framework.TestCase;
+
+/**
+ * Tests the states of a {@link SwingWorker} and the order of their events.
+ */
+public class SwingWorkerTest extends TestCase {
+
+    /** The default toolkit can be created only once per JVM */
+    private static VirtualToolkit   toolkit;
+
+    /** The old and new values of the "state" events */
+    private final List      events = new ArrayList();
+
+    protected void setUp() {
+        if (toolkit == null) {
+            toolkit = new VirtualToolkit(20, 5);
+        }
+    }
+
+    public void testStates() {
+        SwingWorker worker = createWorker(false);
+        worker.run();
+        assertEquals(SwingWorker.STARTED, worker.getState());
+
+        toolkit.runUntilIdle();
+        assertEquals(SwingWorker.DONE, worker.getState());
+        assertEvents(new int[] { 
+                SwingWorker.PENDING, SwingWorker.STARTED, 
+                SwingWorker.STARTED, SwingWorker.DONE });
+    }
+
+    public void testCancelledWhileRunning() {
+        SwingWorker worker = createWorker(true);
+        worker.run();
+
+        toolkit.runUntilIdle();
+        assertEquals(SwingWorker.DONE, worker.getState());
+        assertEvents(new int[] { 
+                SwingWorker.PENDING, SwingWorker.STARTED, 
+                SwingWorker.STARTED, SwingWorker.DONE });
+    }
+
+    public void testCancelledBeforeRun() {
+        SwingWorker worker = createWorker(false);
+        worker.cancel(false);
+        worker.run();
+        assertEquals(SwingWorker.PENDING, worker.getState());
+
+        toolkit.runUntilIdle();
+        assertEquals(SwingWorker.DONE, worker.getState());
+        assertEvents(new int[] { SwingWorker.PENDING, SwingWorker.DONE });
+    }
+
+    /**
+     * Returns a worker, which records its "state" events and may cancel
+     * itself while it runs.
+     */
+    private SwingWorker createWorker(final boolean cancel) {
+        SwingWorker worker = new SwingWorker() {
+            protected Object doInBackground() {
+                if (cancel) {
+                    cancel(false);
+                }
+
+                return "result";
+            }
+        };
+
+        worker.addPropertyChangeListener(new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent e) {
+                if ("state".equals(e.getPropertyName())) {
+                    events.add(e.getOldValue());
+                    events.add(e.getNewValue());
+                }
+            }
+        });
+
+        return worker;
+    }
+
+    private void assertEvents(int[] expected) {
+        assertEquals(expected.length, events.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], ((Integer) events.get(i)).intValue());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charvax.swing;
+
+import charva.awt.SessionDispatcher;
+import charva.awt.Toolkit;
+import charva.awt.event.ActionEvent;
+import charva.awt.event.ActionListener;
+import charva.toolkit.virtual.VirtualToolkit;
+import junit.framework.TestCase;
+
+/**
+ * Tests the delivery of the {@link Timer} ticks to the sessions.
+ */
+public class TimerTest extends TestCase {
+
+    private SessionDispatcher   dispatcher;
+    private VirtualToolkit      toolkit;
+
+    private volatile int        ticks;
+    private volatile Toolkit    tickToolkit;
+
+    protected void setUp() {
+        dispatcher = new SessionDispatcher(1);
+        toolkit = new VirtualToolkit(20, 5, dispatcher);
+    }
+
+    protected void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    public void testTicksGoToSession() throws InterruptedException {
+        Timer timer = startTimer();
+        waitForTicks(3);
+        timer.stop();
+
+        assertSame(toolkit, tickToolkit);
+    }
+
+    public void testTimerStopsWhenSessionEnds() throws InterruptedException {
+        Timer timer = startTimer();
+        waitForTicks(1);
+
+        dispatcher.removeSession(toolkit);
+        assertTrue(toolkit.isSessionEnded());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (timer.isRunning()) {
+            assertTrue("timer running", 
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private Timer startTimer() {
+        final Timer[] timer = new Timer[1];
+        toolkit.runInContext(new Runnable() {
+            public void run() {
+                timer[0] = new Timer(5, new ActionListener() {
+                    public void actionPerformed(ActionEvent e) {
+                        tickToolkit = Toolkit.getDefaultToolkit();
+                        ticks++;
+                    }
+                });
+                timer[0].start();
+            }
+        });
+
+        return timer[0];
+    }
+
+    private void waitForTicks(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (ticks < count) {
+            assertTrue("ticks", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+}
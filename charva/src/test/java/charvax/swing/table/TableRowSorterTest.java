@@ -0,0 +1,115 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charvax.swing.table;
+
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import charvax.swing.event.TableModelEvent;
+
+/**
+ * Tests the mapping of the {@link TableRowSorter} when the model changes.
+ */
+public class TableRowSorterTest extends TestCase {
+
+    /** A model of one column of integers, descending with the row */
+    private static class Model extends AbstractTableModel {
+
+        private int rows;
+
+        Model(int rows) {
+            this.rows = rows;
+        }
+
+        void setRowCount(int rows) {
+            this.rows = rows;
+        }
+
+        public int getRowCount() {
+            return rows;
+        }
+
+        public int getColumnCount() {
+            return 1;
+        }
+
+        public Object getValueAt(int row, int column) {
+            return new Integer(-row);
+        }
+    }
+
+    private Model           model;
+    private TableRowSorter  sorter;
+
+    protected void setUp() {
+        model  = new Model(10);
+        sorter = new TableRowSorter(model);
+        model.addTableModelListener(sorter);
+        sorter.setSortKeys(Collections.singletonList(
+                new TableRowSorter.SortKey(0, true)));
+    }
+
+    public void testSorted() {
+        assertMapping(10);
+    }
+
+    public void testDataChangedAfterGrow() {
+        model.setRowCount(20);
+        model.fireTableDataChanged();
+        assertMapping(20);
+    }
+
+    public void testDataChangedAfterShrink() {
+        model.setRowCount(5);
+        model.fireTableDataChanged();
+        assertMapping(5);
+    }
+
+    public void testRowsUpdatedAfterGrow() {
+        model.setRowCount(20);
+        model.fireTableChanged(new TableModelEvent(model, 0, 19));
+        assertMapping(20);
+    }
+
+    public void testRowsInserted() {
+        model.setRowCount(12);
+        model.fireTableRowsInserted(10, 11);
+        assertMapping(12);
+    }
+
+    public void testRowsDeleted() {
+        model.setRowCount(7);
+        model.fireTableRowsDeleted(7, 9);
+        assertMapping(7);
+    }
+
+    /**
+     * Asserts that the view shows all the rows of the model, in
+     * ascending order of the values.
+     */
+    private void assertMapping(int rows) {
+        assertEquals(rows, sorter.getViewRowCount());
+
+        for (int i = 0; i < rows; i++) {
+            int row = sorter.convertRowIndexToModel(i);
+            assertEquals(rows - 1 - i, row);
+            assertEquals(i, sorter.convertRowIndexToView(row));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charvax.swing.text;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the line index of the {@link MappedTextView}.
+ */
+public class MappedTextViewTest extends TestCase {
+
+    /** More than two strides, the last one is not complete */
+    private static final int LINES = 2 * MappedTextView.INDEX_STRIDE + 13;
+
+    private File            file;
+    private String[]        lines;
+    private MappedTextView  view;
+
+    protected void setUp() throws IOException {
+        file  = File.createTempFile("mapped", ".txt");
+        lines = new String[LINES];
+
+        StringBuffer text = new StringBuffer();
+        for (int i = 0; i < LINES; i++) {
+            StringBuffer line = new StringBuffer();
+            for (int j = 0; j < i % 40; j++) {
+                // two bytes in UTF-8
+                line.append('\u00e9');
+            }
+
+            lines[i] = line.append(" line ").append(i).toString();
+            text.append(lines[i]);
+
+            if (i == 7) {
+                text.append('\r');
+            }
+
+            if (i < LINES - 1) {
+                text.append('\n');
+            }
+        }
+
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(text.toString().getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+
+        view = new MappedTextView(file, "UTF-8", 1, 1);
+        waitForIndex();
+    }
+
+    protected void tearDown() {
+        view.close();
+        file.delete();
+    }
+
+    public void testLineCount() {
+        assertEquals(LINES, view.getLineCount());
+    }
+
+    public void testLines() {
+        for (int i = LINES - 1; i >= 0; i--) {
+            assertEquals(lines[i], view.getLine(i));
+        }
+    }
+
+    public void testLinesInOrder() {
+        // the line starts are cached, the ends are found from the next line
+        for (int i = 0; i < LINES; i++) {
+            assertEquals(lines[i], view.getLine(i));
+        }
+
+        for (int i = 0; i < LINES; i++) {
+            assertEquals(lines[i], view.getLine(i));
+        }
+    }
+
+    public void testClose() throws IOException {
+        MappedTextView closed = new MappedTextView(file, "UTF-8", 1, 1);
+        closed.close();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (closed.isIndexing()) {
+            assertTrue("indexing", System.currentTimeMillis() < deadline);
+            Thread.yield();
+        }
+
+        assertEquals(0, closed.getLineCount());
+    }
+
+    public void testWidthInCharacters() {
+        view.addNotify();
+
+        int longest = 0;
+        for (int i = 0; i < LINES; i++) {
+            longest = Math.max(longest, lines[i].length());
+        }
+
+        assertEquals(longest, view.getWidth());
+    }
+
+    private void waitForIndex() {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (view.isIndexing()) {
+            assertTrue("indexing", System.currentTimeMillis() < deadline);
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/* Copyright (C) 2015 charva-lanterna
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package charvax.swing.text;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the gap buffer of the {@link PlainDocument} and its snapshots.
+ */
+public class PlainDocumentTest extends TestCase {
+
+    public void testEdits() {
+        PlainDocument doc = new PlainDocument("hello world");
+        doc.insertString(5, ",");
+        doc.remove(0, 1);
+        doc.insertString(0, "H");
+        doc.replace(7, 5, "there");
+        doc.insertString(doc.getLength(), "!");
+
+        assertEquals("Hello, there!", doc.toString());
+        assertEquals("there", doc.getText(7, 5));
+        assertEquals("Hello, there!", doc.getCharSequence().toString());
+    }
+
+    public void testSnapshotIsNotModified() {
+        PlainDocument doc = new PlainDocument("hello world");
+        doc.insertString(5, ",");
+
+        CharSequence snapshot = doc.getSnapshot();
+        assertSame(snapshot, doc.getSnapshot());
+
+        doc.remove(0, 7);
+        doc.insertString(0, "big ");
+        doc.insertString(doc.getLength(), " again");
+
+        assertEquals("big world again", doc.toString());
+        assertEquals("hello, world", snapshot.toString());
+        assertEquals(12, snapshot.length());
+        assertEquals(',', snapshot.charAt(5));
+        assertEquals("o, w", snapshot.subSequence(4, 8).toString());
+        assertEquals("big world again", doc.getSnapshot().toString());
+    }
+
+    public void testSnapshotRange() {
+        PlainDocument doc = new PlainDocument("abc");
+        CharSequence snapshot = doc.getSnapshot();
+
+        try {
+            snapshot.charAt(3);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+
+        try {
+            snapshot.subSequence(2, 4);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+}